@@ -0,0 +1,258 @@
+package com.example.demo.audio;
+
+/**
+ * 一句话的音频指纹，用于发现重复播放的同一段音频（Haitsma-Kalker式子带能量差指纹）
+ * 32ms汉宁窗、10ms帧移的重叠帧，每帧把 250-4000Hz 分成17个对数间隔的子带，
+ * 相邻子带对数能量之差随时间的变化取符号，得到每帧16位。对数能量差与音量无关，
+ * 帧起点对齐到5ms能量包络第一次超过峰值-30dB的采样（逐采样计算，整数累加），
+ * 因此同一段音频前面的静音长短任意、音量不同时各帧的内容完全相同。
+ * 底噪会让起点前移几帧，比较时在 ±{@link #MAX_SHIFT} 帧的错位内取最小的位错误率判断是否相同；
+ * 有效帧不足 {@link #MIN_FRAMES}（约250ms）的音频信息量太少，不生成指纹
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class AudioFingerprint {
+
+    /**
+     * 可以生成指纹的最少帧数
+     */
+    public static final int MIN_FRAMES = 25;
+
+    private static final int SAMPLE_RATE = PcmFormat.IAT.getSampleRate();
+    private static final int FFT_BITS = 9;
+    private static final int FRAME_SIZE = 1 << FFT_BITS;
+    private static final int HOP = SAMPLE_RATE / 100;
+    private static final int BANDS = 17;
+    private static final double MIN_HZ = 250;
+    private static final double MAX_HZ = 4000;
+    // 子带能量下限，约为16位量化噪声在窗内的功率，纯静音子带的对数能量为常数
+    private static final double BAND_FLOOR = 16;
+
+    private static final int ENVELOPE_SAMPLES = SAMPLE_RATE / 200;
+    // 包络低于峰值30dB的首尾部分不计入
+    private static final long ONSET_RATIO = 1000;
+    // 整句峰值包络低于 -55dBFS 视为静音
+    private static final double SILENCE_ENVELOPE = ENVELOPE_SAMPLES * Math.pow(32768 * Math.pow(10, -55 / 20.0), 2);
+    // 比最响帧低25dB以上的帧（句中停顿，容易被底噪改写）不参与比较
+    private static final double ACTIVE_FRAME_RATIO = Math.pow(10, -2.5);
+
+    private static final int MAX_SHIFT = 8;
+    private static final int MAX_LENGTH_DIFFERENCE = 16;
+    private static final double MAX_BIT_ERROR_RATE = 0.2;
+
+    private static final double[] WINDOW = new double[FRAME_SIZE];
+    private static final int[] BAND_EDGES = new int[BANDS + 1];
+    private static final int[] BIT_REVERSE = new int[FRAME_SIZE];
+    private static final double[] COS = new double[FRAME_SIZE / 2];
+    private static final double[] SIN = new double[FRAME_SIZE / 2];
+
+    static {
+        for (int i = 0; i < FRAME_SIZE; i++) {
+            WINDOW[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / FRAME_SIZE);
+            BIT_REVERSE[i] = Integer.reverse(i) >>> (32 - FFT_BITS);
+        }
+        for (int k = 0; k < FRAME_SIZE / 2; k++) {
+            COS[k] = Math.cos(2 * Math.PI * k / FRAME_SIZE);
+            SIN[k] = -Math.sin(2 * Math.PI * k / FRAME_SIZE);
+        }
+        double binHz = (double) SAMPLE_RATE / FRAME_SIZE;
+        for (int m = 0; m <= BANDS; m++) {
+            int bin = (int) Math.round(MIN_HZ * Math.pow(MAX_HZ / MIN_HZ, (double) m / BANDS) / binHz);
+            BAND_EDGES[m] = m == 0 ? bin : Math.max(BAND_EDGES[m - 1] + 1, bin);
+        }
+    }
+
+    /**
+     * 每帧16位子带能量差符号
+     */
+    private final int[] bits;
+
+    /**
+     * 帧是否有声音，两段音频都是停顿的帧不参与比较
+     */
+    private final boolean[] active;
+
+    private AudioFingerprint(int[] bits, boolean[] active) {
+        this.bits = bits;
+        this.active = active;
+    }
+
+    /**
+     * 计算一句16kHz单声道16位小端PCM的指纹
+     *
+     * @return 指纹；音频是静音或有效部分不足 {@link #MIN_FRAMES} 帧时返回null
+     */
+    public static AudioFingerprint of(byte[] pcm, int offset, int length) {
+        int count = length / 2;
+        if (count < ENVELOPE_SAMPLES) {
+            return null;
+        }
+        int[] samples = new int[count];
+        for (int i = 0; i < count; i++) {
+            samples[i] = (short) ((pcm[offset + 2 * i] & 0xff) | pcm[offset + 2 * i + 1] << 8);
+        }
+
+        // 5ms滑动能量，用整数累加保证与前面的静音长度无关
+        int windows = count - ENVELOPE_SAMPLES + 1;
+        long[] envelope = new long[windows];
+        long sum = 0;
+        for (int i = 0; i < ENVELOPE_SAMPLES; i++) {
+            sum += (long) samples[i] * samples[i];
+        }
+        envelope[0] = sum;
+        long peak = sum;
+        for (int i = 1; i < windows; i++) {
+            int in = samples[i + ENVELOPE_SAMPLES - 1];
+            int out = samples[i - 1];
+            sum += (long) in * in - (long) out * out;
+            envelope[i] = sum;
+            peak = Math.max(peak, sum);
+        }
+        if (peak < SILENCE_ENVELOPE) {
+            return null;
+        }
+        int onset = 0;
+        while (envelope[onset] * ONSET_RATIO < peak) {
+            onset++;
+        }
+        int end = windows - 1;
+        while (envelope[end] * ONSET_RATIO < peak) {
+            end--;
+        }
+        end += ENVELOPE_SAMPLES;
+
+        int frames = (end - onset) / HOP + 1;
+        if (frames < MIN_FRAMES) {
+            return null;
+        }
+
+        // 第 k 帧以 onset + k * HOP 为中心，多算一帧作为第0帧的差分基准
+        double[] re = new double[FRAME_SIZE];
+        double[] im = new double[FRAME_SIZE];
+        double[] previous = new double[BANDS - 1];
+        double[] current = new double[BANDS - 1];
+        double[] energies = new double[frames];
+        int[] bits = new int[frames];
+        double loudest = 0;
+        for (int k = -1; k < frames; k++) {
+            int start = onset + k * HOP - FRAME_SIZE / 2;
+            for (int i = 0; i < FRAME_SIZE; i++) {
+                int position = start + i;
+                re[i] = position >= 0 && position < count ? samples[position] * WINDOW[i] : 0;
+                im[i] = 0;
+            }
+            fft(re, im);
+
+            double energy = 0;
+            double lastLog = 0;
+            for (int m = 0; m < BANDS; m++) {
+                double band = 0;
+                for (int bin = BAND_EDGES[m]; bin < BAND_EDGES[m + 1]; bin++) {
+                    band += re[bin] * re[bin] + im[bin] * im[bin];
+                }
+                energy += band;
+                double log = Math.log(band + BAND_FLOOR);
+                if (m > 0) {
+                    current[m - 1] = lastLog - log;
+                }
+                lastLog = log;
+            }
+
+            if (k >= 0) {
+                int word = 0;
+                for (int m = 0; m < BANDS - 1; m++) {
+                    if (current[m] - previous[m] > 0) {
+                        word |= 1 << m;
+                    }
+                }
+                bits[k] = word;
+                energies[k] = energy;
+                loudest = Math.max(loudest, energy);
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        boolean[] active = new boolean[frames];
+        for (int k = 0; k < frames; k++) {
+            active[k] = energies[k] >= loudest * ACTIVE_FRAME_RATIO;
+        }
+        return new AudioFingerprint(bits, active);
+    }
+
+    /**
+     * 指纹的帧数（10ms一帧）
+     */
+    public int getFrames() {
+        return bits.length;
+    }
+
+    /**
+     * 是否为同一段音频
+     */
+    public boolean matches(AudioFingerprint other) {
+        return distance(other) <= MAX_BIT_ERROR_RATE;
+    }
+
+    /**
+     * 容许少量错位时的最小位错误率，随机内容约为0.5；长度相差过大时为1
+     */
+    public double distance(AudioFingerprint other) {
+        if (Math.abs(bits.length - other.bits.length) > MAX_LENGTH_DIFFERENCE) {
+            return 1;
+        }
+        double best = 1;
+        for (int shift = -MAX_SHIFT; shift <= MAX_SHIFT; shift++) {
+            int errors = 0;
+            int compared = 0;
+            for (int i = Math.max(0, -shift); i < bits.length && i + shift < other.bits.length; i++) {
+                int j = i + shift;
+                if (active[i] || other.active[j]) {
+                    errors += Integer.bitCount(bits[i] ^ other.bits[j]);
+                    compared++;
+                }
+            }
+            if (compared >= MIN_FRAMES) {
+                best = Math.min(best, (double) errors / (compared * (BANDS - 1)));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 原地基2复数FFT
+     */
+    private static void fft(double[] re, double[] im) {
+        for (int i = 0; i < FRAME_SIZE; i++) {
+            int j = BIT_REVERSE[i];
+            if (j > i) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int size = 2; size <= FRAME_SIZE; size <<= 1) {
+            int half = size / 2;
+            int step = FRAME_SIZE / size;
+            for (int start = 0; start < FRAME_SIZE; start += size) {
+                for (int k = 0; k < half; k++) {
+                    double wr = COS[k * step];
+                    double wi = SIN[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者/单消费者的无锁音频帧环形缓冲
+ * 所有帧在创建时预分配，生产者直接把音频读入空闲槽位（{@link #claim()}），提交后消费者才能读到，
+ * 消费者处理完再释放槽位，同一槽位不会被同时读写，不会出现撕裂的帧。
+ * 读写序号用 {@link AtomicLong#lazySet} 发布，运行中不加锁、不分配内存。
+ * 生产者和消费者各自只能由一个线程调用
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class AudioFrameRing {
+
+    private final byte[][] frames;
+    private final int[] lengths;
+    private final int mask;
+
+    /**
+     * 下一个写入的序号，只由生产者修改
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个读取的序号，只由消费者修改
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity  帧数，向上取整为2的幂
+     * @param frameSize 每帧的字节数
+     */
+    public AudioFrameRing(int capacity, int frameSize) {
+        if (capacity <= 0 || frameSize <= 0) {
+            throw new IllegalArgumentException("capacity and frameSize must be positive");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        size = Math.max(size, 1);
+        this.frames = new byte[size][frameSize];
+        this.lengths = new int[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 生产者：取下一个空闲槽位，缓冲已满时返回null
+     */
+    public byte[] claim() {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            return null;
+        }
+        return frames[(int) t & mask];
+    }
+
+    /**
+     * 生产者：提交 {@link #claim()} 取得的槽位
+     *
+     * @param length 槽位中有效的字节数
+     */
+    public void commit(int length) {
+        long t = tail.get();
+        lengths[(int) t & mask] = length;
+        tail.lazySet(t + 1);
+    }
+
+    /**
+     * 消费者：最早提交的帧，没有帧时返回null，处理完后调用 {@link #release()}
+     */
+    public byte[] peek() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        return frames[(int) h & mask];
+    }
+
+    /**
+     * 消费者：{@link #peek()} 返回帧的有效字节数
+     */
+    public int peekLength() {
+        return lengths[(int) head.get() & mask];
+    }
+
+    /**
+     * 消费者：释放 {@link #peek()} 返回的帧
+     */
+    public void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return frames.length;
+    }
+}
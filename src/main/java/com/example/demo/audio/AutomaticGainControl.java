@@ -0,0 +1,111 @@
+package com.example.demo.audio;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 自动增益控制（AGC）：把音量偏小的麦克风输入提升到目标电平
+ * 每10ms按该块的RMS电平更新目标增益，下一块内逐采样线性过渡，避免增益跳变产生的杂音。
+ * 电平低于门限的块（静音、背景噪声）不按电平调整，增益以提升的速度回落到0dB，停顿中的噪声不会一直被放大；
+ * 增益只提升不衰减，放大后会削波的采样立即降低增益（峰值限幅）。
+ * 直接在16kHz单声道采样上原地处理，不分配内存。
+ * 每个识别会话一个实例，非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class AutomaticGainControl {
+
+    private static final int BLOCK_SAMPLES = PcmFormat.IAT.getSampleRate() / 100;
+    private static final double FULL_SCALE = 32768.0;
+    private static final double PEAK_LIMIT = 32767.0;
+
+    /**
+     * 每块向目标增益靠近的比例：降低增益快（约20ms），提升增益慢（约200ms），避免句中音量忽高忽低
+     */
+    private static final double ATTACK = 0.5;
+    private static final double RELEASE = 0.05;
+
+    private final Config config;
+
+    private double gainDb;
+    private double gain = 1.0;
+    private double gainStep;
+    private double blockEnergy;
+    private int blockSamples;
+
+    public AutomaticGainControl(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * 原地处理一批采样
+     */
+    public void process(short[] samples, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            int sample = samples[i];
+            blockEnergy += (double) sample * sample;
+
+            double amplified = sample * gain;
+            if (Math.abs(amplified) > PEAK_LIMIT) {
+                // 峰值限幅：本块剩余部分都使用不削波的增益
+                gain = PEAK_LIMIT / Math.abs(sample);
+                gainDb = 20 * Math.log10(gain);
+                gainStep = 0;
+                amplified = sample * gain;
+            }
+            samples[i] = (short) Math.round(amplified);
+            gain += gainStep;
+
+            if (++blockSamples == BLOCK_SAMPLES) {
+                updateGain();
+            }
+        }
+    }
+
+    /**
+     * 当前增益（dB）
+     */
+    public double getGainDb() {
+        return gainDb;
+    }
+
+    private void updateGain() {
+        double meanSquare = blockEnergy / BLOCK_SAMPLES;
+        blockEnergy = 0;
+        blockSamples = 0;
+        // 上一块的线性过渡已完成，消除累加误差
+        gain = Math.pow(10, gainDb / 20);
+        gainStep = 0;
+
+        double levelDb = meanSquare > 0 ? 10 * Math.log10(meanSquare / (FULL_SCALE * FULL_SCALE)) : -96;
+        if (levelDb < config.getGateDb()) {
+            // 停顿中缓慢回落，字间短暂停顿不会造成音量起伏
+            gainDb -= gainDb * RELEASE;
+        } else {
+            double desiredDb = Math.max(0, Math.min(config.getMaxGainDb(), config.getTargetDb() - levelDb));
+            gainDb += (desiredDb - gainDb) * (desiredDb < gainDb ? ATTACK : RELEASE);
+        }
+        gainStep = (Math.pow(10, gainDb / 20) - gain) / BLOCK_SAMPLES;
+    }
+
+    /**
+     * AGC参数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Config {
+        /**
+         * 目标RMS电平（dBFS）
+         */
+        private final double targetDb;
+        /**
+         * 最大增益（dB）
+         */
+        private final double maxGainDb;
+        /**
+         * 电平低于该值（dBFS）的块不按电平调整，增益回落到0dB
+         */
+        private final double gateDb;
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.demo.audio;
+
+import io.github.jaredmdobson.concentus.OpusDecoder;
+import io.github.jaredmdobson.concentus.OpusException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 流式Opus解码器：把前端上传的Opus音频直接解码为16kHz单声道采样
+ * 支持两种输入：
+ * <ul>
+ *     <li>Ogg Opus流（以 "OggS" 开头），可以按任意边界切包，跨包的页和包在内部拼接</li>
+ *     <li>裸Opus包，每次调用传入恰好一个包（WebSocket消息边界即包边界）</li>
+ * </ul>
+ * Opus解码器本身支持输出16kHz并把立体声混为单声道，不需要再重采样。
+ * 解码状态（预测、丢包补偿）跨调用保留，每个识别会话一个实例，非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class OpusStreamDecoder {
+
+    private static final int OUTPUT_RATE = PcmFormat.IAT.getSampleRate();
+
+    /**
+     * Opus包最长120ms
+     */
+    private static final int MAX_PACKET_SAMPLES = OUTPUT_RATE * 120 / 1000;
+
+    /**
+     * OpusHead中的预跳过采样数以48kHz计
+     */
+    private static final int OPUS_HEAD_RATE = 48000;
+
+    private static final int PAGE_HEADER_SIZE = 27;
+    // 小端读取的 "OggS"
+    private static final int OGG_CAPTURE = 0x5367674f;
+    private static final byte[] OPUS_HEAD = {'O', 'p', 'u', 's', 'H', 'e', 'a', 'd'};
+
+    private enum Container {
+        /**
+         * 等待流的第一段输入
+         */
+        UNKNOWN,
+        /**
+         * 裸Opus包
+         */
+        RAW,
+        /**
+         * Ogg封装
+         */
+        OGG
+    }
+
+    private final OpusDecoder decoder;
+
+    private Container container = Container.UNKNOWN;
+
+    /**
+     * 尚未凑成完整Ogg页的字节
+     */
+    private byte[] pending = new byte[0];
+    private int pendingLength;
+
+    /**
+     * 跨段或跨页拼接中的Opus包
+     */
+    private byte[] packet = new byte[0];
+    private int packetLength;
+
+    /**
+     * 当前Ogg逻辑流已读取的包数，前两个包为OpusHead和OpusTags
+     */
+    private int oggPackets;
+
+    /**
+     * 流开头还需丢弃的编码器预热采样
+     */
+    private int skip;
+
+    private short[] output = new short[MAX_PACKET_SAMPLES];
+    private int outputLength;
+
+    public OpusStreamDecoder() {
+        try {
+            this.decoder = new OpusDecoder(OUTPUT_RATE, 1);
+        } catch (OpusException e) {
+            throw new IllegalStateException("无法创建Opus解码器: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 判断输入是否以Ogg页开头，不移动读取位置
+     */
+    public static boolean isOgg(ByteBuffer input) {
+        return input.remaining() >= 4 && readInt(input, input.position()) == OGG_CAPTURE;
+    }
+
+    /**
+     * 解码一段输入，结果位于 {@link #getOutput()} 的前 N 个采样
+     * 数据不是合法的Opus时抛出 IllegalArgumentException
+     *
+     * @return 解码出的16kHz采样数 N，可能为0（仍在读取Ogg页或文件头）
+     */
+    public int decode(ByteBuffer input) {
+        outputLength = 0;
+        if (container == Container.UNKNOWN) {
+            container = isOgg(input) ? Container.OGG : Container.RAW;
+        }
+
+        if (container == Container.RAW) {
+            int length = input.remaining();
+            if (length > 0) {
+                ensurePacket(length);
+                input.get(packet, 0, length);
+                decodePacket(packet, length);
+            }
+            return outputLength;
+        }
+
+        int length = input.remaining();
+        if (pending.length < pendingLength + length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+        }
+        input.get(pending, pendingLength, length);
+        pendingLength += length;
+        readPages();
+        return outputLength;
+    }
+
+    public short[] getOutput() {
+        return output;
+    }
+
+    /**
+     * 丢弃所有流状态，下一次输入视为新流的开头
+     */
+    public void reset() {
+        container = Container.UNKNOWN;
+        pendingLength = 0;
+        packetLength = 0;
+        oggPackets = 0;
+        skip = 0;
+        decoder.resetState();
+    }
+
+    /**
+     * 读取缓存中所有完整的Ogg页，剩余的半页留到下一次输入。
+     * 数据经WebSocket/HTTP可靠传输，不校验页CRC
+     */
+    private void readPages() {
+        int position = 0;
+        while (pendingLength - position >= PAGE_HEADER_SIZE) {
+            if (readInt(pending, position) != OGG_CAPTURE) {
+                throw new IllegalArgumentException("Ogg页同步失败");
+            }
+            int segments = pending[position + 26] & 0xff;
+            int headerSize = PAGE_HEADER_SIZE + segments;
+            if (pendingLength - position < headerSize) {
+                break;
+            }
+            int bodySize = 0;
+            for (int i = 0; i < segments; i++) {
+                bodySize += pending[position + PAGE_HEADER_SIZE + i] & 0xff;
+            }
+            if (pendingLength - position < headerSize + bodySize) {
+                break;
+            }
+
+            int headerType = pending[position + 5];
+            if ((headerType & 0x02) != 0) {
+                // 新逻辑流的第一页
+                oggPackets = 0;
+                skip = 0;
+                decoder.resetState();
+            }
+            if ((headerType & 0x01) == 0) {
+                packetLength = 0;
+            }
+            int body = position + headerSize;
+            for (int i = 0; i < segments; i++) {
+                int lacing = pending[position + PAGE_HEADER_SIZE + i] & 0xff;
+                ensurePacket(packetLength + lacing);
+                System.arraycopy(pending, body, packet, packetLength, lacing);
+                packetLength += lacing;
+                body += lacing;
+                // 长度为255的段表示包在下一段继续
+                if (lacing < 255) {
+                    onOggPacket();
+                    packetLength = 0;
+                }
+            }
+            position += headerSize + bodySize;
+        }
+
+        System.arraycopy(pending, position, pending, 0, pendingLength - position);
+        pendingLength -= position;
+    }
+
+    private void onOggPacket() {
+        int index = oggPackets++;
+        if (index == 0) {
+            if (packetLength < 19 || !Arrays.equals(Arrays.copyOf(packet, OPUS_HEAD.length), OPUS_HEAD)) {
+                throw new IllegalArgumentException("Ogg流不是Opus编码");
+            }
+            int preSkip = (packet[10] & 0xff) | (packet[11] & 0xff) << 8;
+            skip = preSkip * OUTPUT_RATE / OPUS_HEAD_RATE;
+            return;
+        }
+        if (index == 1) {
+            // OpusTags
+            return;
+        }
+        decodePacket(packet, packetLength);
+    }
+
+    private void decodePacket(byte[] data, int length) {
+        if (output.length < outputLength + MAX_PACKET_SAMPLES) {
+            output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + MAX_PACKET_SAMPLES));
+        }
+        int samples;
+        try {
+            samples = decoder.decode(data, 0, length, output, outputLength, MAX_PACKET_SAMPLES, false);
+        } catch (OpusException e) {
+            throw new IllegalArgumentException("Opus解码失败: " + e.getMessage());
+        }
+        if (skip > 0) {
+            int dropped = Math.min(skip, samples);
+            System.arraycopy(output, outputLength + dropped, output, outputLength, samples - dropped);
+            skip -= dropped;
+            samples -= dropped;
+        }
+        outputLength += samples;
+    }
+
+    private void ensurePacket(int length) {
+        if (packet.length < length) {
+            packet = Arrays.copyOf(packet, Math.max(packet.length * 2, length));
+        }
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xff)
+                | (data[offset + 1] & 0xff) << 8
+                | (data[offset + 2] & 0xff) << 16
+                | (data[offset + 3] & 0xff) << 24;
+    }
+
+    private static int readInt(ByteBuffer data, int offset) {
+        return (data.get(offset) & 0xff)
+                | (data.get(offset + 1) & 0xff) << 8
+                | (data.get(offset + 2) & 0xff) << 16
+                | (data.get(offset + 3) & 0xff) << 24;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.audio;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 前端上传的音频格式
+ * 由start命令声明，WAV流以文件头中的格式为准，Ogg流按Ogg Opus解码
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PcmFormat {
+
+    /**
+     * 讯飞IAT要求的格式：16kHz、单声道、16位小端
+     */
+    public static final PcmFormat IAT = new PcmFormat(16000, 1, Encoding.S16LE);
+
+    private static final int MIN_SAMPLE_RATE = 8000;
+    private static final int MAX_SAMPLE_RATE = 192000;
+    private static final int MAX_CHANNELS = 8;
+
+    /**
+     * 采样编码
+     */
+    public enum Encoding {
+        /**
+         * 16位有符号小端整数
+         */
+        S16LE(2),
+        /**
+         * 32位小端浮点，取值 [-1, 1]（浏览器AudioBuffer的原生格式）
+         */
+        F32LE(4),
+        /**
+         * Opus压缩音频（Ogg封装或裸包），解码为16位采样，声明的采样率和声道数不影响解码
+         */
+        OPUS(2);
+
+        private final int bytesPerSample;
+
+        Encoding(int bytesPerSample) {
+            this.bytesPerSample = bytesPerSample;
+        }
+
+        public int getBytesPerSample() {
+            return bytesPerSample;
+        }
+    }
+
+    private final int sampleRate;
+    private final int channels;
+    private final Encoding encoding;
+
+    /**
+     * 每个采样帧（所有声道）的字节数
+     */
+    public int getFrameSize() {
+        return channels * encoding.getBytesPerSample();
+    }
+
+    /**
+     * 校验并创建格式，参数不支持时抛出 IllegalArgumentException
+     *
+     * @param encoding s16le、f32le 或 opus，为null时按s16le处理
+     */
+    public static PcmFormat of(int sampleRate, int channels, String encoding) {
+        if (sampleRate < MIN_SAMPLE_RATE || sampleRate > MAX_SAMPLE_RATE) {
+            throw new IllegalArgumentException("不支持的采样率: " + sampleRate);
+        }
+        if (channels < 1 || channels > MAX_CHANNELS) {
+            throw new IllegalArgumentException("不支持的声道数: " + channels);
+        }
+        Encoding parsed;
+        try {
+            parsed = encoding == null ? Encoding.S16LE : Encoding.valueOf(encoding.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的采样编码: " + encoding);
+        }
+        return new PcmFormat(sampleRate, channels, parsed);
+    }
+
+    public boolean isIatFormat() {
+        return sampleRate == IAT.sampleRate && channels == IAT.channels && encoding == IAT.encoding;
+    }
+}
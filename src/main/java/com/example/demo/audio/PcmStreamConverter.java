@@ -0,0 +1,417 @@
+package com.example.demo.audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 流式PCM转换器：把前端上传的任意采样率/声道的PCM或Opus音频转换为讯飞要求的16kHz单声道16位PCM
+ * 转换状态（WAV文件头解析进度、跨包的半个采样帧、重采样滤波器历史）跨调用保留，
+ * 音频可以按任意边界切包发送。输出写入复用的缓冲区，正常流转过程中不分配内存。
+ * 处理流程：解码并混为单声道 short[] -> {@link PolyphaseResampler} 重采样到16kHz -> 可选的 {@link AutomaticGainControl}。
+ * AGC之前的16kHz音频同时保留在 {@link #getPreGainOutput()}，VAD等按绝对电平判断的分析应使用它，
+ * 否则被放大的背景噪声会被当作语音。
+ * Opus音频由 {@link OpusStreamDecoder} 直接解码为16kHz，流以 "OggS" 开头时不论声明的格式都按Ogg Opus处理。
+ * 每个识别会话一个实例，非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class PcmStreamConverter {
+
+    private static final int TARGET_RATE = PcmFormat.IAT.getSampleRate();
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+
+    // 小端读取的块标识
+    private static final int RIFF = 0x46464952;
+    private static final int WAVE = 0x45564157;
+    private static final int FMT = 0x20746d66;
+    private static final int DATA = 0x61746164;
+    private static final int OGG = 0x5367674f;
+    private static final int EBML = 0xa3df451a;
+
+    /**
+     * 未声明格式的Ogg Opus流，解码输出固定为16kHz单声道
+     */
+    private static final PcmFormat OGG_OPUS = new PcmFormat(48000, 1, PcmFormat.Encoding.OPUS);
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private enum State {
+        /**
+         * 等待流的前4个字节以判断是否为WAV
+         */
+        DETECT,
+        /**
+         * 正在解析WAV文件头
+         */
+        HEADER,
+        /**
+         * 音频数据
+         */
+        DATA
+    }
+
+    private final PcmFormat declaredFormat;
+    private final AutomaticGainControl agc;
+
+    private PcmFormat format;
+    private State state;
+    private boolean passthrough;
+
+    /**
+     * 流开头尚未解析完的字节（格式探测和WAV文件头）
+     */
+    private byte[] header = new byte[64];
+    private int headerLength;
+
+    /**
+     * 上一包末尾不足一个采样帧的字节
+     */
+    private byte[] carry = new byte[0];
+    private int carryLength;
+
+    private byte[] scratch = new byte[0];
+    private byte[] output = new byte[0];
+    private int outputLength;
+    // AGC之前的输出，未开启AGC时不使用
+    private byte[] preGainOutput = new byte[0];
+
+    // 单声道采样：samples为输入采样率，resampled为16kHz
+    private short[] samples = new short[0];
+    private short[] resampled = new short[0];
+
+    /**
+     * 输入采样率不是16kHz时使用，采样率不变时跨流复用
+     */
+    private PolyphaseResampler resampler;
+
+    /**
+     * 输入为Opus时使用，跨流复用
+     */
+    private OpusStreamDecoder opus;
+
+    /**
+     * @param format 前端声明的格式，流以WAV文件头开始时以文件头为准
+     */
+    public PcmStreamConverter(PcmFormat format) {
+        this(format, null);
+    }
+
+    /**
+     * @param format    前端声明的格式，流以WAV文件头开始时以文件头为准
+     * @param agcConfig 自动增益参数，为null时不调整音量
+     */
+    public PcmStreamConverter(PcmFormat format, AutomaticGainControl.Config agcConfig) {
+        this.declaredFormat = format;
+        this.agc = agcConfig == null ? null : new AutomaticGainControl(agcConfig);
+        reset();
+    }
+
+    /**
+     * 转换一段输入，结果位于 {@link #getOutput()} 的前 N 个字节
+     * 文件头不合法或格式不支持时抛出 IllegalArgumentException
+     *
+     * @return 输出字节数 N，可能为0（数据不足一个采样或仍在解析文件头）
+     */
+    public int convert(ByteBuffer input) {
+        outputLength = 0;
+
+        // 裸Opus包可能只有1、2个字节，不能缓存到4个字节再探测
+        if (state == State.DETECT && declaredFormat.getEncoding() == PcmFormat.Encoding.OPUS) {
+            state = State.DATA;
+            applyFormat(declaredFormat);
+        }
+
+        if (state != State.DATA) {
+            appendHeader(input);
+            if (state == State.DETECT) {
+                if (headerLength < 4) {
+                    return 0;
+                }
+                int magic = readInt(header, 0);
+                if (magic == EBML) {
+                    throw new IllegalArgumentException("不支持WebM封装，请上传Ogg Opus、裸Opus包、WAV或PCM");
+                }
+                if (magic == RIFF) {
+                    state = State.HEADER;
+                } else if (magic == OGG) {
+                    state = State.DATA;
+                    applyFormat(OGG_OPUS);
+                } else {
+                    state = State.DATA;
+                    applyFormat(declaredFormat);
+                }
+            }
+
+            int dataOffset = 0;
+            if (state == State.HEADER) {
+                dataOffset = parseWavHeader();
+                if (dataOffset < 0) {
+                    if (headerLength > MAX_HEADER_SIZE) {
+                        throw new IllegalArgumentException("WAV文件头过大或缺少data块");
+                    }
+                    return 0;
+                }
+                state = State.DATA;
+            }
+
+            // 探测阶段缓存的字节是音频的开头
+            int length = headerLength - dataOffset;
+            headerLength = 0;
+            decode(ByteBuffer.wrap(header, dataOffset, length));
+            return outputLength;
+        }
+
+        decode(input);
+        return outputLength;
+    }
+
+    public byte[] getOutput() {
+        return output;
+    }
+
+    /**
+     * AGC之前的输出，长度与 {@link #getOutput()} 相同；未开启AGC时就是 {@link #getOutput()}
+     */
+    public byte[] getPreGainOutput() {
+        return agc != null ? preGainOutput : output;
+    }
+
+    /**
+     * 当前生效的输入格式，WAV文件头解析完成前为前端声明的格式
+     */
+    public PcmFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * 丢弃所有流状态，下一次输入视为新流的开头（AGC增益保留，同一会话的音量不会每句重新适应）
+     */
+    public void reset() {
+        state = State.DETECT;
+        headerLength = 0;
+        applyFormat(declaredFormat);
+    }
+
+    private void applyFormat(PcmFormat newFormat) {
+        format = newFormat;
+        passthrough = newFormat.isIatFormat() && agc == null;
+        if (newFormat.getEncoding() == PcmFormat.Encoding.OPUS) {
+            resampler = null;
+            if (opus == null) {
+                opus = new OpusStreamDecoder();
+            } else {
+                opus.reset();
+            }
+        } else if (newFormat.getSampleRate() == TARGET_RATE) {
+            resampler = null;
+        } else if (resampler != null && resampler.getInputRate() == newFormat.getSampleRate()) {
+            resampler.reset();
+        } else {
+            resampler = new PolyphaseResampler(newFormat.getSampleRate(), TARGET_RATE);
+        }
+        carryLength = 0;
+        if (carry.length < newFormat.getFrameSize()) {
+            carry = new byte[newFormat.getFrameSize()];
+        }
+    }
+
+    private void appendHeader(ByteBuffer input) {
+        int length = input.remaining();
+        if (header.length < headerLength + length) {
+            byte[] grown = new byte[Math.max(header.length * 2, headerLength + length)];
+            System.arraycopy(header, 0, grown, 0, headerLength);
+            header = grown;
+        }
+        input.get(header, headerLength, length);
+        headerLength += length;
+    }
+
+    /**
+     * 解析缓存中的WAV文件头
+     *
+     * @return data块内容的起始位置，文件头尚不完整时返回-1
+     */
+    private int parseWavHeader() {
+        if (headerLength < 12) {
+            return -1;
+        }
+        if (readInt(header, 8) != WAVE) {
+            throw new IllegalArgumentException("不是WAVE格式的RIFF文件");
+        }
+
+        PcmFormat wavFormat = null;
+        int position = 12;
+        while (position + 8 <= headerLength) {
+            int id = readInt(header, position);
+            long size = readInt(header, position + 4) & 0xFFFFFFFFL;
+            int body = position + 8;
+
+            // 流式WAV的data块长度通常未知（0或0xFFFFFFFF），之后的字节都按音频处理
+            if (id == DATA) {
+                if (wavFormat == null) {
+                    throw new IllegalArgumentException("WAV文件缺少fmt块");
+                }
+                applyFormat(wavFormat);
+                return body;
+            }
+            if (body + size > headerLength) {
+                return -1;
+            }
+            if (id == FMT) {
+                wavFormat = parseFmt(body, (int) size);
+            }
+            position = body + (int) size + (int) (size & 1);
+        }
+        return -1;
+    }
+
+    private PcmFormat parseFmt(int offset, int size) {
+        if (size < 16) {
+            throw new IllegalArgumentException("WAV fmt块长度无效: " + size);
+        }
+        int formatTag = readShort(header, offset);
+        int channels = readShort(header, offset + 2);
+        int sampleRate = readInt(header, offset + 4);
+        int bitsPerSample = readShort(header, offset + 14);
+        if (formatTag == WAVE_FORMAT_EXTENSIBLE && size >= 26) {
+            formatTag = readShort(header, offset + 24);
+        }
+
+        String encoding;
+        if (formatTag == WAVE_FORMAT_PCM && bitsPerSample == 16) {
+            encoding = "s16le";
+        } else if (formatTag == WAVE_FORMAT_IEEE_FLOAT && bitsPerSample == 32) {
+            encoding = "f32le";
+        } else {
+            throw new IllegalArgumentException("不支持的WAV编码: format=" + formatTag + ", bits=" + bitsPerSample);
+        }
+        return PcmFormat.of(sampleRate, channels, encoding);
+    }
+
+    private void decode(ByteBuffer input) {
+        if (format.getEncoding() == PcmFormat.Encoding.OPUS) {
+            int count = opus.decode(input);
+            if (output.length < count * 2) {
+                output = new byte[count * 2];
+            }
+            writeMono(opus.getOutput(), count);
+            return;
+        }
+
+        int frameSize = format.getFrameSize();
+        int available = carryLength + input.remaining();
+        ensureOutput(available / frameSize);
+
+        if (carryLength > 0) {
+            int n = Math.min(frameSize - carryLength, input.remaining());
+            input.get(carry, carryLength, n);
+            carryLength += n;
+            if (carryLength < frameSize) {
+                return;
+            }
+            processFrames(carry, 0, 1);
+            carryLength = 0;
+        }
+
+        int frames = input.remaining() / frameSize;
+        if (frames > 0) {
+            int length = frames * frameSize;
+            if (passthrough) {
+                input.get(output, outputLength, length);
+                outputLength += length;
+            } else {
+                if (scratch.length < length) {
+                    scratch = new byte[length];
+                }
+                input.get(scratch, 0, length);
+                processFrames(scratch, 0, frames);
+            }
+        }
+
+        carryLength = input.remaining();
+        input.get(carry, 0, carryLength);
+    }
+
+    private void processFrames(byte[] data, int offset, int frames) {
+        if (passthrough) {
+            System.arraycopy(data, offset, output, outputLength, frames * 2);
+            outputLength += frames * 2;
+            return;
+        }
+
+        if (samples.length < frames) {
+            samples = new short[frames];
+        }
+        int channels = format.getChannels();
+        int bytesPerSample = format.getEncoding().getBytesPerSample();
+        boolean isFloat = format.getEncoding() == PcmFormat.Encoding.F32LE;
+        int position = offset;
+        for (int frame = 0; frame < frames; frame++) {
+            // 多声道取平均混为单声道
+            double sum = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += isFloat
+                        ? Float.intBitsToFloat(readInt(data, position)) * 32768.0
+                        : (short) readShort(data, position);
+                position += bytesPerSample;
+            }
+            samples[frame] = clamp(sum / channels);
+        }
+
+        short[] mono = samples;
+        int count = frames;
+        if (resampler != null) {
+            if (resampled.length < resampler.maxOutput(frames)) {
+                resampled = new short[resampler.maxOutput(frames)];
+            }
+            count = resampler.process(samples, 0, frames, resampled, 0);
+            mono = resampled;
+        }
+        writeMono(mono, count);
+    }
+
+    /**
+     * 16kHz单声道采样经AGC后写入输出缓冲，开启AGC时原始采样另存一份
+     */
+    private void writeMono(short[] mono, int count) {
+        if (agc != null) {
+            if (preGainOutput.length < output.length) {
+                preGainOutput = new byte[output.length];
+            }
+            for (int i = 0, p = outputLength; i < count; i++) {
+                preGainOutput[p++] = (byte) mono[i];
+                preGainOutput[p++] = (byte) (mono[i] >> 8);
+            }
+            agc.process(mono, 0, count);
+        }
+        for (int i = 0; i < count; i++) {
+            output[outputLength++] = (byte) mono[i];
+            output[outputLength++] = (byte) (mono[i] >> 8);
+        }
+    }
+
+    private static short clamp(double value) {
+        long rounded = Math.round(value);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded));
+    }
+
+    private void ensureOutput(int inputFrames) {
+        int required = (resampler == null ? inputFrames + 1 : resampler.maxOutput(inputFrames + 1)) * 2;
+        if (output.length < required) {
+            output = new byte[required];
+        }
+    }
+
+    private static int readShort(byte[] data, int offset) {
+        return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xff)
+                | (data[offset + 1] & 0xff) << 8
+                | (data[offset + 2] & 0xff) << 16
+                | (data[offset + 3] & 0xff) << 24;
+    }
+}
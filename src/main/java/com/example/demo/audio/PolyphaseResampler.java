@@ -0,0 +1,196 @@
+package com.example.demo.audio;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流式多相FIR重采样器：按有理数比 L/M 把单声道16位采样转换到目标采样率
+ * 原型滤波器为Kaiser窗sinc低通，截止频率取输入、输出奈奎斯特频率中较低者，降采样时同时起抗混叠作用。
+ * 滤波器系数按 (L, M) 缓存并在会话间共享，每个实例只持有预分配的输入历史和相位，
+ * 每个输出采样的计算量固定，输入可以按任意边界分批送入，运行中不分配内存。
+ * 每个识别会话一个实例，非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class PolyphaseResampler {
+
+    /**
+     * 低通滤波器单侧的过零点数（按较低的采样率计），越大过渡带越窄
+     */
+    private static final int ZERO_CROSSINGS = 16;
+
+    /**
+     * 截止频率相对奈奎斯特频率的比例，留出过渡带
+     */
+    private static final double CUTOFF = 0.92;
+
+    /**
+     * Kaiser窗参数，阻带衰减约80dB
+     */
+    private static final double KAISER_BETA = 8.0;
+
+    /**
+     * 缓存的滤波器上限，采样率由前端声明，不常见的采样率不再缓存，避免占用内存无限增长
+     */
+    private static final int MAX_CACHED_FILTERS = 16;
+
+    private static final Map<Long, float[]> FILTERS = new ConcurrentHashMap<>();
+
+    private final int inputRate;
+    private final int upFactor;
+    private final int downFactor;
+    private final int tapsPerPhase;
+
+    /**
+     * 按相位重排的系数：第 p 个相位的系数位于 [p * tapsPerPhase, (p + 1) * tapsPerPhase)
+     */
+    private final float[] coefficients;
+
+    /**
+     * 最近 tapsPerPhase 个输入采样，每个采样同时写入 i 和 i + tapsPerPhase，卷积时不用取模
+     */
+    private final float[] history;
+    private int historyPosition;
+
+    /**
+     * 下一个输出采样在最近一个输入采样之后的相位（以 1/L 个输入采样为单位）
+     */
+    private int phase;
+
+    public PolyphaseResampler(int inputRate, int outputRate) {
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException("sample rates must be positive");
+        }
+        this.inputRate = inputRate;
+        int gcd = gcd(inputRate, outputRate);
+        this.upFactor = outputRate / gcd;
+        this.downFactor = inputRate / gcd;
+        this.tapsPerPhase = 2 * ZERO_CROSSINGS * ((Math.max(upFactor, downFactor) + upFactor - 1) / upFactor);
+        long key = (long) upFactor << 32 | downFactor;
+        float[] cached = FILTERS.get(key);
+        if (cached == null) {
+            cached = designFilter(upFactor, downFactor, tapsPerPhase);
+            if (FILTERS.size() < MAX_CACHED_FILTERS) {
+                FILTERS.putIfAbsent(key, cached);
+            }
+        }
+        this.coefficients = cached;
+        this.history = new float[tapsPerPhase * 2];
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    /**
+     * 输入 length 个采样最多产生的输出采样数，用于预分配输出缓冲
+     */
+    public int maxOutput(int length) {
+        return (int) (((long) length * upFactor + phase) / downFactor) + 1;
+    }
+
+    /**
+     * 重采样一批输入，输出写入 output 的 outputOffset 处，空间至少为 {@link #maxOutput(int)}
+     *
+     * @return 输出的采样数
+     */
+    public int process(short[] input, int offset, int length, short[] output, int outputOffset) {
+        int written = 0;
+        for (int i = offset; i < offset + length; i++) {
+            push(input[i]);
+            while (phase < upFactor) {
+                output[outputOffset + written++] = clamp(convolve(phase));
+                phase += downFactor;
+            }
+            phase -= upFactor;
+        }
+        return written;
+    }
+
+    /**
+     * 丢弃历史，下一次输入视为新流的开头
+     */
+    public void reset() {
+        Arrays.fill(history, 0);
+        historyPosition = 0;
+        phase = 0;
+    }
+
+    private void push(short sample) {
+        historyPosition = historyPosition == 0 ? tapsPerPhase - 1 : historyPosition - 1;
+        history[historyPosition] = sample;
+        history[historyPosition + tapsPerPhase] = sample;
+    }
+
+    /**
+     * y = Σ h[p + kL] · x[n - k]，history[historyPosition + k] 为 x[n - k]
+     */
+    private float convolve(int p) {
+        int base = p * tapsPerPhase;
+        float sum = 0;
+        for (int k = 0; k < tapsPerPhase; k++) {
+            sum += coefficients[base + k] * history[historyPosition + k];
+        }
+        return sum;
+    }
+
+    private static short clamp(float value) {
+        int rounded = Math.round(value);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded));
+    }
+
+    /**
+     * 设计长度为 L * tapsPerPhase 的原型低通滤波器（工作在 L 倍上采样率），并按相位重排
+     */
+    private static float[] designFilter(int up, int down, int tapsPerPhase) {
+        int length = up * tapsPerPhase;
+        // 以上采样率为单位的截止频率（周期/采样）
+        double cutoff = CUTOFF * 0.5 / Math.max(up, down);
+        double center = (length - 1) / 2.0;
+        double[] prototype = new double[length];
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double t = i - center;
+            double sinc = t == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
+            double ratio = t / (center + 1);
+            prototype[i] = sinc * bessel0(KAISER_BETA * Math.sqrt(1 - ratio * ratio)) / bessel0(KAISER_BETA);
+            sum += prototype[i];
+        }
+
+        // 每个相位的直流增益为1：原型滤波器总和归一化为 L
+        float[] polyphase = new float[length];
+        for (int p = 0; p < up; p++) {
+            for (int k = 0; k < tapsPerPhase; k++) {
+                polyphase[p * tapsPerPhase + k] = (float) (prototype[p + k * up] * up / sum);
+            }
+        }
+        return polyphase;
+    }
+
+    /**
+     * 第一类零阶修正贝塞尔函数
+     */
+    private static double bessel0(double x) {
+        double sum = 1;
+        double term = 1;
+        for (int k = 1; k < 50; k++) {
+            term *= (x / (2 * k)) * (x / (2 * k));
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
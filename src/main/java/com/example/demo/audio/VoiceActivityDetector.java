@@ -0,0 +1,216 @@
+package com.example.demo.audio;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * 基于短时能量和过零率的语音活动检测（VAD）
+ * 直接在16位小端PCM上按窗口计算，不分配内存。能量阈值取配置值和自适应噪声底+信噪比中的较大者，
+ * 能量略低但过零率高的窗口（清辅音）也视为语音。
+ * 噪声底取最近约1.6秒内平滑后窗口能量的最小值（最小值统计），语音期间也持续更新：
+ * 嘈杂环境中过零率高的稳定噪声即使起初被判为清辅音，噪声底也会在1.6秒内升到噪声电平，不会锁住。
+ * 每个识别会话一个实例，非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class VoiceActivityDetector {
+
+    /**
+     * 对一帧音频的处理决定
+     */
+    public enum Decision {
+        /**
+         * 静音，不上传
+         */
+        SILENCE,
+        /**
+         * 由静音转为语音，应先补发前导音频再上传当前帧
+         */
+        SPEECH_START,
+        /**
+         * 语音（或句中短暂停顿），上传
+         */
+        SPEECH,
+        /**
+         * 语音后持续静音超过结束窗口，应结束本次上游识别
+         */
+        END_OF_SPEECH
+    }
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int WINDOW_SAMPLES = SAMPLE_RATE / 50; // 20ms
+    private static final double INITIAL_NOISE_FLOOR_DB = -90;
+    // 噪声底取 FLOOR_BLOCKS 个块（每块 FLOOR_BLOCK_WINDOWS 个窗口，400ms）的最小值
+    private static final int FLOOR_BLOCK_WINDOWS = 20;
+    private static final int FLOOR_BLOCKS = 4;
+    // 求最小值前对窗口能量做指数平滑，减小噪声自身的起伏
+    private static final double FLOOR_SMOOTHING = 0.3;
+    // 平滑后的最小值仍略低于噪声的平均电平
+    private static final double FLOOR_BIAS_DB = 1.5;
+
+    private final Config config;
+
+    private double noiseFloorDb = INITIAL_NOISE_FLOOR_DB;
+    private double smoothedDb = INITIAL_NOISE_FLOOR_DB;
+    // 已结束的块的最小能量（环形），当前块的最小能量和窗口数
+    private final double[] blockMinima = new double[FLOOR_BLOCKS];
+    private int blockIndex;
+    private double blockMinimum = Double.MAX_VALUE;
+    private int blockWindows;
+    private boolean inUtterance;
+    private boolean sending;
+    private long trailingSilenceMs;
+
+    public VoiceActivityDetector(Config config) {
+        this.config = config;
+        Arrays.fill(blockMinima, INITIAL_NOISE_FLOOR_DB);
+    }
+
+    /**
+     * 处理一帧16位小端单声道PCM
+     */
+    public Decision process(byte[] pcm, int offset, int length) {
+        long durationMs = (long) (length / 2) * 1000 / SAMPLE_RATE;
+        boolean speech = containsSpeech(pcm, offset, length);
+
+        if (speech) {
+            inUtterance = true;
+            trailingSilenceMs = 0;
+            if (!sending) {
+                sending = true;
+                return Decision.SPEECH_START;
+            }
+            return Decision.SPEECH;
+        }
+
+        if (!inUtterance) {
+            return Decision.SILENCE;
+        }
+
+        trailingSilenceMs += durationMs;
+        if (trailingSilenceMs >= config.getTrailingSilenceMs()) {
+            reset();
+            return Decision.END_OF_SPEECH;
+        }
+        // 句中短暂停顿照常上传，更长的停顿被压缩掉
+        if (sending && trailingSilenceMs <= config.getHangoverMs()) {
+            return Decision.SPEECH;
+        }
+        sending = false;
+        return Decision.SILENCE;
+    }
+
+    /**
+     * 句中语音之后已持续的静音时长，不在句中时为0
+     */
+    public long getTrailingSilenceMs() {
+        return inUtterance ? trailingSilenceMs : 0;
+    }
+
+    /**
+     * 结束当前句子，噪声底估计保留
+     */
+    public void reset() {
+        inUtterance = false;
+        sending = false;
+        trailingSilenceMs = 0;
+    }
+
+    /**
+     * 帧内任一20ms窗口判定为语音即认为该帧包含语音
+     */
+    private boolean containsSpeech(byte[] pcm, int offset, int length) {
+        int samples = length / 2;
+        boolean speech = false;
+        for (int start = 0; start < samples; start += WINDOW_SAMPLES) {
+            int count = Math.min(WINDOW_SAMPLES, samples - start);
+            if (count < WINDOW_SAMPLES / 2 && start > 0) {
+                break;
+            }
+            if (isSpeechWindow(pcm, offset + start * 2, count)) {
+                speech = true;
+            }
+        }
+        return speech;
+    }
+
+    private boolean isSpeechWindow(byte[] pcm, int offset, int samples) {
+        double energy = 0;
+        int crossings = 0;
+        int previous = 0;
+        for (int i = 0; i < samples; i++) {
+            int p = offset + i * 2;
+            int sample = (short) ((pcm[p] & 0xff) | (pcm[p + 1] << 8));
+            energy += (double) sample * sample;
+            if (i > 0 && (sample >= 0) != (previous >= 0)) {
+                crossings++;
+            }
+            previous = sample;
+        }
+
+        double rms = Math.sqrt(energy / samples);
+        double db = rms > 0 ? 20 * Math.log10(rms / 32768.0) : -96;
+        double zcr = samples > 1 ? (double) crossings / (samples - 1) : 0;
+
+        double threshold = Math.max(config.getEnergyThresholdDb(), noiseFloorDb + config.getSnrDb());
+        boolean speech = db >= threshold
+                || (db >= threshold - config.getWeakSpeechMarginDb() && zcr >= config.getZcrThreshold());
+
+        trackNoiseFloor(db);
+        return speech;
+    }
+
+    /**
+     * 每个窗口都更新噪声底：窗口更安静时立即降低，升高要等更安静的窗口移出最近1.6秒
+     */
+    private void trackNoiseFloor(double db) {
+        smoothedDb += FLOOR_SMOOTHING * (db - smoothedDb);
+        blockMinimum = Math.min(blockMinimum, smoothedDb);
+        if (++blockWindows == FLOOR_BLOCK_WINDOWS) {
+            blockMinima[blockIndex] = blockMinimum;
+            blockIndex = (blockIndex + 1) % FLOOR_BLOCKS;
+            blockMinimum = Double.MAX_VALUE;
+            blockWindows = 0;
+        }
+        double floor = blockMinimum;
+        for (double minimum : blockMinima) {
+            floor = Math.min(floor, minimum);
+        }
+        noiseFloorDb = floor + FLOOR_BIAS_DB;
+    }
+
+    /**
+     * VAD参数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Config {
+        /**
+         * 语音能量下限（dBFS）
+         */
+        private final double energyThresholdDb;
+        /**
+         * 相对噪声底的最小信噪比（dB）
+         */
+        private final double snrDb;
+        /**
+         * 高过零率窗口允许低于能量阈值的幅度（dB）
+         */
+        private final double weakSpeechMarginDb;
+        /**
+         * 清辅音过零率下限（每采样）
+         */
+        private final double zcrThreshold;
+        /**
+         * 语音后仍继续上传的静音时长（毫秒）
+         */
+        private final long hangoverMs;
+        /**
+         * 语音后持续静音多久自动结束本次识别（毫秒）
+         */
+        private final long trailingSilenceMs;
+    }
+}
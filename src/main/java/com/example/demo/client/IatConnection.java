@@ -0,0 +1,357 @@
+package com.example.demo.client;
+
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.engine.RecognitionStream;
+import com.example.demo.metrics.SpeechMetrics;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 讯飞语音识别上游连接
+ * 一个连接对应一次上游识别（第一帧到最后一帧），可以预先建立并放入连接池，
+ * 使用时再绑定到识别会话的结果回调。
+ * 握手成功后连接在收到最终结果或错误码之前中断（网络错误、上游异常关闭）时通知会话的失败回调，
+ * 由会话决定是否重连续传。
+ * 作为 {@link com.example.demo.engine.XfyunRecognitionEngine} 的识别流，帧编码器在绑定时从客户端取得
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+public class IatConnection implements RecognitionStream {
+
+    private final IatWebSocketClient client;
+    private final IatResultDecoder resultDecoder = new IatResultDecoder();
+    private final CompletableFuture<IatConnection> opened = new CompletableFuture<>();
+    private final long createdAt = System.currentTimeMillis();
+
+    private volatile WebSocket webSocket;
+    private volatile Consumer<RecognitionResult> resultListener;
+    private volatile Consumer<Throwable> failureListener;
+    private volatile IatFrameEncoder frameEncoder;
+    private volatile boolean closed;
+    // 已收到最终结果或错误码，或已主动断开，之后的关闭不算中断
+    private volatile boolean completed;
+
+    // 延迟统计（System.nanoTime），0表示未设置
+    private volatile long audioInAt;
+    private volatile long lastFrameAt;
+    private volatile boolean partialReceived;
+
+    IatConnection(IatWebSocketClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 发起WebSocket握手，握手完成时 {@link #opened()} 完成
+     */
+    void open() {
+        // 检查是否为模拟模式
+        if (client.isMockMode()) {
+            log.debug("运行在模拟模式，跳过真实WebSocket连接");
+            opened.complete(this);
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            webSocket = client.newWebSocket(new WebSocketListener() {
+                @Override
+                public void onOpen(WebSocket webSocket, Response response) {
+                    log.info("WebSocket connected to XunFei IAT service in {} ms", System.currentTimeMillis() - start);
+                    opened.complete(IatConnection.this);
+                }
+
+                @Override
+                public void onMessage(WebSocket webSocket, String text) {
+                    handleMessage(text);
+                }
+
+                @Override
+                public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                    closed = true;
+                    // 握手阶段的失败由opened()通知，握手之后的失败才是识别中断
+                    if (opened.completeExceptionally(t)) {
+                        client.getMetrics().recordUpstreamError("connect");
+                        log.error("WebSocket connection failed", t);
+                    } else {
+                        log.warn("WebSocket connection lost: {}", t.toString());
+                        interrupted(t);
+                    }
+                }
+
+                @Override
+                public void onClosing(WebSocket webSocket, int code, String reason) {
+                    // 上游主动关闭：回应关闭帧，未完成的识别立即进入重连
+                    closed = true;
+                    webSocket.close(1000, null);
+                    if (!completed) {
+                        interrupted(new IOException("upstream closed before final result: " + code + " " + reason));
+                    }
+                }
+
+                @Override
+                public void onClosed(WebSocket webSocket, int code, String reason) {
+                    closed = true;
+                    log.info("WebSocket connection closed: {} - {}", code, reason);
+                    if (!completed) {
+                        interrupted(new IOException("upstream closed before final result: " + code + " " + reason));
+                    }
+                }
+            });
+
+        } catch (Exception e) {
+            closed = true;
+            client.getMetrics().recordUpstreamError("connect");
+            log.error("Failed to connect to XunFei IAT service", e);
+            opened.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 握手完成时完成的Future，握手失败时异常完成
+     */
+    @Override
+    public CompletableFuture<IatConnection> opened() {
+        return opened;
+    }
+
+    /**
+     * 绑定到识别会话
+     *
+     * @param resultListener 接收该连接识别结果的回调
+     * @param frameEncoder   会话复用的音频帧编码器
+     */
+    public void bind(Consumer<RecognitionResult> resultListener, IatFrameEncoder frameEncoder) {
+        bind(resultListener, null, frameEncoder);
+    }
+
+    /**
+     * 绑定到识别会话，使用新的帧编码器
+     */
+    @Override
+    public void bind(Consumer<RecognitionResult> resultListener, Consumer<Throwable> failureListener) {
+        bind(resultListener, failureListener, client.newFrameEncoder());
+    }
+
+    /**
+     * 绑定到识别会话，并接收握手之后的连接中断
+     *
+     * @param failureListener 连接在最终结果之前中断时调用（OkHttp线程），最多调用一次
+     */
+    public void bind(Consumer<RecognitionResult> resultListener, Consumer<Throwable> failureListener,
+                     IatFrameEncoder frameEncoder) {
+        this.frameEncoder = frameEncoder;
+        this.failureListener = failureListener;
+        this.resultListener = resultListener;
+    }
+
+    /**
+     * 记录本次识别第一帧音频进入服务的时间，用于统计首个中间结果的延迟
+     *
+     * @param nanoTime System.nanoTime() 时间戳
+     */
+    @Override
+    public void markAudioIn(long nanoTime) {
+        this.audioInAt = nanoTime;
+    }
+
+    /**
+     * 连接是否已握手成功且仍可发送
+     */
+    boolean isReady() {
+        return !closed && opened.isDone() && !opened.isCompletedExceptionally();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * OkHttp中尚未发出的字节数，用于发送端背压
+     */
+    @Override
+    public long queueSize() {
+        WebSocket socket = webSocket;
+        return socket != null ? socket.queueSize() : 0;
+    }
+
+    /**
+     * 处理来自讯飞服务器的消息
+     */
+    void handleMessage(String message) {
+        Consumer<RecognitionResult> listener = resultListener;
+        if (listener == null) {
+            log.warn("收到未绑定连接的消息，已忽略: {}", message);
+            return;
+        }
+
+        try {
+            RecognitionResult result = resultDecoder.decode(message);
+            if (result == null) {
+                return;
+            }
+
+            if (result.isFinal() || result.getError() != null) {
+                completed = true;
+            }
+            if (result.getError() != null) {
+                client.getMetrics().recordUpstreamError(String.valueOf(result.getCode()));
+                log.error("XunFei IAT error: {} - {}", result.getCode(), result.getError());
+            } else {
+                recordLatency(result);
+            }
+
+            listener.accept(result);
+
+            // 最终结果到达后本次识别结束，释放连接
+            if (result.isFinal()) {
+                disconnect();
+            }
+
+        } catch (Exception e) {
+            log.error("Failed to parse recognition result", e);
+        }
+    }
+
+    private void recordLatency(RecognitionResult result) {
+        long now = System.nanoTime();
+        SpeechMetrics metrics = client.getMetrics();
+        if (!partialReceived && audioInAt != 0 && result.getText() != null && !result.getText().isEmpty()) {
+            partialReceived = true;
+            metrics.getFirstPartialLatency().record(now - audioInAt, TimeUnit.NANOSECONDS);
+        }
+        if (result.isFinal() && lastFrameAt != 0) {
+            metrics.getFinalLatency().record(now - lastFrameAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 发送第一帧音频数据
+     * 连接尚在握手时OkHttp会将消息排队，握手完成后按顺序发出，无需等待
+     */
+    @Override
+    public void sendFirstFrame(byte[] audioData, int length) {
+        // 检查是否为模拟模式
+        if (client.isMockMode()) {
+            log.info("模拟模式：发送第一帧音频数据，长度: {}", length);
+            client.simulateRecognition(this);
+            return;
+        }
+
+        WebSocket socket = webSocket;
+        if (socket == null || closed) {
+            client.getMetrics().recordSendFailure("first");
+            log.error("WebSocket connection not established");
+            return;
+        }
+
+        log.info("Sending first frame, length: {}", length);
+
+        boolean sent = socket.send(frameEncoder.encodeFirstFrame(audioData, 0, length));
+        if (sent) {
+            client.getMetrics().getBytesOut().increment(length);
+        } else {
+            client.getMetrics().recordSendFailure("first");
+            log.error("Failed to send first frame");
+        }
+    }
+
+    /**
+     * 发送继续帧音频数据
+     */
+    @Override
+    public void sendContinueFrame(byte[] audioData, int length) {
+        // 检查是否为模拟模式
+        if (client.isMockMode()) {
+            log.debug("模拟模式：发送继续帧音频数据，长度: {}", length);
+            return; // 模拟模式下不需要继续发送
+        }
+
+        WebSocket socket = webSocket;
+        if (socket == null || closed) {
+            client.getMetrics().recordSendFailure("continue");
+            log.warn("WebSocket not connected, skipping continue frame");
+            return;
+        }
+
+        log.debug("Sending continue frame, length: {}", length);
+
+        boolean sent = socket.send(frameEncoder.encodeContinueFrame(audioData, 0, length));
+        if (sent) {
+            client.getMetrics().getBytesOut().increment(length);
+        } else {
+            client.getMetrics().recordSendFailure("continue");
+            log.error("Failed to send continue frame");
+        }
+    }
+
+    /**
+     * 发送最后一帧（结束标志）
+     * 连接保持打开直到最终结果返回，由 {@link #handleMessage(String)} 释放
+     */
+    @Override
+    public void sendLastFrame() {
+        lastFrameAt = System.nanoTime();
+
+        // 检查是否为模拟模式
+        if (client.isMockMode()) {
+            log.info("模拟模式：发送最后一帧");
+            return;
+        }
+
+        WebSocket socket = webSocket;
+        if (socket == null || closed) {
+            client.getMetrics().recordSendFailure("last");
+            log.warn("WebSocket not connected, skipping last frame");
+            return;
+        }
+
+        log.info("Sending last frame");
+
+        boolean sent = socket.send(frameEncoder.encodeLastFrame());
+        if (!sent) {
+            client.getMetrics().recordSendFailure("last");
+            log.error("Failed to send last frame");
+        }
+    }
+
+    /**
+     * 已握手的连接在识别完成前中断；未绑定的预热连接被上游断开不算中断，由连接池淘汰
+     */
+    private void interrupted(Throwable cause) {
+        if (completed || resultListener == null) {
+            return;
+        }
+        completed = true;
+        client.getMetrics().recordUpstreamError("reset");
+        Consumer<Throwable> listener = failureListener;
+        if (listener != null) {
+            listener.accept(cause);
+        }
+    }
+
+    /**
+     * 断开WebSocket连接
+     */
+    @Override
+    public void disconnect() {
+        completed = true;
+        closed = true;
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            webSocket = null;
+            socket.close(1000, "Normal closure");
+            log.info("WebSocket disconnected");
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.demo.client;
+
+import com.example.demo.config.SpeechExecutorConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 讯飞上游连接池
+ * 预先建立并完成鉴权握手的WebSocket连接，新的识别可以立即开始推流。
+ * 讯飞在连接空闲一段时间后会主动断开，因此空闲连接在超过 max-idle-ms 后会被替换为新签名的连接
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class IatConnectionPool {
+
+    private static final long MAX_BACKOFF_MS = 30000;
+
+    private final IatWebSocketClient webSocketClient;
+
+    @Value("${xfyun.iat.pool.size:4}")
+    private int poolSize;
+
+    @Value("${xfyun.iat.pool.max-idle-ms:8000}")
+    private long maxIdleMs;
+
+    @Value("${xfyun.iat.mock-mode:false}")
+    private boolean mockMode;
+
+    private final ConcurrentLinkedDeque<IatConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger warming = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    // 同一时刻只有一个线程补充连接，否则并发的补充会各自通过数量检查而超出池大小
+    private final AtomicBoolean replenishing = new AtomicBoolean();
+    private volatile long retryAt;
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> refreshTask;
+
+    public IatConnectionPool(IatWebSocketClient webSocketClient,
+                             @Qualifier(SpeechExecutorConfig.SPEECH_SCHEDULER) ScheduledExecutorService scheduler) {
+        this.webSocketClient = webSocketClient;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (mockMode || poolSize <= 0) {
+            log.info("上游连接池未启用 (mockMode={}, size={})", mockMode, poolSize);
+            return;
+        }
+
+        refreshTask = scheduler.scheduleWithFixedDelay(this::refresh, 0, 1, TimeUnit.SECONDS);
+        log.info("上游连接池已启动，预热连接数: {}, 最大空闲: {} ms", poolSize, maxIdleMs);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        IatConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * 获取一个上游连接
+     * 优先返回已握手完成的预热连接；池为空时新建连接，握手期间发送的帧会由OkHttp排队
+     */
+    public IatConnection acquire() {
+        IatConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (connection.isReady() && !isExpired(connection)) {
+                log.debug("使用预热连接，空闲池剩余: {}", idle.size());
+                replenishAsync();
+                return connection;
+            }
+            connection.disconnect();
+        }
+
+        log.debug("没有可用的预热连接，新建上游连接");
+        replenishAsync();
+        return webSocketClient.openConnection();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    private void replenishAsync() {
+        if (refreshTask != null) {
+            scheduler.execute(this::replenish);
+        }
+    }
+
+    /**
+     * 淘汰过期或已断开的空闲连接，并补足预热连接
+     */
+    private void refresh() {
+        try {
+            Iterator<IatConnection> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                IatConnection connection = iterator.next();
+                if (connection.isClosed() || isExpired(connection)) {
+                    iterator.remove();
+                    connection.disconnect();
+                }
+            }
+            replenish();
+        } catch (Exception e) {
+            log.error("刷新上游连接池失败", e);
+        }
+    }
+
+    private void replenish() {
+        if (!replenishing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // 上游不可达时按指数退避重试，避免每秒反复握手。
+            // 每建一个连接都重新检查：同步失败（如鉴权参数无效）时回调在本线程执行，warming 立即减回，
+            // 不检查会无限循环
+            while (idle.size() + warming.get() < poolSize && System.currentTimeMillis() >= retryAt) {
+                openWarmConnection();
+            }
+        } finally {
+            replenishing.set(false);
+        }
+    }
+
+    /**
+     * 建立一个预热连接，握手完成后放入空闲池，失败时设置退避
+     */
+    private void openWarmConnection() {
+        warming.incrementAndGet();
+        IatConnection connection = webSocketClient.openConnection();
+        connection.opened().whenComplete((c, ex) -> {
+            warming.decrementAndGet();
+            if (ex == null) {
+                consecutiveFailures.set(0);
+                idle.offerLast(c);
+            } else {
+                int failures = consecutiveFailures.incrementAndGet();
+                long backoffMs = Math.min(MAX_BACKOFF_MS, 1000L << Math.min(failures, 5));
+                retryAt = System.currentTimeMillis() + backoffMs;
+                log.warn("预热上游连接失败，{} ms 后重试: {}", backoffMs, ex.getMessage());
+            }
+        });
+    }
+
+    private boolean isExpired(IatConnection connection) {
+        return System.currentTimeMillis() - connection.getCreatedAt() > maxIdleMs;
+    }
+}
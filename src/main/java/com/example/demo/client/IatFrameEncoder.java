@@ -0,0 +1,129 @@
+package com.example.demo.client;
+
+import com.example.demo.dto.IatRequest;
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 讯飞上游音频帧编码器
+ * 帧的JSON外壳是固定的，只有status和audio字段变化，因此直接把预先生成的外壳和Base64音频
+ * 写入可复用的缓冲区，不再为每一帧构建JsonObject树和中间Base64字符串。
+ * 每个识别会话持有一个实例，非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class IatFrameEncoder {
+
+    private static final byte[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String AUDIO_FORMAT = "\"format\":\"audio/L16;rate=16000\",\"encoding\":\"raw\",\"audio\":\"";
+
+    private static final byte[] CONTINUE_PREFIX = ascii("{\"data\":{\"status\":"
+            + IatWebSocketClient.StatusContinueFrame + "," + AUDIO_FORMAT);
+
+    private static final byte[] SUFFIX = ascii("\"}}");
+
+    private static final String LAST_FRAME = "{\"data\":{\"status\":" + IatWebSocketClient.StatusLastFrame + ","
+            + AUDIO_FORMAT + "\"}}";
+
+    private final byte[] firstPrefix;
+    private byte[] buffer = new byte[0];
+
+    /**
+     * @param iatRequest 第一帧携带的common/business参数
+     */
+    public IatFrameEncoder(IatRequest iatRequest) {
+        JsonObject frame = iatRequest.toFirstFrameJson();
+        String json = frame.toString();
+        // 去掉末尾的 }，接上 data 字段
+        this.firstPrefix = ascii(json.substring(0, json.length() - 1) + ",\"data\":{\"status\":"
+                + IatWebSocketClient.StatusFirstFrame + "," + AUDIO_FORMAT);
+    }
+
+    /**
+     * 编码第一帧（包含common/business参数）
+     */
+    public String encodeFirstFrame(byte[] audio, int offset, int length) {
+        return encode(firstPrefix, audio, offset, length);
+    }
+
+    /**
+     * 编码继续帧
+     */
+    public String encodeContinueFrame(byte[] audio, int offset, int length) {
+        return encode(CONTINUE_PREFIX, audio, offset, length);
+    }
+
+    /**
+     * 最后一帧内容固定，直接返回常量
+     */
+    public String encodeLastFrame() {
+        return LAST_FRAME;
+    }
+
+    private String encode(byte[] prefix, byte[] audio, int offset, int length) {
+        int size = prefix.length + base64Length(length) + SUFFIX.length;
+        if (buffer.length < size) {
+            buffer = new byte[size];
+        }
+
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+        int pos = encodeBase64(audio, offset, length, buffer, prefix.length);
+        System.arraycopy(SUFFIX, 0, buffer, pos, SUFFIX.length);
+        pos += SUFFIX.length;
+
+        // 内容全部是ASCII，Latin-1解码只需一次数组复制即可得到紧凑字符串
+        return new String(buffer, 0, pos, StandardCharsets.ISO_8859_1);
+    }
+
+    static int base64Length(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    /**
+     * 标准Base64编码（带填充），写入目标数组
+     *
+     * @return 写入结束位置
+     */
+    static int encodeBase64(byte[] src, int offset, int length, byte[] dst, int dstOffset) {
+        int sp = offset;
+        int end = offset + length - length % 3;
+        int dp = dstOffset;
+        while (sp < end) {
+            int bits = (src[sp++] & 0xff) << 16 | (src[sp++] & 0xff) << 8 | (src[sp++] & 0xff);
+            dst[dp++] = BASE64[(bits >>> 18) & 0x3f];
+            dst[dp++] = BASE64[(bits >>> 12) & 0x3f];
+            dst[dp++] = BASE64[(bits >>> 6) & 0x3f];
+            dst[dp++] = BASE64[bits & 0x3f];
+        }
+
+        int remaining = offset + length - sp;
+        if (remaining == 1) {
+            int b0 = src[sp] & 0xff;
+            dst[dp++] = BASE64[b0 >> 2];
+            dst[dp++] = BASE64[(b0 << 4) & 0x3f];
+            dst[dp++] = '=';
+            dst[dp++] = '=';
+        } else if (remaining == 2) {
+            int b0 = src[sp] & 0xff;
+            int b1 = src[sp + 1] & 0xff;
+            dst[dp++] = BASE64[b0 >> 2];
+            dst[dp++] = BASE64[(b0 << 4) & 0x3f | (b1 >> 4)];
+            dst[dp++] = BASE64[(b1 << 2) & 0x3f];
+            dst[dp++] = '=';
+        }
+        return dp;
+    }
+
+    private static byte[] ascii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7f) {
+                throw new IllegalArgumentException("帧外壳只能包含ASCII字符: " + value);
+            }
+        }
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
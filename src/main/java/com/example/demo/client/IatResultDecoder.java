@@ -0,0 +1,190 @@
+package com.example.demo.client;
+
+import com.example.demo.dto.RecognitionResult;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * 讯飞识别结果流式解码器
+ * 使用 {@link JsonReader} 一次遍历取出 code、message、status、sn、pgs、rg 和拼接后的 w，
+ * 直接得到 {@link RecognitionResult}，不构建Gson DOM，也不在JVM内部做JSON往返。
+ * 每个连接持有一个实例（消息在OkHttp读线程上串行到达），非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class IatResultDecoder {
+
+    private final StringBuilder text = new StringBuilder(64);
+
+    private int code;
+    private String message;
+    private int status;
+    private boolean hasResult;
+    private int sn;
+    private String pgs;
+    private int[] rg;
+
+    /**
+     * 解码一条上游消息
+     *
+     * @return 识别结果；消息既不包含结果也不是错误时返回null
+     */
+    public RecognitionResult decode(String json) throws IOException {
+        reset();
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "code":
+                        code = reader.nextInt();
+                        break;
+                    case "message":
+                        message = nextStringOrNull(reader);
+                        break;
+                    case "data":
+                        readData(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        if (code != 0) {
+            return RecognitionResult.error(code, message != null ? message : "Unknown error");
+        }
+        if (!hasResult) {
+            return null;
+        }
+
+        RecognitionResult result = RecognitionResult.success(text.toString(), status == IatWebSocketClient.StatusLastFrame, 1.0);
+        result.setSn(sn);
+        result.setPgs(pgs);
+        result.setRg(rg);
+        return result;
+    }
+
+    private void readData(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "status":
+                    status = reader.nextInt();
+                    break;
+                case "result":
+                    readResult(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readResult(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+        hasResult = true;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "sn":
+                    sn = reader.nextInt();
+                    break;
+                case "pgs":
+                    pgs = nextStringOrNull(reader);
+                    break;
+                case "rg":
+                    readRange(reader);
+                    break;
+                case "ws":
+                    readWords(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readRange(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        int[] range = new int[2];
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int value = reader.nextInt();
+            if (count < range.length) {
+                range[count] = value;
+            }
+            count++;
+        }
+        reader.endArray();
+        rg = range;
+    }
+
+    /**
+     * ws: [{cw: [{w: "..."}]}]，依次拼接所有w
+     */
+    private void readWords(JsonReader reader) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"cw".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if ("w".equals(reader.nextName())) {
+                            text.append(reader.nextString());
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private void reset() {
+        text.setLength(0);
+        code = 0;
+        message = null;
+        status = 0;
+        hasResult = false;
+        sn = 0;
+        pgs = null;
+        rg = null;
+    }
+}
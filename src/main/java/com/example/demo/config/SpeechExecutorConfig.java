@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 语音链路线程池配置
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+@Configuration
+public class SpeechExecutorConfig {
+
+    public static final String SPEECH_SCHEDULER = "speechScheduler";
+
+    @Value("${speech.scheduler.threads:2}")
+    private int threads;
+
+    /**
+     * 语音链路共用的调度线程池：上游音频发送、拥塞重试、重连退避、连接池预热和模拟识别
+     * 任务都很短且不阻塞，不再为单次操作创建线程。队列、活跃线程和任务耗时见 executor.* 指标（name=speech.scheduler）
+     */
+    @Bean(name = SPEECH_SCHEDULER, destroyMethod = "shutdownNow")
+    public ScheduledExecutorService speechScheduler(MeterRegistry registry) {
+        AtomicInteger counter = new AtomicInteger();
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "speech-scheduler-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("语音调度线程池已启动，线程数: {}", threads);
+        return ExecutorServiceMetrics.monitor(registry, executor, "speech.scheduler", Collections.emptyList());
+    }
+}
@@ -1,15 +1,20 @@
 package com.example.demo.config;
 
 import com.example.demo.handler.SpeechWebSocketHandler;
+import com.example.demo.metrics.SpeechMetrics;
 import com.example.demo.service.AudioCaptureService;
 import com.example.demo.service.SpeechRecognitionService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
-import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * WebSocket配置类
@@ -23,11 +28,23 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     private final AudioCaptureService audioCaptureService;
     private final SpeechRecognitionService speechRecognitionService;
+    private final SpeechMetrics speechMetrics;
+
+    @Value("${spring.websocket.send-time-limit:20000}")
+    private int sendTimeLimit;
+
+    @Value("${spring.websocket.send-buffer-size-limit:1048576}")
+    private int sendBufferSizeLimit;
+
+    @Value("${speech.result.sender-threads:4}")
+    private int resultSenderThreads;
 
     public WebSocketConfig(AudioCaptureService audioCaptureService,
-                          SpeechRecognitionService speechRecognitionService) {
+                          SpeechRecognitionService speechRecognitionService,
+                          SpeechMetrics speechMetrics) {
         this.audioCaptureService = audioCaptureService;
         this.speechRecognitionService = speechRecognitionService;
+        this.speechMetrics = speechMetrics;
     }
 
     @Override
@@ -36,10 +53,22 @@ public class WebSocketConfig implements WebSocketConfigurer {
                 .setAllowedOrigins("*");
     }
 
-
-
     @Bean
     public WebSocketHandler speechWebSocketHandler() {
-        return new SpeechWebSocketHandler(audioCaptureService, speechRecognitionService);
+        return new SpeechWebSocketHandler(audioCaptureService, speechRecognitionService, speechMetrics,
+                resultSendExecutor(), sendTimeLimit, sendBufferSizeLimit);
+    }
+
+    /**
+     * 向前端发送识别结果的线程池，讯飞读线程和Tomcat线程只入队，不直接写前端连接
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService resultSendExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(resultSenderThreads, r -> {
+            Thread thread = new Thread(r, "speech-result-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,9 +1,19 @@
 package com.example.demo.controller;
 
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.dto.TranscriptionResult;
+import com.example.demo.exception.UpstreamException;
+import com.example.demo.service.BatchTranscriptionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletionException;
 
 /**
  * 语音识别控制器
@@ -17,6 +27,11 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class SpeechController {
 
+    private final BatchTranscriptionService batchTranscriptionService;
+
+    @Value("${speech.batch.request-timeout-ms:600000}")
+    private long batchRequestTimeoutMs;
+
     /**
      * 开始语音识别
      */
@@ -34,4 +49,30 @@ public class SpeechController {
         log.info("Stopping speech recognition");
         return ResponseEntity.ok("Speech recognition stopped");
     }
+
+    /**
+     * 离线转写整段音频
+     * 请求体为WAV文件、Ogg Opus文件或原始PCM（用 sampleRate/channels/encoding 参数声明格式，默认16kHz单声道16位），
+     * 边接收边写入临时文件，不在内存中缓存整段音频；识别完成前不占用请求线程
+     */
+    @PostMapping("/transcriptions")
+    public DeferredResult<TranscriptionResult> transcribe(InputStream audio,
+                                                          @RequestParam(required = false) Integer sampleRate,
+                                                          @RequestParam(defaultValue = "1") int channels,
+                                                          @RequestParam(required = false) String encoding) throws IOException {
+        PcmFormat format = sampleRate != null ? PcmFormat.of(sampleRate, channels, encoding) : PcmFormat.IAT;
+        log.info("Batch transcription, format: {}", format);
+
+        DeferredResult<TranscriptionResult> response = new DeferredResult<>(batchRequestTimeoutMs);
+        response.onTimeout(() -> response.setErrorResult(new UpstreamException("转写超时")));
+        batchTranscriptionService.transcribe(audio, format).whenComplete((result, error) -> {
+            if (error != null) {
+                response.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            } else {
+                response.setResult(result);
+            }
+        });
+        return response;
+    }
 }
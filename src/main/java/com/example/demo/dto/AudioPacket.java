@@ -0,0 +1,65 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 前端通过二进制WebSocket消息发送的音频包
+ * <pre>
+ * 0       4       8
+ * +-------+-------+------------------------+
+ * |  seq  |  ts   |  audio (PCM or Opus)   |
+ * +-------+-------+------------------------+
+ * </pre>
+ * seq 为从0开始递增的包序号，ts 为相对录音开始的毫秒时间戳，均为无符号32位小端整数。
+ * 音频部分按start命令声明的格式解析：PCM可按任意边界切包，裸Opus每包恰好一个Opus包
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Data
+@AllArgsConstructor
+public class AudioPacket {
+
+    /**
+     * 包头长度（字节）
+     */
+    public static final int HEADER_SIZE = 8;
+
+    /**
+     * 包序号
+     */
+    private long sequence;
+
+    /**
+     * 相对录音开始的时间戳（毫秒）
+     */
+    private long timestamp;
+
+    /**
+     * 音频数据（只读视图，不复制底层数组）
+     */
+    private ByteBuffer payload;
+
+    /**
+     * 解析二进制消息
+     *
+     * @param message 二进制消息内容
+     * @return 音频包，长度不足包头时返回null
+     */
+    public static AudioPacket parse(ByteBuffer message) {
+        if (message.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = message.slice().order(ByteOrder.LITTLE_ENDIAN);
+        long sequence = buffer.getInt(0) & 0xFFFFFFFFL;
+        long timestamp = buffer.getInt(4) & 0xFFFFFFFFL;
+        // 通过Buffer调用position，保证在Java 8运行时上的方法签名兼容
+        ((Buffer) buffer).position(HEADER_SIZE);
+        return new AudioPacket(sequence, timestamp, buffer.slice().asReadOnlyBuffer());
+    }
+}
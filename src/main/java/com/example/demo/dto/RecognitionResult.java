@@ -40,17 +40,52 @@ public class RecognitionResult {
      */
     private String error;
 
+    /**
+     * 上游错误码（0表示成功）
+     */
+    private int code;
+
+    /**
+     * 结果序号，从1开始
+     */
+    private int sn;
+
+    /**
+     * 动态修正类型：apd（追加）、rpl（替换rg范围内的结果），未开启动态修正时为null
+     */
+    private String pgs;
+
+    /**
+     * 替换范围 [起始sn, 结束sn]，仅pgs=rpl时有效
+     */
+    private int[] rg;
+
     /**
      * 创建成功的识别结果
      */
     public static RecognitionResult success(String text, boolean isFinal, double confidence) {
-        return new RecognitionResult(text, isFinal, confidence, 0, null);
+        return new RecognitionResult(text, isFinal, confidence, 0, null, 0, 0, null, null);
     }
 
     /**
      * 创建错误的识别结果
      */
     public static RecognitionResult error(String error) {
-        return new RecognitionResult(null, false, 0.0, -1, error);
+        return new RecognitionResult(null, false, 0.0, -1, error, 0, 0, null, null);
+    }
+
+    /**
+     * 创建上游返回错误码的识别结果
+     */
+    public static RecognitionResult error(int code, String error) {
+        return new RecognitionResult(null, false, 0.0, -1, error, code, 0, null, null);
+    }
+
+    /**
+     * 本结果的副本，同时替换 [1, segments] 范围内已转发的旧结果（换用另一路结果时覆盖前一路的中间结果）
+     */
+    public RecognitionResult replacing(int segments) {
+        int end = "rpl".equals(pgs) && rg != null && rg.length >= 2 ? Math.max(rg[1], segments) : segments;
+        return new RecognitionResult(text, isFinal, confidence, status, error, code, sn, "rpl", new int[]{1, end});
     }
 }
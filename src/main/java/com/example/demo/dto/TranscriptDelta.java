@@ -0,0 +1,36 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 发送给前端的转写增量
+ * 前端保留已收到的转写文本，收到增量后执行: text = text.substring(0, offset) + delta.text
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Data
+@AllArgsConstructor
+public class TranscriptDelta {
+
+    /**
+     * 发生变化的起始位置（字符）
+     */
+    private int offset;
+
+    /**
+     * 从offset起被替换掉的旧字符数，等于前端当前文本长度减offset，可用于校验
+     */
+    private int remove;
+
+    /**
+     * 从offset起的新文本
+     */
+    private String text;
+
+    /**
+     * 当前句子是否已得到最终结果
+     */
+    private boolean isFinal;
+}
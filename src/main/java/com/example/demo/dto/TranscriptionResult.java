@@ -0,0 +1,35 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 离线转写结果
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Data
+@AllArgsConstructor
+public class TranscriptionResult {
+
+    /**
+     * 完整转写文本
+     */
+    private String text;
+
+    /**
+     * 音频时长（毫秒）
+     */
+    private long durationMs;
+
+    /**
+     * 切分后提交识别的片段数（不含纯静音片段）
+     */
+    private int segments;
+
+    /**
+     * 从开始上传到得到结果的耗时（毫秒）
+     */
+    private long elapsedMs;
+}
@@ -0,0 +1,271 @@
+package com.example.demo.engine;
+
+import com.example.demo.audio.AudioFingerprint;
+import com.example.demo.dto.RecognitionResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 带结果缓存的一次识别，见 {@link RecognitionResultCache}
+ * 第一帧就打开上游，音频照常流式上传、中间结果照常转发，同时在本地保留不超过 maxClipBytes 的整句音频。
+ * 句尾计算指纹：命中缓存时断开上游，不再等它的最终结果，回放缓存的结果（第一条替换掉已转发的中间结果）；
+ * 未命中时发送最后一帧，上游的最终结果写入缓存。句子超过 maxClipBytes 时不再保留音频，只做流式识别。
+ * 上游结果和回放的结果经 pending 队列按顺序交给会话，回调会话时不持有this锁
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class CachedStream implements RecognitionStream {
+
+    // 本地保留音频的初始容量（1秒）
+    private static final int INITIAL_CLIP_BYTES = 32000;
+
+    private final Supplier<RecognitionStream> upstreamFactory;
+    private final RecognitionResultCache cache;
+    private final int maxClipBytes;
+    private final CompletableFuture<CachedStream> opened = CompletableFuture.completedFuture(this);
+
+    private volatile Consumer<RecognitionResult> resultListener;
+    private volatile Consumer<Throwable> failureListener;
+    private volatile RecognitionStream upstream;
+    private volatile boolean closed;
+
+    // 以下字段只在发送线程中访问，clip为null表示句子过长或已计算过指纹
+    private byte[] clip = new byte[INITIAL_CLIP_BYTES];
+    private int clipLength;
+    private long audioInAt;
+
+    // 以下字段只在持有this锁时访问
+    // 本次识别的上游结果，句子过长或上游返回错误码时不再记录
+    private final List<RecognitionResult> recorded = new ArrayList<>();
+    private boolean recording = true;
+    // 未命中时最终结果写入缓存的指纹，null表示不缓存
+    private AudioFingerprint fingerprint;
+    // 命中缓存后上游的结果不再转发
+    private boolean answered;
+    private boolean finalForwarded;
+    private int forwardedSegments;
+    private int staleSegments;
+    private final ArrayDeque<RecognitionResult> pending = new ArrayDeque<>();
+    private boolean delivering;
+
+    CachedStream(Supplier<RecognitionStream> upstreamFactory, RecognitionResultCache cache, int maxClipBytes) {
+        this.upstreamFactory = upstreamFactory;
+        this.cache = cache;
+        this.maxClipBytes = maxClipBytes;
+    }
+
+    @Override
+    public CompletableFuture<CachedStream> opened() {
+        return opened;
+    }
+
+    @Override
+    public void bind(Consumer<RecognitionResult> resultListener, Consumer<Throwable> failureListener) {
+        this.resultListener = resultListener;
+        this.failureListener = failureListener;
+    }
+
+    @Override
+    public void markAudioIn(long nanoTime) {
+        audioInAt = nanoTime;
+        RecognitionStream current = upstream;
+        if (current != null) {
+            current.markAudioIn(nanoTime);
+        }
+    }
+
+    @Override
+    public void sendFirstFrame(byte[] audioData, int length) {
+        keep(audioData, length);
+        openUpstream().sendFirstFrame(audioData, length);
+    }
+
+    @Override
+    public void sendContinueFrame(byte[] audioData, int length) {
+        keep(audioData, length);
+        RecognitionStream current = upstream;
+        if (current != null) {
+            current.sendContinueFrame(audioData, length);
+        } else {
+            openUpstream().sendFirstFrame(audioData, length);
+        }
+    }
+
+    @Override
+    public void sendLastFrame() {
+        RecognitionStream current = upstream != null ? upstream : openUpstream();
+        if (clip != null) {
+            AudioFingerprint key = AudioFingerprint.of(clip, 0, clipLength);
+            clip = null;
+            if (key == null) {
+                cache.recordUncacheable();
+            }
+            List<RecognitionResult> cached = key != null ? cache.get(key) : null;
+            if (cached != null && answer()) {
+                // 命中：断开上游，不再等它的最终结果
+                current.disconnect();
+                cache.replay(cached, this::onCachedResult);
+                return;
+            }
+            synchronized (this) {
+                fingerprint = recording ? key : null;
+            }
+        }
+        current.sendLastFrame();
+    }
+
+    @Override
+    public long queueSize() {
+        RecognitionStream current = upstream;
+        return current != null ? current.queueSize() : 0;
+    }
+
+    @Override
+    public void disconnect() {
+        closed = true;
+        RecognitionStream current = upstream;
+        if (current != null) {
+            current.disconnect();
+        }
+    }
+
+    /**
+     * 在本地保留句子的音频用于计算指纹，超过 maxClipBytes 后放弃
+     */
+    private void keep(byte[] audioData, int length) {
+        if (clip == null) {
+            return;
+        }
+        if (clipLength + length > maxClipBytes) {
+            // 句子过长，不再缓存
+            clip = null;
+            synchronized (this) {
+                recording = false;
+                recorded.clear();
+            }
+            return;
+        }
+        if (clip.length < clipLength + length) {
+            clip = Arrays.copyOf(clip, Math.max(clip.length * 2, clipLength + length));
+        }
+        System.arraycopy(audioData, 0, clip, clipLength, length);
+        clipLength += length;
+    }
+
+    private RecognitionStream openUpstream() {
+        RecognitionStream stream = upstreamFactory.get();
+        upstream = stream;
+        if (audioInAt != 0) {
+            stream.markAudioIn(audioInAt);
+        }
+        stream.bind(this::onResult, this::onFailure);
+        stream.opened().exceptionally(ex -> {
+            onFailure(ex);
+            return null;
+        });
+        return stream;
+    }
+
+    /**
+     * 命中缓存时改用缓存的结果，上游已返回最终结果时不再替换
+     */
+    private synchronized boolean answer() {
+        if (closed || finalForwarded) {
+            return false;
+        }
+        answered = true;
+        staleSegments = forwardedSegments;
+        return true;
+    }
+
+    private void onResult(RecognitionResult result) {
+        synchronized (this) {
+            if (closed || answered) {
+                return;
+            }
+            if (result.getError() != null) {
+                recording = false;
+                recorded.clear();
+            } else if (recording) {
+                recorded.add(result);
+                if (result.isFinal() && fingerprint != null) {
+                    cache.put(fingerprint, new ArrayList<>(recorded));
+                }
+            }
+            forwardedSegments = Math.max(forwardedSegments, result.getSn() > 0 ? result.getSn() : forwardedSegments + 1);
+            finalForwarded |= result.isFinal();
+            pending.add(result);
+        }
+        deliver();
+    }
+
+    private void onCachedResult(RecognitionResult result) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (staleSegments > 0 && result.getError() == null) {
+                result = result.replacing(staleSegments);
+                staleSegments = 0;
+            }
+            pending.add(result);
+        }
+        deliver();
+    }
+
+    private void onFailure(Throwable cause) {
+        synchronized (this) {
+            if (closed || answered) {
+                return;
+            }
+        }
+        Consumer<Throwable> listener = failureListener;
+        if (listener != null) {
+            listener.accept(cause);
+        }
+    }
+
+    /**
+     * 不持有this锁把结果交给会话（会话持有发送锁调用 sendLastFrame）；同一时刻只有一个线程在转发
+     */
+    private void deliver() {
+        synchronized (this) {
+            if (delivering) {
+                return;
+            }
+            delivering = true;
+        }
+        boolean drained = false;
+        try {
+            RecognitionResult result;
+            while ((result = pollPending()) != null) {
+                Consumer<RecognitionResult> listener = resultListener;
+                if (listener != null) {
+                    listener.accept(result);
+                }
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                synchronized (this) {
+                    delivering = false;
+                }
+            }
+        }
+    }
+
+    private synchronized RecognitionResult pollPending() {
+        RecognitionResult result = pending.poll();
+        if (result == null) {
+            delivering = false;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.demo.engine;
+
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.metrics.SpeechMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 对冲识别：一句话开头 hedgeBytes 的音频同时发给主、备两个引擎，只有这段音频的上行流量翻倍
+ * 先返回结果的一方为领先方，只转发领先方的中间结果，另一方的结果先缓冲。
+ * 对冲窗口结束时只保留领先方（两方都没有结果时保留主引擎），另一方断开，之后的音频只发给一方；
+ * 窗口内结束的短句先返回最终结果的一方胜出，另一方立即断开。落后方先结束（领先方的最终结果卡住）时，
+ * 用它缓冲的结果替换已转发的中间结果（pgs=rpl 覆盖已转发的sn范围）。
+ * 胜出前任一方失败只丢弃该方，两方都失败才通知会话。
+ * 状态由this锁保护；回调会话（会话持有自己的发送锁调用发送方法）时不持有this锁，
+ * 两方的结果经 pending 队列按顺序交给会话，避免锁顺序相反
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class HedgedStream implements RecognitionStream {
+
+    private static final int PRIMARY = 0;
+    private static final int SECONDARY = 1;
+
+    private final RecognitionStream[] streams;
+    private final long hedgeBytes;
+    private final SpeechMetrics metrics;
+    private final CompletableFuture<HedgedStream> opened = new CompletableFuture<>();
+
+    // 以下字段只在持有this锁时访问
+    private final boolean[] live = {true, true};
+    private int leader = -1;
+    private int winner = -1;
+    private long sentBytes;
+    // 落后方尚未转发的结果
+    private final List<List<RecognitionResult>> buffered = new ArrayList<>();
+    // 已转发结果占用的sn范围
+    private int forwardedSegments;
+    // 换用另一方后，下一条转发的结果需要替换掉的旧sn范围
+    private int staleSegments;
+    private final ArrayDeque<RecognitionResult> pending = new ArrayDeque<>();
+    private boolean delivering;
+
+    private volatile Consumer<RecognitionResult> resultListener;
+    private volatile Consumer<Throwable> failureListener;
+
+    /**
+     * @param hedgeBytes 对冲窗口：同时发给两个引擎的音频字节数，之后只保留领先方
+     */
+    HedgedStream(RecognitionStream primary, RecognitionStream secondary, long hedgeBytes, SpeechMetrics metrics) {
+        this.streams = new RecognitionStream[]{primary, secondary};
+        this.hedgeBytes = hedgeBytes;
+        this.metrics = metrics;
+        for (int i = 0; i < streams.length; i++) {
+            buffered.add(new ArrayList<>());
+        }
+        for (int i = 0; i < streams.length; i++) {
+            int index = i;
+            streams[i].opened().whenComplete((stream, ex) -> {
+                if (ex == null) {
+                    opened.complete(this);
+                } else {
+                    onFailure(index, ex);
+                }
+            });
+        }
+    }
+
+    @Override
+    public CompletableFuture<HedgedStream> opened() {
+        return opened;
+    }
+
+    @Override
+    public void bind(Consumer<RecognitionResult> resultListener, Consumer<Throwable> failureListener) {
+        this.resultListener = resultListener;
+        this.failureListener = failureListener;
+        for (int i = 0; i < streams.length; i++) {
+            int index = i;
+            streams[i].bind(result -> onResult(index, result), ex -> onFailure(index, ex));
+        }
+    }
+
+    @Override
+    public synchronized void markAudioIn(long nanoTime) {
+        for (int i = 0; i < streams.length; i++) {
+            if (live[i]) {
+                streams[i].markAudioIn(nanoTime);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void sendFirstFrame(byte[] audioData, int length) {
+        endHedgeIfExpired();
+        for (int i = 0; i < streams.length; i++) {
+            if (live[i]) {
+                streams[i].sendFirstFrame(audioData, length);
+            }
+        }
+        sentBytes += length;
+    }
+
+    @Override
+    public synchronized void sendContinueFrame(byte[] audioData, int length) {
+        endHedgeIfExpired();
+        for (int i = 0; i < streams.length; i++) {
+            if (live[i]) {
+                streams[i].sendContinueFrame(audioData, length);
+            }
+        }
+        sentBytes += length;
+    }
+
+    @Override
+    public synchronized void sendLastFrame() {
+        for (int i = 0; i < streams.length; i++) {
+            if (live[i]) {
+                streams[i].sendLastFrame();
+            }
+        }
+    }
+
+    @Override
+    public synchronized long queueSize() {
+        long size = 0;
+        for (int i = 0; i < streams.length; i++) {
+            if (live[i]) {
+                size = Math.max(size, streams[i].queueSize());
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        for (int i = 0; i < streams.length; i++) {
+            if (live[i]) {
+                live[i] = false;
+                streams[i].disconnect();
+            }
+        }
+    }
+
+    /**
+     * 对冲窗口已过时只保留领先方，两方都还没有结果时保留主引擎
+     */
+    private void endHedgeIfExpired() {
+        if (winner < 0 && sentBytes >= hedgeBytes && live[PRIMARY] && live[SECONDARY]) {
+            int kept = leader >= 0 ? leader : PRIMARY;
+            int dropped = 1 - kept;
+            live[dropped] = false;
+            buffered.get(dropped).clear();
+            streams[dropped].disconnect();
+            metrics.recordHedge(leader < 0 ? "expired" : kept == PRIMARY ? "primary" : "secondary");
+        }
+    }
+
+    private void onResult(int index, RecognitionResult result) {
+        synchronized (this) {
+            if (!live[index]) {
+                return;
+            }
+            int other = 1 - index;
+            if (winner >= 0 || !live[other]) {
+                // 只剩这一方
+                forward(result);
+            } else if (result.getError() != null) {
+                // 一方返回错误码，另一方继续识别
+                live[index] = false;
+                streams[index].disconnect();
+                dropped(index);
+            } else {
+                if (leader < 0) {
+                    leader = index;
+                }
+                if (index == leader) {
+                    forward(result);
+                } else {
+                    buffered.get(index).add(result);
+                }
+                if (result.isFinal()) {
+                    winner = index;
+                    if (index != leader) {
+                        promote(index);
+                    }
+                    live[other] = false;
+                    streams[other].disconnect();
+                    metrics.recordHedge(index == PRIMARY ? "primary" : "secondary");
+                }
+            }
+        }
+        deliver();
+    }
+
+    private void onFailure(int index, Throwable cause) {
+        synchronized (this) {
+            if (!live[index]) {
+                return;
+            }
+            live[index] = false;
+            if (winner != index && live[1 - index]) {
+                dropped(index);
+                return;
+            }
+        }
+        // 最后一个引擎也失败了：握手阶段通过 opened() 通知，之后通过失败回调
+        if (!opened.completeExceptionally(cause)) {
+            Consumer<Throwable> listener = failureListener;
+            if (listener != null) {
+                listener.accept(cause);
+            }
+        }
+    }
+
+    /**
+     * 一方在分出胜负前退出：它是领先方时改为转发另一方的结果
+     */
+    private void dropped(int index) {
+        buffered.get(index).clear();
+        if (leader == index) {
+            promote(1 - index);
+        }
+    }
+
+    /**
+     * 改为转发另一方的结果：先补发它缓冲的结果，第一条替换掉原领先方已转发的中间结果
+     */
+    private void promote(int index) {
+        leader = index;
+        staleSegments = forwardedSegments;
+        forwardedSegments = 0;
+        List<RecognitionResult> results = buffered.get(index);
+        results.forEach(this::forward);
+        results.clear();
+    }
+
+    private void forward(RecognitionResult result) {
+        if (staleSegments > 0 && result.getError() == null) {
+            result = result.replacing(staleSegments);
+            staleSegments = 0;
+        }
+        forwardedSegments = Math.max(forwardedSegments, result.getSn() > 0 ? result.getSn() : forwardedSegments + 1);
+        pending.add(result);
+    }
+
+    /**
+     * 不持有this锁，按顺序把待转发的结果交给会话；同一时刻只有一个线程在转发
+     */
+    private void deliver() {
+        synchronized (this) {
+            if (delivering) {
+                return;
+            }
+            delivering = true;
+        }
+        boolean drained = false;
+        try {
+            RecognitionResult result;
+            while ((result = pollPending()) != null) {
+                Consumer<RecognitionResult> listener = resultListener;
+                if (listener != null) {
+                    listener.accept(result);
+                }
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                synchronized (this) {
+                    delivering = false;
+                }
+            }
+        }
+    }
+
+    private synchronized RecognitionResult pollPending() {
+        RecognitionResult result = pending.poll();
+        if (result == null) {
+            delivering = false;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.engine;
+
+import com.example.demo.config.SpeechExecutorConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 本地替身引擎：不调用任何识别服务，按收到的音频时长返回占位文本
+ * 用于开发、压测和演练路由/对冲，不依赖外网和服务商配额。
+ * 在 speech.engine.providers 中加入 local 后参与路由，它的延迟固定为 latency-ms
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Component
+public class LocalRecognitionEngine implements RecognitionEngine {
+
+    public static final String NAME = "local";
+
+    private final ScheduledExecutorService scheduler;
+
+    @Value("${speech.engine.local.latency-ms:200}")
+    private long latencyMs;
+
+    public LocalRecognitionEngine(@Qualifier(SpeechExecutorConfig.SPEECH_SCHEDULER) ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public RecognitionStream open() {
+        return new LocalRecognitionStream(scheduler, latencyMs);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo.engine;
+
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.dto.RecognitionResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 本地替身引擎的一次识别
+ * 每收到一秒音频返回一个中间结果，最后一帧之后延迟 latencyMs 返回最终结果。
+ * 所有结果使用同一个序号，后一个替换前一个；回调在调度线程上执行，不占用会话的发送线程
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class LocalRecognitionStream implements RecognitionStream {
+
+    private static final int BYTES_PER_SECOND = PcmFormat.IAT.getSampleRate() * PcmFormat.IAT.getFrameSize();
+
+    private final ScheduledExecutorService scheduler;
+    private final long latencyMs;
+    private final CompletableFuture<LocalRecognitionStream> opened = CompletableFuture.completedFuture(this);
+
+    private volatile Consumer<RecognitionResult> resultListener;
+    private volatile boolean closed;
+
+    // 只在发送线程中访问
+    private long receivedBytes;
+    private long reportedSeconds;
+
+    LocalRecognitionStream(ScheduledExecutorService scheduler, long latencyMs) {
+        this.scheduler = scheduler;
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public CompletableFuture<LocalRecognitionStream> opened() {
+        return opened;
+    }
+
+    @Override
+    public void bind(Consumer<RecognitionResult> resultListener, Consumer<Throwable> failureListener) {
+        // 本地识别不会中断，failureListener 不会被调用
+        this.resultListener = resultListener;
+    }
+
+    @Override
+    public void markAudioIn(long nanoTime) {
+    }
+
+    @Override
+    public void sendFirstFrame(byte[] audioData, int length) {
+        receive(length);
+    }
+
+    @Override
+    public void sendContinueFrame(byte[] audioData, int length) {
+        receive(length);
+    }
+
+    @Override
+    public void sendLastFrame() {
+        emit(result(true), latencyMs);
+    }
+
+    @Override
+    public long queueSize() {
+        return 0;
+    }
+
+    @Override
+    public void disconnect() {
+        closed = true;
+    }
+
+    private void receive(int length) {
+        receivedBytes += length;
+        long seconds = receivedBytes / BYTES_PER_SECOND;
+        if (seconds > reportedSeconds) {
+            reportedSeconds = seconds;
+            emit(result(false), 0);
+        }
+    }
+
+    private RecognitionResult result(boolean isFinal) {
+        RecognitionResult result = RecognitionResult.success(
+                String.format("[本地识别 %.1f秒]", receivedBytes / (double) BYTES_PER_SECOND), isFinal, 1.0);
+        result.setSn(1);
+        return result;
+    }
+
+    private void emit(RecognitionResult result, long delayMs) {
+        scheduler.schedule(() -> {
+            Consumer<RecognitionResult> listener = resultListener;
+            if (closed || listener == null) {
+                return;
+            }
+            if (result.isFinal()) {
+                closed = true;
+            }
+            listener.accept(result);
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.engine;
+
+/**
+ * 语音识别引擎SPI
+ * 每个识别服务商一个实现，注册为Spring Bean，按 {@link #getName()} 在 speech.engine.providers 中引用。
+ * 会话和离线转写只依赖 {@link RecognitionEngineRouter}，由它选择具体引擎
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public interface RecognitionEngine {
+
+    /**
+     * 引擎名称，用于配置和指标标签
+     */
+    String getName();
+
+    /**
+     * 打开一次识别（一句话），握手在后台进行，不阻塞调用线程
+     */
+    RecognitionStream open();
+}
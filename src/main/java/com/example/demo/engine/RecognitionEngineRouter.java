@@ -0,0 +1,278 @@
+package com.example.demo.engine;
+
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.metrics.SpeechMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 识别引擎路由
+ * 按 speech.engine.providers 的顺序管理多个引擎，每句话打开识别时选择一个健康的引擎：
+ * <ul>
+ *     <li>FIXED：列表中第一个健康的引擎</li>
+ *     <li>LATENCY：最终结果延迟（最后一帧到最终结果，指数加权平均）最低的健康引擎</li>
+ * </ul>
+ * 引擎连续失败 failure-threshold 次后在 cooldown-ms 内视为不健康，不再被选中；全部不健康时仍按顺序尝试。
+ * hedge-ms 大于0且有两个以上引擎时，一句话开头 hedge-ms 的音频同时发给排名前两位的引擎，
+ * 窗口结束时只保留先返回结果的一方（都没有结果时保留第一位），窗口内结束的短句先返回最终结果的一方胜出
+ * （见 {@link HedgedStream}），以句首的双倍上行流量换取尾延迟。
+ * 开启 {@link RecognitionResultCache} 时，重复的短句在路由之前由缓存直接返回结果
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+@Primary
+@Component
+public class RecognitionEngineRouter implements RecognitionEngine {
+
+    private static final int BYTES_PER_SECOND = PcmFormat.IAT.getSampleRate() * PcmFormat.IAT.getFrameSize();
+
+    /**
+     * 延迟的指数加权平均系数，约最近10句话
+     */
+    private static final double LATENCY_ALPHA = 0.2;
+
+    public enum Routing {
+        /**
+         * 按配置顺序
+         */
+        FIXED,
+        /**
+         * 按最终结果延迟
+         */
+        LATENCY
+    }
+
+    private final Map<String, RecognitionEngine> available;
+    private final SpeechMetrics metrics;
+    private final RecognitionResultCache resultCache;
+    private final List<EngineState> engines = new ArrayList<>();
+
+    @Value("${speech.engine.providers:xfyun}")
+    private String[] providers;
+
+    @Value("${speech.engine.routing:LATENCY}")
+    private Routing routing;
+
+    @Value("${speech.engine.hedge-ms:0}")
+    private long hedgeMs;
+
+    @Value("${speech.engine.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${speech.engine.cooldown-ms:30000}")
+    private long cooldownMs;
+
+    /**
+     * @param available 所有引擎Bean（不含路由本身）
+     */
+    public RecognitionEngineRouter(List<RecognitionEngine> available, SpeechMetrics metrics,
+                                   RecognitionResultCache resultCache) {
+        this.available = available.stream()
+                .collect(Collectors.toMap(RecognitionEngine::getName, Function.identity()));
+        this.metrics = metrics;
+        this.resultCache = resultCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (String provider : providers) {
+            String name = provider.trim();
+            RecognitionEngine engine = available.get(name);
+            if (engine == null) {
+                throw new IllegalStateException("未知的识别引擎: " + name + "，可用: " + available.keySet());
+            }
+            EngineState state = new EngineState(engine);
+            engines.add(state);
+            metrics.bindEngineLatency(name, state, EngineState::getLatencyMs);
+        }
+        if (engines.isEmpty()) {
+            throw new IllegalStateException("speech.engine.providers 未配置识别引擎");
+        }
+        log.info("识别引擎: {}，路由: {}，对冲: {} ms", engines.stream().map(EngineState::getName)
+                .collect(Collectors.toList()), routing, hedgeMs);
+    }
+
+    @Override
+    public String getName() {
+        return "router";
+    }
+
+    /**
+     * 为一句话打开识别，开启缓存时在句尾未命中后才选择引擎
+     */
+    @Override
+    public RecognitionStream open() {
+        return resultCache.isEnabled() ? resultCache.wrap(this::route) : route();
+    }
+
+    /**
+     * 选择引擎并打开识别
+     */
+    private RecognitionStream route() {
+        List<EngineState> ranked = rank();
+        EngineState primary = ranked.get(0);
+        if (hedgeMs > 0 && ranked.size() > 1) {
+            EngineState secondary = ranked.get(1);
+            return new HedgedStream(primary.open(), secondary.open(), hedgeMs * BYTES_PER_SECOND / 1000, metrics);
+        }
+        return primary.open();
+    }
+
+    /**
+     * 健康的引擎按路由策略排序；没有健康的引擎时按配置顺序返回全部
+     */
+    List<EngineState> rank() {
+        long now = System.currentTimeMillis();
+        List<EngineState> healthy = new ArrayList<>(engines.size());
+        for (EngineState engine : engines) {
+            if (engine.isHealthy(now)) {
+                healthy.add(engine);
+            }
+        }
+        if (healthy.isEmpty()) {
+            return engines;
+        }
+        if (routing == Routing.LATENCY) {
+            // 稳定排序，延迟相同（包括都还没有样本）时保持配置顺序
+            healthy.sort(Comparator.comparingDouble(EngineState::getLatencyMs));
+        }
+        return healthy;
+    }
+
+    /**
+     * 单个引擎的健康和延迟统计
+     */
+    class EngineState {
+        private final RecognitionEngine engine;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        // 最终结果延迟的加权平均（毫秒），0表示还没有样本
+        private volatile double latencyMs;
+        private volatile long unhealthyUntil;
+
+        EngineState(RecognitionEngine engine) {
+            this.engine = engine;
+        }
+
+        String getName() {
+            return engine.getName();
+        }
+
+        double getLatencyMs() {
+            return latencyMs;
+        }
+
+        boolean isHealthy(long now) {
+            return now >= unhealthyUntil;
+        }
+
+        RecognitionStream open() {
+            metrics.recordEngineRequest(getName());
+            return new TrackedStream(engine.open(), this);
+        }
+
+        void succeeded(long finalLatencyNanos) {
+            consecutiveFailures.set(0);
+            double sample = finalLatencyNanos / 1_000_000.0;
+            double current = latencyMs;
+            latencyMs = current == 0 ? sample : current + (sample - current) * LATENCY_ALPHA;
+        }
+
+        void failed(Throwable cause) {
+            metrics.recordEngineFailure(getName());
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                consecutiveFailures.set(0);
+                unhealthyUntil = System.currentTimeMillis() + cooldownMs;
+                log.warn("识别引擎 {} 连续失败 {} 次，{} ms 内不再选择: {}",
+                        getName(), failureThreshold, cooldownMs, cause.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 记录引擎延迟和失败的识别流
+     */
+    private static class TrackedStream implements RecognitionStream {
+        private final RecognitionStream delegate;
+        private final EngineState engine;
+        private volatile long lastFrameAt;
+
+        TrackedStream(RecognitionStream delegate, EngineState engine) {
+            this.delegate = delegate;
+            this.engine = engine;
+            delegate.opened().whenComplete((stream, ex) -> {
+                if (ex != null) {
+                    engine.failed(ex);
+                }
+            });
+        }
+
+        @Override
+        public CompletableFuture<? extends RecognitionStream> opened() {
+            return delegate.opened();
+        }
+
+        @Override
+        public void bind(Consumer<RecognitionResult> resultListener, Consumer<Throwable> failureListener) {
+            delegate.bind(result -> {
+                if (result.getError() != null) {
+                    engine.failed(new IllegalStateException(result.getError()));
+                } else if (result.isFinal() && lastFrameAt != 0) {
+                    engine.succeeded(System.nanoTime() - lastFrameAt);
+                }
+                resultListener.accept(result);
+            }, ex -> {
+                engine.failed(ex);
+                if (failureListener != null) {
+                    failureListener.accept(ex);
+                }
+            });
+        }
+
+        @Override
+        public void markAudioIn(long nanoTime) {
+            delegate.markAudioIn(nanoTime);
+        }
+
+        @Override
+        public void sendFirstFrame(byte[] audioData, int length) {
+            delegate.sendFirstFrame(audioData, length);
+        }
+
+        @Override
+        public void sendContinueFrame(byte[] audioData, int length) {
+            delegate.sendContinueFrame(audioData, length);
+        }
+
+        @Override
+        public void sendLastFrame() {
+            lastFrameAt = System.nanoTime();
+            delegate.sendLastFrame();
+        }
+
+        @Override
+        public long queueSize() {
+            return delegate.queueSize();
+        }
+
+        @Override
+        public void disconnect() {
+            delegate.disconnect();
+        }
+    }
+}
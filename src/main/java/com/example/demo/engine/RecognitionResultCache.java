@@ -0,0 +1,200 @@
+package com.example.demo.engine;
+
+import com.example.demo.audio.AudioFingerprint;
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.config.SpeechExecutorConfig;
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.metrics.SpeechMetrics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 按音频指纹缓存识别结果
+ * IVR类场景中大量语音是重复的短指令和回放的测试音频。开启后，音频照常流式上传、中间结果照常返回，
+ * 同时在本地保留不超过 max-clip-ms 的一句话，句尾计算 {@link AudioFingerprint} 查缓存：
+ * 命中时断开上游，直接回放上次的识别结果，省去等待上游最终结果的时间；
+ * 未命中时照常发送最后一帧，最终结果返回后写入缓存。超过 max-clip-ms 的句子只做流式识别，
+ * 有效音频太短（不足250ms）的句子不查也不写缓存。
+ * 上游连接和上行音频并不节省，未命中时也没有额外延迟。
+ * <p>
+ * 指纹不能当作精确的键：条目按指纹帧数分桶（{@link #BUCKET_FRAMES} 帧一桶），查找时扫描相邻的桶，
+ * 逐条用 {@link AudioFingerprint#matches} 比较帧数和位错误率，只有确认是同一段音频才命中。
+ * 缓存按条目数限制（Caffeine W-TinyLFU，以桶为单位淘汰），命中/未命中、淘汰数和条目数见 speech.result.cache.* 指标
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class RecognitionResultCache {
+
+    private static final int BYTES_PER_SECOND = PcmFormat.IAT.getSampleRate() * PcmFormat.IAT.getFrameSize();
+
+    /**
+     * 每桶覆盖的指纹帧数（160ms），不小于指纹容许的帧数差，查找时只需扫描相邻的桶
+     */
+    private static final int BUCKET_FRAMES = 16;
+
+    /**
+     * 每桶最多的条目数，超过时丢弃最早写入的条目
+     */
+    private static final int MAX_BUCKET_ENTRIES = 32;
+
+    private final SpeechMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+
+    @Value("${speech.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${speech.cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Value("${speech.cache.max-clip-ms:4000}")
+    private long maxClipMs;
+
+    @Value("${speech.cache.ttl-ms:86400000}")
+    private long ttlMs;
+
+    private Cache<Integer, List<Entry>> cache;
+
+    public RecognitionResultCache(SpeechMetrics metrics,
+                                  @Qualifier(SpeechExecutorConfig.SPEECH_SCHEDULER) ScheduledExecutorService scheduler) {
+        this.metrics = metrics;
+        this.scheduler = scheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxEntries)
+                .weigher((Integer bucket, List<Entry> entries) -> entries.size())
+                .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+                .removalListener((Integer bucket, List<Entry> entries, RemovalCause cause) -> {
+                    if (cause.wasEvicted() && entries != null) {
+                        metrics.recordResultCacheEvictions(entries.size());
+                    }
+                })
+                .build();
+        metrics.bindResultCacheSize(cache, c -> c.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        log.info("识别结果缓存已启用，最多 {} 条，缓存 {} ms 以内的句子", maxEntries, maxClipMs);
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * 在一次识别前加上缓存
+     *
+     * @param upstream 第一帧时打开的上游识别，命中缓存时断开
+     */
+    RecognitionStream wrap(Supplier<RecognitionStream> upstream) {
+        return new CachedStream(upstream, this, (int) (maxClipMs * BYTES_PER_SECOND / 1000));
+    }
+
+    /**
+     * 查找同一段音频的识别结果，未命中时返回null
+     */
+    List<RecognitionResult> get(AudioFingerprint fingerprint) {
+        long now = System.currentTimeMillis();
+        Entry best = null;
+        double bestDistance = Double.MAX_VALUE;
+        int bucket = bucket(fingerprint);
+        for (int b = bucket - 1; b <= bucket + 1; b++) {
+            // 通过Map视图读取，相邻桶为空不算一次未命中
+            List<Entry> entries = cache.asMap().get(b);
+            if (entries == null) {
+                continue;
+            }
+            for (Entry entry : entries) {
+                if (now - entry.createdAt > ttlMs) {
+                    continue;
+                }
+                double distance = entry.fingerprint.distance(fingerprint);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = entry;
+                }
+            }
+        }
+        if (best != null && best.fingerprint.matches(fingerprint)) {
+            metrics.recordResultCacheLookup("hit");
+            return best.results;
+        }
+        metrics.recordResultCacheLookup("miss");
+        return null;
+    }
+
+    /**
+     * 写入一句话的识别结果，替换同一段音频的旧结果
+     */
+    void put(AudioFingerprint fingerprint, List<RecognitionResult> results) {
+        long now = System.currentTimeMillis();
+        Entry added = new Entry(fingerprint, results, now);
+        cache.asMap().compute(bucket(fingerprint), (bucket, entries) -> {
+            List<Entry> updated = new ArrayList<>(MAX_BUCKET_ENTRIES);
+            updated.add(added);
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    if (updated.size() == MAX_BUCKET_ENTRIES) {
+                        break;
+                    }
+                    if (now - entry.createdAt <= ttlMs && !entry.fingerprint.matches(fingerprint)) {
+                        updated.add(entry);
+                    }
+                }
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * 句子太短或是静音，无法生成指纹
+     */
+    void recordUncacheable() {
+        metrics.recordResultCacheLookup("uncacheable");
+    }
+
+    /**
+     * 在调度线程上回放缓存的结果，和上游结果一样不占用会话的发送线程
+     */
+    void replay(List<RecognitionResult> results, Consumer<RecognitionResult> listener) {
+        scheduler.execute(() -> results.forEach(listener));
+    }
+
+    private static int bucket(AudioFingerprint fingerprint) {
+        return fingerprint.getFrames() / BUCKET_FRAMES;
+    }
+
+    /**
+     * 一条缓存：指纹用于确认命中，结果按上游返回的顺序回放
+     */
+    private static class Entry {
+        private final AudioFingerprint fingerprint;
+        private final List<RecognitionResult> results;
+        private final long createdAt;
+
+        Entry(AudioFingerprint fingerprint, List<RecognitionResult> results, long createdAt) {
+            this.fingerprint = fingerprint;
+            this.results = results;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.engine;
+
+import com.example.demo.dto.RecognitionResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 一次上游识别：第一帧到最后一帧，结果通过回调推送
+ * 发送方法只由会话的发送线程调用；结果和失败回调在引擎自己的线程上执行
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public interface RecognitionStream {
+
+    /**
+     * 握手完成时完成的Future，握手失败时异常完成
+     * 握手期间发送的帧由实现排队，握手完成后按顺序发出
+     */
+    CompletableFuture<? extends RecognitionStream> opened();
+
+    /**
+     * 绑定结果和中断回调
+     *
+     * @param resultListener  接收识别结果（中间结果、最终结果或错误码）
+     * @param failureListener 握手之后、最终结果之前中断时调用，最多调用一次
+     */
+    void bind(Consumer<RecognitionResult> resultListener, Consumer<Throwable> failureListener);
+
+    /**
+     * 记录第一帧音频进入服务的时间，用于统计首个中间结果的延迟
+     *
+     * @param nanoTime System.nanoTime() 时间戳
+     */
+    void markAudioIn(long nanoTime);
+
+    void sendFirstFrame(byte[] audioData, int length);
+
+    void sendContinueFrame(byte[] audioData, int length);
+
+    /**
+     * 结束音频，识别在最终结果返回后结束
+     */
+    void sendLastFrame();
+
+    /**
+     * 尚未发出的字节数，用于发送端背压
+     */
+    long queueSize();
+
+    /**
+     * 放弃本次识别，之后不再回调
+     */
+    void disconnect();
+}
@@ -0,0 +1,30 @@
+package com.example.demo.engine;
+
+import com.example.demo.client.IatConnectionPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 讯飞听写引擎：每次识别从 {@link IatConnectionPool} 取一个预热连接
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class XfyunRecognitionEngine implements RecognitionEngine {
+
+    public static final String NAME = "xfyun";
+
+    private final IatConnectionPool connectionPool;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public RecognitionStream open() {
+        return connectionPool.acquire();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.exception;
+
+/**
+ * 上游识别服务失败异常
+ * 
+ * @author example
+ * @version 1.0.0
+ */
+public class UpstreamException extends RuntimeException {
+
+    public UpstreamException(String message) {
+        super(message);
+    }
+
+    public UpstreamException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.demo.handler;
+
+import com.example.demo.metrics.SpeechMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 前端会话的发送出口
+ * 发给浏览器的消息都经过这里，由结果发送线程池按入队顺序异步发送。
+ * 上游读线程和Tomcat线程只负责入队，不会被慢速浏览器阻塞。
+ * 底层会话用 {@link ConcurrentWebSocketSessionDecorator} 包装，发送缓冲或单次发送时长超过
+ * spring.websocket.* 的限制时关闭会话。
+ * 转写只在队列中保留一个待发标记，前端跟不上时多次中间结果合并为一条增量。
+ * 发送缓冲按消息发送完成前的字节数计算，合并后的转写从取出增量起计入
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+class ClientOutbox {
+
+    // 待发送的转写标记，发送时才取增量
+    private static final Object TRANSCRIPT = new Object();
+
+    private final ConcurrentWebSocketSessionDecorator session;
+    private final Executor executor;
+    private final Supplier<String> transcript;
+    private final SpeechMetrics metrics;
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingBytes = new AtomicInteger();
+    private final AtomicBoolean transcriptPending = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Runnable flushTask = this::flush;
+
+    /**
+     * @param transcript      取出转写增量的JSON，无变化时返回null
+     * @param sendTimeLimit   单次发送最长时间（毫秒）
+     * @param bufferSizeLimit 未发出消息的最大字节数
+     */
+    ClientOutbox(WebSocketSession session, Executor executor, Supplier<String> transcript,
+                 SpeechMetrics metrics, int sendTimeLimit, int bufferSizeLimit) {
+        this.session = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, bufferSizeLimit);
+        this.executor = executor;
+        this.transcript = transcript;
+        this.metrics = metrics;
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    /**
+     * 发送一条状态或错误消息
+     */
+    void send(String payload) {
+        if (!withinLimits(payload.length())) {
+            return;
+        }
+        pendingBytes.addAndGet(payload.length());
+        pending.offer(payload);
+        schedule();
+    }
+
+    /**
+     * 转写有变化，队列中已有待发转写时本次变化并入其中
+     */
+    void transcriptChanged() {
+        if (!withinLimits(0)) {
+            return;
+        }
+        if (transcriptPending.compareAndSet(false, true)) {
+            pending.offer(TRANSCRIPT);
+            schedule();
+        } else {
+            metrics.getTranscriptsCoalesced().increment();
+        }
+    }
+
+    /**
+     * 会话关闭，丢弃未发送的消息
+     */
+    void close() {
+        Object next;
+        while ((next = pending.poll()) != null) {
+            if (next != TRANSCRIPT) {
+                pendingBytes.addAndGet(-((String) next).length());
+            }
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(flushTask);
+        }
+    }
+
+    /**
+     * 发送线程：依次发出队列中的消息，同一会话同一时刻只有一个发送任务
+     */
+    private void flush() {
+        try {
+            Object next;
+            while ((next = pending.poll()) != null) {
+                String payload;
+                if (next == TRANSCRIPT) {
+                    // 先清标记再取增量，之后的变化会重新入队，不会丢失
+                    transcriptPending.set(false);
+                    payload = transcript.get();
+                    if (payload == null) {
+                        continue;
+                    }
+                    // 合并后的转写发送完成前同样计入发送缓冲
+                    pendingBytes.addAndGet(payload.length());
+                } else {
+                    payload = (String) next;
+                }
+                try {
+                    deliver(payload);
+                } finally {
+                    pendingBytes.addAndGet(-payload.length());
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!pending.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        if (!session.isOpen()) {
+            close();
+            return;
+        }
+        try {
+            session.sendMessage(new TextMessage(payload));
+            log.debug("发送消息到前端: {}", payload);
+        } catch (SessionLimitExceededException e) {
+            terminate(e.getMessage(), e.getStatus());
+        } catch (IOException | RuntimeException e) {
+            metrics.recordResultSendFailure();
+            log.error("发送消息到前端失败: {}", session.getId(), e);
+        }
+    }
+
+    /**
+     * 上一条消息发送过久或积压过多时，按 ConcurrentWebSocketSessionDecorator 的 TERMINATE 策略关闭会话
+     */
+    private boolean withinLimits(int bytes) {
+        long sendingFor = session.getTimeSinceSendStarted();
+        if (sendingFor > sendTimeLimit) {
+            terminate("发送超时 " + sendingFor + " ms", CloseStatus.SESSION_NOT_RELIABLE);
+            return false;
+        }
+        if (pendingBytes.get() + bytes > bufferSizeLimit) {
+            terminate("发送缓冲超过 " + bufferSizeLimit + " bytes", CloseStatus.SESSION_NOT_RELIABLE);
+            return false;
+        }
+        return true;
+    }
+
+    private void terminate(String reason, CloseStatus status) {
+        close();
+        if (!session.isOpen()) {
+            return;
+        }
+        metrics.recordResultSendFailure();
+        log.warn("前端会话 {} 接收过慢，关闭连接: {}", session.getId(), reason);
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.debug("关闭前端会话失败: {}", e.getMessage());
+        }
+    }
+}
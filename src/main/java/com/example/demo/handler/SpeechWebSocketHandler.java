@@ -1,58 +1,93 @@
 package com.example.demo.handler;
 
-import com.example.demo.dto.IatRequest;
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.dto.AudioPacket;
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.dto.TranscriptDelta;
+import com.example.demo.metrics.SpeechMetrics;
 import com.example.demo.service.AudioCaptureService;
+import com.example.demo.service.RecognitionSession;
 import com.example.demo.service.SpeechRecognitionService;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
-import java.io.IOException;
+import javax.websocket.Session;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * 语音WebSocket处理器
+ * 文本消息用于控制命令，二进制消息用于传输PCM音频
  *
  * @author example
  * @version 1.0.0
  */
 @Slf4j
-public class SpeechWebSocketHandler extends TextWebSocketHandler {
+public class SpeechWebSocketHandler extends AbstractWebSocketHandler {
     private static final Logger logger = LoggerFactory.getLogger(SpeechWebSocketHandler.class);
 
-    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    // Tomcat阻塞发送的超时时间（毫秒），与 send-time-limit 保持一致
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final Map<String, ClientOutbox> clients = new ConcurrentHashMap<>();
     private final AudioCaptureService audioCaptureService;
     private final SpeechRecognitionService recognitionService;
+    private final SpeechMetrics metrics;
+    private final Executor sendExecutor;
+    private final int sendTimeLimit;
+    private final int sendBufferSizeLimit;
     private final Gson gson = new Gson();
 
+    /**
+     * @param sendExecutor        向前端发送消息的线程池
+     * @param sendTimeLimit       单次发送最长时间（毫秒）
+     * @param sendBufferSizeLimit 单个会话未发出消息的最大字节数
+     */
     public SpeechWebSocketHandler(AudioCaptureService audioCaptureService,
-                                  SpeechRecognitionService recognitionService) {
+                                  SpeechRecognitionService recognitionService,
+                                  SpeechMetrics metrics,
+                                  Executor sendExecutor,
+                                  int sendTimeLimit,
+                                  int sendBufferSizeLimit) {
         this.audioCaptureService = audioCaptureService;
         this.recognitionService = recognitionService;
+        this.metrics = metrics;
+        this.sendExecutor = sendExecutor;
+        this.sendTimeLimit = sendTimeLimit;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        metrics.bindConnections(clients);
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.put(session.getId(), session);
         logger.info("新的WebSocket连接: {}", session.getId());
+        if (session instanceof NativeWebSocketSession) {
+            Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
+            if (nativeSession != null) {
+                nativeSession.getUserProperties().put(BLOCKING_SEND_TIMEOUT, (long) sendTimeLimit);
+            }
+        }
+
+        // 为该会话创建独立的识别上下文，识别结果只会发送给当前会话
+        RecognitionSession recognitionSession = recognitionService.openSession(session.getId());
+        ClientOutbox outbox = new ClientOutbox(session, sendExecutor,
+                () -> toTranscriptJson(recognitionSession.drainTranscriptDelta()),
+                metrics, sendTimeLimit, sendBufferSizeLimit);
+        clients.put(session.getId(), outbox);
+        recognitionSession.setResultHandler(result -> sendRecognitionResult(outbox, result));
 
         // 发送连接成功消息
-        try {
-            JsonObject connectResponse = new JsonObject();
-            connectResponse.addProperty("type", "status");
-            connectResponse.addProperty("message", "WebSocket connected successfully");
-            session.sendMessage(new TextMessage(gson.toJson(connectResponse)));
-            logger.info("已发送连接成功消息到客户端");
-        } catch (Exception e) {
-            logger.error("发送连接成功消息失败", e);
-        }
+        sendStatus(session, "WebSocket connected successfully");
     }
 
     @Override
@@ -60,120 +95,144 @@ public class SpeechWebSocketHandler extends TextWebSocketHandler {
         String payload = message.getPayload();
         logger.info("收到WebSocket消息: {}", payload);
 
+        String command = payload;
+        JsonObject messageObj = null;
         try {
             // 尝试解析JSON消息
-            JsonObject messageObj = gson.fromJson(payload, JsonObject.class);
+            messageObj = gson.fromJson(payload, JsonObject.class);
             String type = messageObj.get("type").getAsString();
 
-            if ("audio".equals(type)) {
-                // 处理音频数据
-                String audioData = messageObj.get("data").getAsString();
-                logger.debug("收到音频数据，长度: {}", audioData.length());
-
-                // 将Base64音频数据传递给识别服务
-                recognitionService.processAudioData(audioData);
-                return;
-            } else if ("command".equals(type)) {
+            if ("command".equals(type)) {
                 // 处理命令消息
-                String action = messageObj.get("action").getAsString();
-                logger.info("收到命令: {}", action);
-                handleCommand(session, action);
-                return;
+                command = messageObj.get("action").getAsString();
+                logger.info("收到命令: {}", command);
             }
         } catch (Exception e) {
             // 如果不是JSON格式，按原来的方式处理
             logger.debug("消息不是JSON格式，按文本命令处理: {}", payload);
         }
 
-        // 处理文本命令
-        handleCommand(session, payload);
+        // 处理命令（命令执行中的异常不再被当作非JSON消息重复处理）
+        handleCommand(session, command, messageObj);
+    }
+
+    /**
+     * 处理二进制音频消息
+     * 音频以原始PCM发送，避免Base64编码和JSON解析的开销，包格式见 {@link AudioPacket}
+     */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        AudioPacket packet = AudioPacket.parse(message.getPayload());
+        if (packet == null) {
+            logger.warn("音频包长度不足，已丢弃: {} bytes", message.getPayloadLength());
+            return;
+        }
+        recognitionService.processAudioPacket(session.getId(), packet);
     }
 
     /**
      * 处理命令
+     *
+     * @param message 完整的命令消息，纯文本命令时为null
      */
-    private void handleCommand(WebSocketSession session, String command) throws Exception {
+    private void handleCommand(WebSocketSession session, String command, JsonObject message) throws Exception {
         if ("start".equals(command)) {
-            // 设置识别结果处理器，将结果发送给前端
-            recognitionService.setResultHandler(result -> {
-                try {
-                    if (session.isOpen()) {
-                        JsonObject jsonResponse = new JsonObject();
-                        jsonResponse.addProperty("type", "recognition");
-                        jsonResponse.addProperty("text", result.getText() != null ? result.getText() : "");
-                        jsonResponse.addProperty("isFinal", result.isFinal());
-                        jsonResponse.addProperty("confidence", result.getConfidence());
-
-                        String resultJson = gson.toJson(jsonResponse);
-                        session.sendMessage(new TextMessage(resultJson));
-                        logger.info("发送识别结果到前端: {}", resultJson);
-                    }
-                } catch (Exception e) {
-                    logger.error("发送识别结果失败", e);
-                }
-            });
-
-            audioCaptureService.startCapture();
-
-            JsonObject statusResponse = new JsonObject();
-            statusResponse.addProperty("type", "status");
-            statusResponse.addProperty("message", "Audio capture started");
-            session.sendMessage(new TextMessage(gson.toJson(statusResponse)));
-
-            // 添加模拟测试（用于调试）
-            recognitionService.simulateRecognitionResult();
+            // start命令可声明上传音频的格式，例如 {"sampleRate":48000,"channels":2,"encoding":"f32le"}，
+            // 压缩上传时为 {"encoding":"opus"}（裸Opus包或Ogg Opus流）
+            PcmFormat format;
+            try {
+                format = parseAudioFormat(message);
+            } catch (IllegalArgumentException e) {
+                sendError(session, e.getMessage());
+                return;
+            }
+            recognitionService.setInputFormat(session.getId(), format);
+            audioCaptureService.startCapture(session.getId());
+
+            sendStatus(session, "Audio capture started");
 
         } else if ("stop".equals(command)) {
-            audioCaptureService.stopCapture();
-            recognitionService.endRecognition();
+            audioCaptureService.stopCapture(session.getId());
+            recognitionService.endRecognition(session.getId());
 
-            JsonObject stopResponse = new JsonObject();
-            stopResponse.addProperty("type", "status");
-            stopResponse.addProperty("message", "Audio capture stopped");
-            session.sendMessage(new TextMessage(gson.toJson(stopResponse)));
+            sendStatus(session, "Audio capture stopped");
         } else if ("test".equals(command)) {
             logger.info("收到测试命令，开始模拟识别结果");
-            // 测试命令，直接模拟识别结果
-            recognitionService.setResultHandler(result -> {
-                try {
-                    if (session.isOpen()) {
-                        JsonObject jsonResponse = new JsonObject();
-                        jsonResponse.addProperty("type", "recognition");
-                        jsonResponse.addProperty("text", result.getText() != null ? result.getText() : "");
-                        jsonResponse.addProperty("isFinal", result.isFinal());
-                        jsonResponse.addProperty("confidence", result.getConfidence());
-
-                        String resultJson = gson.toJson(jsonResponse);
-                        session.sendMessage(new TextMessage(resultJson));
-                        logger.info("发送测试识别结果到前端: {}", resultJson);
-                    } else {
-                        logger.warn("WebSocket会话已关闭，无法发送结果");
-                    }
-                } catch (Exception e) {
-                    logger.error("发送识别结果失败", e);
-                }
-            });
-
-            logger.info("开始执行模拟识别");
-            recognitionService.simulateRecognitionResult();
-
-            JsonObject testResponse = new JsonObject();
-            testResponse.addProperty("type", "status");
-            testResponse.addProperty("message", "Test recognition started");
-            session.sendMessage(new TextMessage(gson.toJson(testResponse)));
+            recognitionService.simulateRecognitionResult(session.getId());
+
+            sendStatus(session, "Test recognition started");
             logger.info("测试识别命令处理完成");
         } else {
-            JsonObject errorResponse = new JsonObject();
-            errorResponse.addProperty("type", "error");
-            errorResponse.addProperty("message", "Unknown command: " + command);
-            session.sendMessage(new TextMessage(gson.toJson(errorResponse)));
+            sendError(session, "Unknown command: " + command);
         }
     }
 
+    private static PcmFormat parseAudioFormat(JsonObject message) {
+        if (message == null || (!message.has("sampleRate") && !message.has("encoding"))) {
+            return PcmFormat.IAT;
+        }
+        int sampleRate = message.has("sampleRate") ? message.get("sampleRate").getAsInt() : PcmFormat.IAT.getSampleRate();
+        int channels = message.has("channels") ? message.get("channels").getAsInt() : 1;
+        String encoding = message.has("encoding") ? message.get("encoding").getAsString() : null;
+        return PcmFormat.of(sampleRate, channels, encoding);
+    }
+
+    /**
+     * 将识别结果交给对应前端会话的发送出口，在讯飞读线程上调用，不阻塞
+     * 正常结果只发送转写文本中发生变化的尾部（见 {@link TranscriptDelta}），发送时才取增量，
+     * 前端落后时多个中间结果合并为一条；错误单独发送
+     */
+    private void sendRecognitionResult(ClientOutbox outbox, RecognitionResult result) {
+        if (result.getError() != null) {
+            outbox.send(toMessageJson("error", result.getError()));
+        } else {
+            outbox.transcriptChanged();
+        }
+    }
+
+    private String toTranscriptJson(TranscriptDelta delta) {
+        if (delta == null) {
+            return null;
+        }
+        JsonObject jsonResponse = new JsonObject();
+        jsonResponse.addProperty("type", "transcript");
+        jsonResponse.addProperty("offset", delta.getOffset());
+        jsonResponse.addProperty("remove", delta.getRemove());
+        jsonResponse.addProperty("text", delta.getText());
+        jsonResponse.addProperty("isFinal", delta.isFinal());
+        return gson.toJson(jsonResponse);
+    }
+
+    private void sendStatus(WebSocketSession session, String message) {
+        send(session, toMessageJson("status", message));
+    }
+
+    private void sendError(WebSocketSession session, String message) {
+        send(session, toMessageJson("error", message));
+    }
+
+    private void send(WebSocketSession session, String json) {
+        ClientOutbox outbox = clients.get(session.getId());
+        if (outbox != null) {
+            outbox.send(json);
+        }
+    }
+
+    private String toMessageJson(String type, String message) {
+        JsonObject response = new JsonObject();
+        response.addProperty("type", type);
+        response.addProperty("message", message);
+        return gson.toJson(response);
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session.getId());
-        audioCaptureService.stopCapture();
+        ClientOutbox outbox = clients.remove(session.getId());
+        if (outbox != null) {
+            outbox.close();
+        }
+        audioCaptureService.stopCapture(session.getId());
+        recognitionService.closeSession(session.getId());
         logger.info("WebSocket连接关闭: {}, 状态: {}", session.getId(), status);
         super.afterConnectionClosed(session, status);
     }
@@ -0,0 +1,255 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * 语音识别链路的Micrometer指标
+ * 指标不按会话打标签，会话数多时也不会产生大量时间序列
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Component
+public class SpeechMetrics {
+
+    private final MeterRegistry registry;
+    private final Counter queueDroppedFrames;
+    private final Counter queueCoalescedFrames;
+    private final Counter upstreamBackpressure;
+    private final Timer firstPartialLatency;
+    private final Timer finalLatency;
+    private final Timer conversionTime;
+    private final Counter bytesIn;
+    private final Counter bytesConverted;
+    private final Counter bytesOut;
+    private final Counter transcriptsCoalesced;
+    private final Counter captureOverruns;
+
+    public SpeechMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.queueDroppedFrames = Counter.builder("speech.audio.queue.dropped")
+                .description("发送队列满时丢弃的音频帧数")
+                .baseUnit("frames")
+                .register(registry);
+        this.queueCoalescedFrames = Counter.builder("speech.audio.queue.coalesced")
+                .description("发送队列满时合并进队尾的音频帧数")
+                .baseUnit("frames")
+                .register(registry);
+        this.upstreamBackpressure = Counter.builder("speech.upstream.backpressure")
+                .description("上游发送缓冲超限导致发送暂停的次数")
+                .register(registry);
+        this.firstPartialLatency = Timer.builder("speech.latency.first-partial")
+                .description("从一句话的第一帧音频进入服务到收到第一个中间结果")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.finalLatency = Timer.builder("speech.latency.final")
+                .description("从发送最后一帧到收到最终结果")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.conversionTime = Timer.builder("speech.audio.conversion")
+                .description("单个音频包的格式转换耗时")
+                .register(registry);
+        this.bytesIn = Counter.builder("speech.audio.bytes.in")
+                .description("前端上传的音频字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        this.bytesConverted = Counter.builder("speech.audio.bytes.converted")
+                .description("转换为16kHz单声道PCM后的字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        this.bytesOut = Counter.builder("speech.upstream.bytes.out")
+                .description("发送给讯飞的PCM音频字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        this.transcriptsCoalesced = Counter.builder("speech.ws.transcript.coalesced")
+                .description("前端接收落后时合并进待发增量的中间结果数")
+                .register(registry);
+        this.captureOverruns = Counter.builder("speech.capture.overruns")
+                .description("服务器麦克风采集缓冲已满时丢弃的音频帧数")
+                .baseUnit("frames")
+                .register(registry);
+    }
+
+    /**
+     * 注册当前识别会话数指标
+     */
+    public void bindActiveSessions(Map<?, ?> sessions) {
+        Gauge.builder("speech.sessions.active", sessions, Map::size)
+                .description("当前识别会话数")
+                .register(registry);
+    }
+
+    /**
+     * 注册当前WebSocket连接数指标
+     */
+    public void bindConnections(Map<?, ?> connections) {
+        Gauge.builder("speech.ws.connections", connections, Map::size)
+                .description("当前前端WebSocket连接数")
+                .register(registry);
+    }
+
+    /**
+     * 上游帧发送失败
+     *
+     * @param frame first / continue / last
+     */
+    public void recordSendFailure(String frame) {
+        registry.counter("speech.upstream.send.failures", "frame", frame).increment();
+    }
+
+    /**
+     * 上游返回错误码或连接失败
+     *
+     * @param code 讯飞错误码，连接失败时为 connect，识别中途断开为 reset
+     */
+    public void recordUpstreamError(String code) {
+        registry.counter("speech.upstream.errors", "code", code).increment();
+    }
+
+    /**
+     * 上游中断后的重连续传
+     *
+     * @param outcome attempt（安排一次重连）/ resumed（新连接已重放尾部音频）/ failed（重连次数用尽，放弃本句）
+     */
+    public void recordReconnect(String outcome) {
+        registry.counter("speech.upstream.reconnects", "outcome", outcome).increment();
+    }
+
+    /**
+     * 路由为一句话打开了某个引擎的识别（对冲时两个引擎各计一次）
+     */
+    public void recordEngineRequest(String engine) {
+        registry.counter("speech.engine.requests", "engine", engine).increment();
+    }
+
+    /**
+     * 引擎握手失败、识别中断或返回错误码
+     */
+    public void recordEngineFailure(String engine) {
+        registry.counter("speech.engine.failures", "engine", engine).increment();
+    }
+
+    /**
+     * 对冲识别的结果
+     *
+     * @param outcome primary / secondary（先返回结果的一方）/ expired（对冲窗口内都没有结果，保留主引擎）
+     */
+    public void recordHedge(String outcome) {
+        registry.counter("speech.engine.hedges", "outcome", outcome).increment();
+    }
+
+    /**
+     * 注册引擎最终结果延迟（路由使用的加权平均）指标
+     */
+    public <T> void bindEngineLatency(String engine, T state, ToDoubleFunction<T> latencyMs) {
+        Gauge.builder("speech.engine.latency", state, latencyMs)
+                .description("引擎最终结果延迟的指数加权平均")
+                .tag("engine", engine)
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    /**
+     * 识别结果缓存查找
+     *
+     * @param result hit / miss / uncacheable（静音或有效音频太短，不查缓存）
+     */
+    public void recordResultCacheLookup(String result) {
+        registry.counter("speech.result.cache.lookups", "result", result).increment();
+    }
+
+    /**
+     * 识别结果缓存超出容量时淘汰的条目数
+     */
+    public void recordResultCacheEvictions(int entries) {
+        registry.counter("speech.result.cache.evictions").increment(entries);
+    }
+
+    /**
+     * 注册识别结果缓存条目数指标
+     */
+    public <T> void bindResultCacheSize(T cache, ToDoubleFunction<T> entries) {
+        Gauge.builder("speech.result.cache.size", cache, entries)
+                .description("识别结果缓存的条目数")
+                .register(registry);
+    }
+
+    /**
+     * 识别结果发送给前端失败
+     */
+    public void recordResultSendFailure() {
+        registry.counter("speech.ws.send.failures").increment();
+    }
+
+    /**
+     * 注册发送队列深度指标：所有会话排队帧数之和与单个会话的最大值
+     *
+     * @param sessions   当前会话集合（实时视图）
+     * @param queueDepth 取单个会话的排队帧数
+     */
+    public <T> void bindQueueDepth(Collection<T> sessions, ToIntFunction<T> queueDepth) {
+        Gauge.builder("speech.audio.queue.depth", sessions,
+                s -> s.stream().mapToInt(queueDepth).sum())
+                .description("所有会话发送队列中的音频帧数")
+                .baseUnit("frames")
+                .register(registry);
+        Gauge.builder("speech.audio.queue.depth.max", sessions,
+                s -> s.stream().mapToInt(queueDepth).max().orElse(0))
+                .description("单个会话发送队列的最大帧数")
+                .baseUnit("frames")
+                .register(registry);
+    }
+
+    public Counter getQueueDroppedFrames() {
+        return queueDroppedFrames;
+    }
+
+    public Counter getQueueCoalescedFrames() {
+        return queueCoalescedFrames;
+    }
+
+    public Counter getUpstreamBackpressure() {
+        return upstreamBackpressure;
+    }
+
+    public Timer getFirstPartialLatency() {
+        return firstPartialLatency;
+    }
+
+    public Timer getFinalLatency() {
+        return finalLatency;
+    }
+
+    public Timer getConversionTime() {
+        return conversionTime;
+    }
+
+    public Counter getBytesIn() {
+        return bytesIn;
+    }
+
+    public Counter getBytesConverted() {
+        return bytesConverted;
+    }
+
+    public Counter getBytesOut() {
+        return bytesOut;
+    }
+
+    public Counter getTranscriptsCoalesced() {
+        return transcriptsCoalesced;
+    }
+
+    public Counter getCaptureOverruns() {
+        return captureOverruns;
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.demo.service;
 
+import com.example.demo.audio.AudioFrameRing;
+import com.example.demo.metrics.SpeechMetrics;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import javax.sound.sampled.*;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 音频捕获服务
+ * 采集线程（高优先级）只从麦克风读取音频，直接读入 {@link AudioFrameRing} 的预分配帧；
+ * 分发线程取出整帧交给识别服务。识别处理变慢时采集不受影响，环形缓冲满时丢弃新读到的帧并计入 speech.capture.overruns
  *
  * @author example
  * @version 1.0.0
@@ -18,10 +25,24 @@ import javax.sound.sampled.*;
 public class AudioCaptureService {
     private static final Logger logger = LoggerFactory.getLogger(AudioCaptureService.class);
 
+    // 每40ms的音频数据 (16000Hz * 16bit * 1channel * 0.04s / 8 = 1280 bytes)
+    private static final int FRAME_SIZE = 1280;
+    // 分发线程空闲时的最长等待，采集线程提交帧时会提前唤醒
+    private static final long DISPATCH_PARK_NANOS = 10_000_000L;
+    private static final long JOIN_TIMEOUT_MS = 1000;
+
     private final SpeechRecognitionService recognitionService;
+    private final SpeechMetrics metrics;
+
+    @Value("${speech.capture.ring-frames:64}")
+    private int ringFrames;
 
     private TargetDataLine targetDataLine;
-    private boolean isCapturing = false;
+    private volatile boolean isCapturing = false;
+    // 当前占用麦克风的识别会话（服务器只有一个采集设备）
+    private String ownerSessionId;
+    private Thread captureThread;
+    private Thread dispatchThread;
 
     // 音频格式配置
     private static final AudioFormat AUDIO_FORMAT = new AudioFormat(
@@ -32,9 +53,9 @@ public class AudioCaptureService {
             false   // 小端序
     );
 
-    public void startCapture() {
+    public synchronized void startCapture(String sessionId) {
         if (isCapturing) {
-            logger.warn("Audio capture is already running");
+            logger.warn("Audio capture is already running for session {}", ownerSessionId);
             return;
         }
 
@@ -45,31 +66,99 @@ public class AudioCaptureService {
             targetDataLine.start();
 
             isCapturing = true;
-            new Thread(this::captureAudio).start();
-            logger.info("Audio capture started");
-        } catch (LineUnavailableException e) {
+            ownerSessionId = sessionId;
+            AudioFrameRing ring = new AudioFrameRing(ringFrames, FRAME_SIZE);
+            dispatchThread = new Thread(() -> dispatchFrames(sessionId, ring), "audio-dispatch");
+            dispatchThread.setDaemon(true);
+            TargetDataLine line = targetDataLine;
+            Thread dispatcher = dispatchThread;
+            captureThread = new Thread(() -> captureAudio(line, ring, dispatcher), "audio-capture");
+            captureThread.setDaemon(true);
+            captureThread.setPriority(Thread.MAX_PRIORITY);
+            dispatchThread.start();
+            captureThread.start();
+            logger.info("Audio capture started, ring: {} frames", ring.capacity());
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            // 没有麦克风的服务器上 AudioSystem.getLine 会抛出 IllegalArgumentException
             logger.error("Failed to start audio capture", e);
         }
     }
 
-    public void stopCapture() {
+    public synchronized void stopCapture(String sessionId) {
+        if (ownerSessionId != null && !ownerSessionId.equals(sessionId)) {
+            return;
+        }
+        ownerSessionId = null;
         isCapturing = false;
         if (targetDataLine != null) {
+            // 关闭设备使阻塞中的read返回，采集线程随后退出
             targetDataLine.stop();
             targetDataLine.close();
+            targetDataLine = null;
+            join(captureThread);
+            join(dispatchThread);
+            captureThread = null;
+            dispatchThread = null;
             logger.info("Audio capture stopped");
         }
     }
 
-    private void captureAudio() {
-        int frameSize = 1280; // 每40ms的音频数据 (16000Hz * 16bit * 1channel * 0.04s / 8 = 1280 bytes)
-        byte[] buffer = new byte[frameSize];
+    @PreDestroy
+    public void destroy() {
+        stopCapture(ownerSessionId);
+    }
 
+    /**
+     * 采集线程：把麦克风音频直接读入环形缓冲的空闲帧，缓冲满时读入丢弃缓冲以免设备缓冲溢出
+     */
+    private void captureAudio(TargetDataLine line, AudioFrameRing ring, Thread dispatcher) {
+        byte[] discard = new byte[FRAME_SIZE];
         while (isCapturing) {
-            int bytesRead = targetDataLine.read(buffer, 0, frameSize);
-            if (bytesRead > 0) {
-                recognitionService.processAudioFrame(buffer, bytesRead);
+            byte[] frame = ring.claim();
+            int bytesRead = line.read(frame != null ? frame : discard, 0, FRAME_SIZE);
+            if (bytesRead <= 0) {
+                continue;
             }
+            if (frame == null) {
+                metrics.getCaptureOverruns().increment();
+                continue;
+            }
+            ring.commit(bytesRead);
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    /**
+     * 分发线程：按顺序把整帧交给识别服务，停止采集后处理完剩余的帧再退出
+     */
+    private void dispatchFrames(String sessionId, AudioFrameRing ring) {
+        while (true) {
+            byte[] frame = ring.peek();
+            if (frame == null) {
+                if (!isCapturing && ring.size() == 0) {
+                    return;
+                }
+                LockSupport.parkNanos(this, DISPATCH_PARK_NANOS);
+                continue;
+            }
+            try {
+                recognitionService.processAudioFrame(sessionId, frame, ring.peekLength());
+            } catch (RuntimeException e) {
+                logger.error("分发采集音频失败", e);
+            } finally {
+                ring.release();
+            }
+        }
+    }
+
+    private static void join(Thread thread) {
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        try {
+            thread.join(JOIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+}
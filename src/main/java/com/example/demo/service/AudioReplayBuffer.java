@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+/**
+ * 上游重放缓冲
+ * 保存当前这句话最近上传的一段PCM（环形缓冲，写满后覆盖最旧的数据）。
+ * 上游连接中途断开时，用新连接重放这段尾部音频，接上断开前尚未返回结果的部分。
+ * 只在会话的发送线程中访问（sendLock保护），非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class AudioReplayBuffer {
+
+    private final byte[] buffer;
+    private int start;
+    private int size;
+
+    /**
+     * @param capacity 保留的最大字节数
+     */
+    public AudioReplayBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * 追加一段已上传的音频，超出容量时丢弃最旧的数据
+     */
+    public void append(byte[] data, int offset, int length) {
+        if (length >= buffer.length) {
+            System.arraycopy(data, offset + length - buffer.length, buffer, 0, buffer.length);
+            start = 0;
+            size = buffer.length;
+            return;
+        }
+
+        int end = (start + size) % buffer.length;
+        int first = Math.min(length, buffer.length - end);
+        System.arraycopy(data, offset, buffer, end, first);
+        System.arraycopy(data, offset + first, buffer, 0, length - first);
+
+        int overflow = size + length - buffer.length;
+        if (overflow > 0) {
+            start = (start + overflow) % buffer.length;
+            size = buffer.length;
+        } else {
+            size += length;
+        }
+    }
+
+    /**
+     * 按时间顺序复制缓冲中的音频
+     *
+     * @param target 长度不小于 {@link #size()}
+     * @return 复制的字节数
+     */
+    public int copyTo(byte[] target) {
+        int first = Math.min(size, buffer.length - start);
+        System.arraycopy(buffer, start, target, 0, first);
+        System.arraycopy(buffer, 0, target, first, size - first);
+        return size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+}
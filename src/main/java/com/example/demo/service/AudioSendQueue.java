@@ -0,0 +1,304 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * 识别会话的有界音频发送队列
+ * 接收线程（Tomcat WebSocket线程或采集线程）写入，发送线程取出后上传讯飞。
+ * 环形缓冲的槽位复用，队列占用内存不超过 容量 × 单帧最大长度。
+ * 队列满时按 {@link OverflowPolicy} 处理，结束标记永远不会被丢弃或合并。
+ * 线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class AudioSendQueue {
+
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 写入方最多等待 blockTimeoutMs，仍然满时丢弃最旧的音频帧
+         */
+        BLOCK,
+        /**
+         * 丢弃最旧的音频帧
+         */
+        DROP_OLDEST,
+        /**
+         * 新音频追加到队尾帧，合并后超过 maxCoalescedBytes 时丢弃最旧的音频帧
+         */
+        COALESCE
+    }
+
+    /**
+     * {@link #poll(Frame)} 的结果
+     */
+    public enum Entry {
+        EMPTY, AUDIO, END
+    }
+
+    /**
+     * 发送线程复用的取出缓冲
+     */
+    public static class Frame {
+        private byte[] data = new byte[0];
+        private int length;
+        private long enqueuedAt;
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * 帧进入队列的时间（System.nanoTime），合并帧为最早一段的时间
+         */
+        public long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+    }
+
+    private final byte[][] slots;
+    private final int[] lengths;
+    private final boolean[] endMarks;
+    private final long[] enqueuedAt;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutMs;
+    private final int maxCoalescedBytes;
+    private final Counter droppedFrames;
+    private final Counter coalescedFrames;
+
+    private int head;
+    private int size;
+    private int bytes;
+    private boolean draining;
+
+    /**
+     * @param droppedFrames   因队列满被丢弃的音频帧计数
+     * @param coalescedFrames 被合并进队尾帧的音频帧计数
+     */
+    public AudioSendQueue(int capacity, OverflowPolicy policy, long blockTimeoutMs, int maxCoalescedBytes,
+                          Counter droppedFrames, Counter coalescedFrames) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("队列容量至少为2: " + capacity);
+        }
+        this.slots = new byte[capacity][];
+        this.lengths = new int[capacity];
+        this.endMarks = new boolean[capacity];
+        this.enqueuedAt = new long[capacity];
+        this.policy = policy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.maxCoalescedBytes = maxCoalescedBytes;
+        this.droppedFrames = droppedFrames;
+        this.coalescedFrames = coalescedFrames;
+    }
+
+    /**
+     * 写入一帧音频
+     *
+     * @return 需要调度发送线程时返回true（队列此前空闲）
+     */
+    public synchronized boolean offer(byte[] data, int offset, int length) {
+        if (size == slots.length && !makeRoom(data, offset, length)) {
+            return scheduleIfIdle();
+        }
+        int index = (head + size) % slots.length;
+        byte[] slot = slots[index];
+        if (slot == null || slot.length < length) {
+            slot = new byte[length];
+            slots[index] = slot;
+        }
+        System.arraycopy(data, offset, slot, 0, length);
+        lengths[index] = length;
+        endMarks[index] = false;
+        enqueuedAt[index] = System.nanoTime();
+        size++;
+        bytes += length;
+        return scheduleIfIdle();
+    }
+
+    /**
+     * 写入结束标记（发送最后一帧）
+     * 队列已满时丢弃最旧的音频帧为结束标记腾出位置
+     *
+     * @return 需要调度发送线程时返回true
+     */
+    public synchronized boolean offerEnd() {
+        if (size > 0 && endMarks[(head + size - 1) % slots.length]) {
+            return scheduleIfIdle();
+        }
+        if (size == slots.length && !dropOldestAudio()) {
+            return scheduleIfIdle();
+        }
+        int index = (head + size) % slots.length;
+        lengths[index] = 0;
+        endMarks[index] = true;
+        size++;
+        return scheduleIfIdle();
+    }
+
+    /**
+     * 取出队首，数据复制到frame中
+     * 返回EMPTY时发送线程结束本轮调度，之后的写入会重新调度
+     */
+    public synchronized Entry poll(Frame frame) {
+        if (size == 0) {
+            draining = false;
+            return Entry.EMPTY;
+        }
+        Entry entry = endMarks[head] ? Entry.END : Entry.AUDIO;
+        if (entry == Entry.AUDIO) {
+            int length = lengths[head];
+            if (frame.data.length < length) {
+                frame.data = new byte[length];
+            }
+            System.arraycopy(slots[head], 0, frame.data, 0, length);
+            frame.length = length;
+            frame.enqueuedAt = enqueuedAt[head];
+            bytes -= length;
+        }
+        head = (head + 1) % slots.length;
+        size--;
+        if (policy == OverflowPolicy.BLOCK) {
+            notifyAll();
+        }
+        return entry;
+    }
+
+    /**
+     * 发送线程因上游拥塞暂停时调用，结束本轮调度
+     *
+     * @return 队列仍有数据、需要稍后重新调度时返回true
+     */
+    public synchronized boolean pause() {
+        draining = size > 0;
+        return draining;
+    }
+
+    /**
+     * 清空队列（会话关闭时）
+     */
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+        bytes = 0;
+        notifyAll();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 队列中音频的总字节数（不含结束标记）
+     */
+    public synchronized int bytes() {
+        return bytes;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    private boolean scheduleIfIdle() {
+        if (draining || size == 0) {
+            return false;
+        }
+        draining = true;
+        return true;
+    }
+
+    /**
+     * 队列满时按策略腾出位置
+     *
+     * @return 新帧仍需入队时返回true，已合并进队尾时返回false
+     */
+    private boolean makeRoom(byte[] data, int offset, int length) {
+        switch (policy) {
+            case BLOCK:
+                long deadline = System.currentTimeMillis() + blockTimeoutMs;
+                long remaining = blockTimeoutMs;
+                while (size == slots.length && remaining > 0) {
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                return size < slots.length || dropOldestOrIncoming();
+            case COALESCE:
+                int tail = (head + size - 1) % slots.length;
+                if (!endMarks[tail] && lengths[tail] + length <= maxCoalescedBytes) {
+                    appendToSlot(tail, data, offset, length);
+                    coalescedFrames.increment();
+                    return false;
+                }
+                return dropOldestOrIncoming();
+            default:
+                return dropOldestOrIncoming();
+        }
+    }
+
+    /**
+     * 丢弃最旧的音频帧，队列中只剩结束标记时丢弃新帧
+     */
+    private boolean dropOldestOrIncoming() {
+        if (dropOldestAudio()) {
+            return true;
+        }
+        droppedFrames.increment();
+        return false;
+    }
+
+    private void appendToSlot(int index, byte[] data, int offset, int length) {
+        int total = lengths[index] + length;
+        byte[] slot = slots[index];
+        if (slot.length < total) {
+            byte[] grown = new byte[total];
+            System.arraycopy(slot, 0, grown, 0, lengths[index]);
+            slot = grown;
+            slots[index] = slot;
+        }
+        System.arraycopy(data, offset, slot, lengths[index], length);
+        lengths[index] = total;
+        bytes += length;
+    }
+
+    /**
+     * 丢弃最旧的音频帧，结束标记保留并保持顺序
+     *
+     * @return 队列中没有可丢弃的音频帧时返回false
+     */
+    private boolean dropOldestAudio() {
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % slots.length;
+            if (endMarks[index]) {
+                continue;
+            }
+            bytes -= lengths[index];
+            // 把之前的结束标记整体后移一格，覆盖被丢弃的帧
+            for (int j = i; j > 0; j--) {
+                int to = (head + j) % slots.length;
+                int from = (head + j - 1) % slots.length;
+                byte[] slot = slots[to];
+                slots[to] = slots[from];
+                slots[from] = slot;
+                lengths[to] = lengths[from];
+                endMarks[to] = endMarks[from];
+                enqueuedAt[to] = enqueuedAt[from];
+            }
+            head = (head + 1) % slots.length;
+            size--;
+            droppedFrames.increment();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import com.example.demo.config.SpeechExecutorConfig;
+import com.example.demo.engine.RecognitionStream;
+import com.example.demo.metrics.SpeechMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游音频发送调度
+ * 所有会话共用语音调度线程池（{@link SpeechExecutorConfig#speechScheduler}），
+ * 每个会话的发送队列同一时刻最多被一个线程处理（见 {@link AudioSendQueue#poll}），
+ * 上游WebSocket发送缓冲超过 upstream-queue-limit-bytes 时暂停发送，音频留在会话的有界队列中
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class AudioSendScheduler {
+
+    private final SpeechMetrics metrics;
+    private final ScheduledExecutorService executor;
+
+    @Value("${speech.queue.upstream-queue-limit-bytes:65536}")
+    private long upstreamQueueLimitBytes;
+
+    @Value("${speech.queue.retry-delay-ms:20}")
+    private long retryDelayMs;
+
+    public AudioSendScheduler(SpeechMetrics metrics,
+                              @Qualifier(SpeechExecutorConfig.SPEECH_SCHEDULER) ScheduledExecutorService executor) {
+        this.metrics = metrics;
+        this.executor = executor;
+    }
+
+    /**
+     * 立即调度一次发送
+     */
+    void schedule(Runnable drain) {
+        executor.execute(drain);
+    }
+
+    /**
+     * 上游拥塞时稍后重试
+     */
+    void retryLater(Runnable drain) {
+        metrics.getUpstreamBackpressure().increment();
+        executor.schedule(drain, retryDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 延迟执行（上游重连退避）
+     */
+    void scheduleAfter(Runnable task, long delayMs) {
+        executor.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    SpeechMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 上游连接的发送缓冲是否已超过上限
+     */
+    boolean isCongested(RecognitionStream connection) {
+        return connection.queueSize() > upstreamQueueLimitBytes;
+    }
+}
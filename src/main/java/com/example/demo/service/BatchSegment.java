@@ -0,0 +1,166 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.engine.RecognitionEngine;
+import com.example.demo.engine.RecognitionStream;
+import com.example.demo.exception.UpstreamException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 离线转写的一个音频片段
+ * 从临时文件按位置读取PCM，在 {@link AudioSendScheduler} 的发送线程上不限速上传，
+ * 上游发送缓冲超限时让出线程稍后继续。片段音频都在磁盘上，上游中断时用新连接从头重传整个片段
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class BatchSegment implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(BatchSegment.class);
+    private static final int FRAME_BYTES = 1280;
+
+    private final String id;
+    private final FileChannel audio;
+    private final long start;
+    private final long end;
+    private final RecognitionEngine engine;
+    private final AudioSendScheduler sendScheduler;
+    private final RecognitionSession.Reconnect reconnect;
+    private final CompletableFuture<String> result = new CompletableFuture<>();
+    private final ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+
+    // 以下字段只在持有this锁时访问
+    private TranscriptAssembler transcript;
+    private RecognitionStream connection;
+    private long position;
+    private int attempts;
+
+    /**
+     * @param start 片段在文件中的起始字节
+     * @param end   片段在文件中的结束字节（不含）
+     */
+    BatchSegment(String id, FileChannel audio, long start, long end, RecognitionEngine engine,
+                 AudioSendScheduler sendScheduler, RecognitionSession.Reconnect reconnect) {
+        this.id = id;
+        this.audio = audio;
+        this.start = start;
+        this.end = end;
+        this.engine = engine;
+        this.sendScheduler = sendScheduler;
+        this.reconnect = reconnect;
+    }
+
+    /**
+     * 片段的转写文本，失败时异常完成
+     */
+    CompletableFuture<String> result() {
+        return result;
+    }
+
+    /**
+     * 发送线程：上传片段音频，上游拥塞时稍后重试
+     */
+    @Override
+    public synchronized void run() {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            if (connection == null) {
+                openUpstream();
+            }
+            // 握手失败可能在当前线程中同步回调，此时 connection 已被置为null并安排了重传
+            while (position < end && connection != null) {
+                if (sendScheduler.isCongested(connection)) {
+                    sendScheduler.retryLater(this);
+                    return;
+                }
+                frame.clear();
+                frame.limit((int) Math.min(FRAME_BYTES, end - position));
+                while (frame.hasRemaining()) {
+                    if (audio.read(frame, position + frame.position()) < 0) {
+                        throw new EOFException("音频文件在 " + position + " 处结束");
+                    }
+                }
+                if (position == start) {
+                    connection.sendFirstFrame(frame.array(), frame.limit());
+                } else {
+                    connection.sendContinueFrame(frame.array(), frame.limit());
+                }
+                position += frame.limit();
+            }
+            if (connection != null) {
+                connection.sendLastFrame();
+            }
+        } catch (IOException | RuntimeException e) {
+            abort(e);
+        }
+    }
+
+    /**
+     * 放弃片段（其他片段失败、超时或请求出错）
+     */
+    synchronized void abort(Throwable cause) {
+        if (result.completeExceptionally(cause) && connection != null) {
+            connection.disconnect();
+            connection = null;
+        }
+    }
+
+    private void openUpstream() {
+        RecognitionStream upstream = engine.open();
+        connection = upstream;
+        transcript = new TranscriptAssembler();
+        position = start;
+        upstream.bind(r -> onResult(upstream, r), ex -> onFailure(upstream, ex));
+        upstream.opened().exceptionally(ex -> {
+            onFailure(upstream, ex);
+            return null;
+        });
+    }
+
+    /**
+     * 上游结果（OkHttp线程），旧连接的迟到结果忽略
+     */
+    private synchronized void onResult(RecognitionStream upstream, RecognitionResult recognitionResult) {
+        if (upstream != connection) {
+            return;
+        }
+        if (recognitionResult.getError() != null) {
+            abort(new UpstreamException("片段 " + id + " 识别失败: " + recognitionResult.getError()));
+            return;
+        }
+        transcript.apply(recognitionResult);
+        if (recognitionResult.isFinal()) {
+            connection = null;
+            result.complete(transcript.getText());
+        }
+    }
+
+    /**
+     * 上游连接失败或在最终结果前中断（OkHttp线程），按退避从片段开头重传
+     */
+    private synchronized void onFailure(RecognitionStream upstream, Throwable cause) {
+        if (upstream != connection || result.isDone()) {
+            return;
+        }
+        connection = null;
+        upstream.disconnect();
+        if (attempts >= reconnect.getMaxAttempts()) {
+            sendScheduler.getMetrics().recordReconnect("failed");
+            abort(new UpstreamException("片段 " + id + " 上游连接失败: " + cause.getMessage(), cause));
+            return;
+        }
+        long delayMs = reconnect.getBackoffMs() << Math.min(attempts, 10);
+        attempts++;
+        sendScheduler.getMetrics().recordReconnect("attempt");
+        logger.warn("片段 {} 上游连接中断，{} ms 后第 {} 次重传: {}", id, delayMs, attempts, cause.getMessage());
+        sendScheduler.scheduleAfter(this, delayMs);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.demo.service;
+
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.audio.PcmStreamConverter;
+import com.example.demo.audio.VoiceActivityDetector;
+import com.example.demo.dto.TranscriptionResult;
+import com.example.demo.engine.RecognitionEngine;
+import com.example.demo.exception.UpstreamException;
+import com.example.demo.util.AudioConverter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 离线批量转写服务
+ * 上传的音频边接收边转换为16kHz单声道PCM写入临时文件，同时用VAD在停顿处切分。
+ * 每切出一个片段就提交识别，片段在多个上游连接上并行、不限速上传（全局并发数受 concurrency 限制），
+ * 全部完成后按顺序拼接转写。纯静音片段不提交
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchTranscriptionService {
+    private static final Logger logger = LoggerFactory.getLogger(BatchTranscriptionService.class);
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    // VAD分析的帧长（40ms）
+    private static final int FRAME_BYTES = 1280;
+    private static final int BYTES_PER_SECOND = PcmFormat.IAT.getSampleRate() * PcmFormat.IAT.getFrameSize();
+
+    private final RecognitionEngine engine;
+    private final AudioConverter audioConverter;
+    private final AudioSendScheduler sendScheduler;
+    private final SpeechRecognitionService recognitionService;
+
+    private final Queue<BatchSegment> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong jobs = new AtomicLong();
+
+    @Value("${speech.batch.concurrency:8}")
+    private int concurrency;
+
+    @Value("${speech.batch.pause-split-ms:20000}")
+    private long pauseSplitMs;
+
+    @Value("${speech.batch.min-pause-ms:300}")
+    private long minPauseMs;
+
+    @Value("${speech.batch.max-segment-ms:55000}")
+    private long maxSegmentMs;
+
+    @Value("${speech.batch.segment-timeout-ms:120000}")
+    private long segmentTimeoutMs;
+
+    /**
+     * 转写一段完整音频
+     * 在调用线程中读完输入并切分，识别在发送线程上异步进行
+     *
+     * @param audio  WAV、Ogg Opus或PCM音频，PCM时按 format 解析
+     * @param format 未带WAV或Ogg文件头时的音频格式
+     * @return 按顺序拼接的转写结果；上游失败时以 {@link UpstreamException} 异常完成
+     * @throws IllegalArgumentException 音频格式不支持
+     */
+    public CompletableFuture<TranscriptionResult> transcribe(InputStream audio, PcmFormat format) throws IOException {
+        long startedAt = System.nanoTime();
+        String jobId = "batch-" + jobs.incrementAndGet();
+        // 文件只在本次转写期间使用，关闭时删除
+        FileChannel channel = FileChannel.open(Files.createTempFile("speech-" + jobId + "-", ".pcm"),
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        List<BatchSegment> segments = new ArrayList<>();
+        long totalBytes;
+        try {
+            totalBytes = split(jobId, audio, format, channel, segments);
+        } catch (IOException | RuntimeException e) {
+            segments.forEach(segment -> segment.abort(e));
+            channel.close();
+            throw e;
+        }
+        logger.info("[{}] 音频 {} ms，切分为 {} 个片段", jobId, totalBytes * 1000 / BYTES_PER_SECOND, segments.size());
+        // 任一片段失败时其余片段不再继续识别
+        segments.forEach(segment -> segment.result().whenComplete((text, error) -> {
+            if (error != null) {
+                segments.forEach(other -> other.abort(error));
+            }
+        }));
+
+        CompletableFuture<?>[] results = segments.stream().map(BatchSegment::result).toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(results).handle((ignored, error) -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("[{}] 关闭临时文件失败: {}", jobId, e.getMessage());
+            }
+            if (error != null) {
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            StringBuilder text = new StringBuilder();
+            segments.forEach(segment -> text.append(segment.result().join()));
+            long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+            logger.info("[{}] 转写完成，耗时 {} ms", jobId, elapsedMs);
+            return new TranscriptionResult(text.toString(), totalBytes * 1000 / BYTES_PER_SECOND, segments.size(), elapsedMs);
+        });
+    }
+
+    /**
+     * 读取并转换输入写入文件，在停顿处切出片段并立即提交识别
+     *
+     * @return 写入文件的PCM字节数
+     */
+    private long split(String jobId, InputStream audio, PcmFormat format, FileChannel channel,
+                       List<BatchSegment> segments) throws IOException {
+        PcmStreamConverter converter = audioConverter.newStreamConverter(format);
+        VoiceActivityDetector vad = recognitionService.newVoiceActivityDetector();
+        byte[] input = new byte[READ_BUFFER_BYTES];
+        long written = 0;
+        long segmentStart = 0;
+        boolean segmentHasSpeech = false;
+
+        int read;
+        while ((read = audio.read(input)) >= 0) {
+            int length = audioConverter.convert(converter, ByteBuffer.wrap(input, 0, read));
+            if (length == 0) {
+                continue;
+            }
+            byte[] pcm = converter.getOutput();
+            // 按AGC之前的电平切分，放大后的背景噪声不算语音
+            byte[] vadPcm = converter.getPreGainOutput();
+            ByteBuffer buffer = ByteBuffer.wrap(pcm, 0, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, written + buffer.position());
+            }
+
+            for (int offset = 0; offset < length; offset += FRAME_BYTES) {
+                int frameLength = Math.min(FRAME_BYTES, length - offset);
+                VoiceActivityDetector.Decision decision = vad.process(vadPcm, offset, frameLength);
+                segmentHasSpeech |= decision == VoiceActivityDetector.Decision.SPEECH_START
+                        || decision == VoiceActivityDetector.Decision.SPEECH;
+                long position = written + offset + frameLength;
+
+                long durationMs = (position - segmentStart) * 1000 / BYTES_PER_SECOND;
+                boolean pause = decision == VoiceActivityDetector.Decision.SILENCE
+                        || decision == VoiceActivityDetector.Decision.END_OF_SPEECH
+                        || vad.getTrailingSilenceMs() >= minPauseMs;
+                if ((durationMs >= pauseSplitMs && pause) || durationMs >= maxSegmentMs) {
+                    if (segmentHasSpeech) {
+                        submit(jobId, channel, segmentStart, position, segments);
+                    }
+                    segmentStart = position;
+                    segmentHasSpeech = false;
+                }
+            }
+            written += length;
+        }
+
+        if (written > segmentStart && segmentHasSpeech) {
+            submit(jobId, channel, segmentStart, written, segments);
+        }
+        return written;
+    }
+
+    private void submit(String jobId, FileChannel channel, long start, long end, List<BatchSegment> segments) {
+        BatchSegment segment = new BatchSegment(jobId + "-" + (segments.size() + 1), channel, start, end,
+                engine, sendScheduler, recognitionService.getReconnect());
+        segments.add(segment);
+        waiting.offer(segment);
+        dispatch();
+    }
+
+    /**
+     * 在并发上限内启动等待中的片段，片段结束后继续启动下一个
+     */
+    private void dispatch() {
+        while (!waiting.isEmpty()) {
+            int current = running.get();
+            if (current >= concurrency) {
+                return;
+            }
+            if (!running.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            BatchSegment segment = waiting.poll();
+            if (segment == null) {
+                running.decrementAndGet();
+                continue;
+            }
+            segment.result().whenComplete((text, error) -> {
+                running.decrementAndGet();
+                dispatch();
+            });
+            sendScheduler.scheduleAfter(() -> segment.abort(
+                    new UpstreamException("片段识别超时", new TimeoutException(segmentTimeoutMs + " ms"))), segmentTimeoutMs);
+            sendScheduler.schedule(segment);
+        }
+    }
+}
@@ -0,0 +1,727 @@
+package com.example.demo.service;
+
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.audio.PcmStreamConverter;
+import com.example.demo.audio.VoiceActivityDetector;
+import com.example.demo.dto.AudioPacket;
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.dto.TranscriptDelta;
+import com.example.demo.engine.RecognitionEngine;
+import com.example.demo.engine.RecognitionStream;
+import com.example.demo.util.AudioConverter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 单个WebSocket会话的识别上下文
+ * 持有独立的上游连接、帧状态和结果回调，会话之间互不干扰。
+ * 接收线程只做格式转换和VAD，音频写入有界发送队列后由 {@link AudioSendScheduler} 的发送线程上传，
+ * 上游连接和帧状态只在发送线程中访问（sendLock保护）。
+ * 上游连接在一句话中途断开时，按退避重连，用新连接重放 {@link AudioReplayBuffer} 中的尾部音频继续识别，
+ * 转写由 {@link TranscriptAssembler#resume()} 拼接，期间新音频留在发送队列中。
+ * 讯飞单次识别的音频时长有上限，一句话超过 {@link Segmenting} 的时长时在停顿处（或到达上限时）切分，
+ * 前一句在旧连接上等待最终结果，后续音频立即打开新的识别开始新的一句，结果按句子编号拼接。
+ * 每句话的上游识别由 {@link RecognitionEngine}（通常是引擎路由）打开。
+ * 开启 {@link Framing} 时，发送线程把队列中大小不一的音频（前端的大包、合并帧）重新切成固定大小的帧，
+ * 按固定间隔上传，句尾不足一帧的音频在最后一帧之前发出；积压超过8帧时
+ * （上游拥塞恢复、前端快于实时上传）按4倍速补发，积压不会一直保持
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class RecognitionSession {
+    private static final Logger logger = LoggerFactory.getLogger(RecognitionSession.class);
+    private static final int DRAIN_BATCH = 32;
+    // 重放时每帧的字节数（16kHz单声道16位，40ms）
+    private static final int REPLAY_FRAME_BYTES = 1280;
+    private static final int BYTES_PER_SECOND = PcmFormat.IAT.getSampleRate() * PcmFormat.IAT.getFrameSize();
+    // 发送落后于节奏时最多连续补发的帧数，吸收调度延迟，不会把积压一次性推给上游
+    private static final int PACING_BURST_FRAMES = 2;
+    // 待发送的音频超过该帧数时加速补发
+    private static final int CATCH_UP_BACKLOG_FRAMES = 8;
+    // 补发时相对实时的倍速
+    private static final int CATCH_UP_SPEED = 4;
+
+    private final String id;
+    private final RecognitionEngine engine;
+    private final AudioConverter audioConverter;
+    private final TranscriptAssembler transcript = new TranscriptAssembler();
+    private final VoiceActivityDetector vad;
+    private final AudioSendQueue sendQueue;
+    private final AudioSendScheduler sendScheduler;
+    private final Object sendLock = new Object();
+    private final AudioSendQueue.Frame outgoing = new AudioSendQueue.Frame();
+    private final Runnable drainTask = this::drainSendQueue;
+    private final Runnable resumeTask = this::resumeUtterance;
+    private final Runnable pacedDrainTask = this::pacedDrain;
+    private final AudioReplayBuffer replayBuffer;
+    private final Reconnect reconnect;
+    private final Segmenting segmenting;
+    private final Framing framing;
+
+    private PcmStreamConverter converter;
+    private long lastSequence = -1;
+    private byte[] preRoll = new byte[0];
+    private int preRollLength;
+    private volatile Consumer<RecognitionResult> resultHandler;
+    private volatile boolean closed;
+    // 当前这句已进入发送队列的音频字节数，用于长句切分，只在接收线程中访问
+    private long segmentBytes;
+
+    // 发送线程状态，只在持有sendLock时访问
+    private RecognitionStream connection;
+    // 当前句子的编号，每句递增，续传沿用原编号
+    private int utterance;
+    private boolean isFirstFrame = true;
+    // 已发送最后一帧、等待最终结果的连接
+    private RecognitionStream finishing;
+    // 上游中断后等待重连，期间不发送队列中的音频
+    private boolean resuming;
+    // 中断时是否已发送过最后一帧，重放后需要补发
+    private boolean resumeWithLastFrame;
+    private int reconnectAttempts;
+    private byte[] replayData = new byte[0];
+    private final byte[] replayFrame = new byte[REPLAY_FRAME_BYTES];
+    // 重新分帧：已从队列取出、尚未切成帧发送的音频
+    private byte[] unsent = new byte[0];
+    private int unsentStart;
+    private int unsentEnd;
+    private long unsentEnqueuedAt;
+    private final byte[] unsentFrame;
+    // 已取出结束标记，剩余音频发完后发送最后一帧
+    private boolean endPending;
+    // 下一帧最早的发送时间（System.nanoTime）
+    private long nextFrameAt;
+    private boolean pacingWakeup;
+
+    /**
+     * @param vad          语音活动检测，为null时所有音频都上传
+     * @param sendQueue    会话独占的有界发送队列
+     * @param replayBuffer 上游中断时重放的尾部音频，为null时不重连续传
+     * @param segmenting   长句切分参数，为null时不切分
+     * @param framing      上游分帧参数，为null时队列中的每一项原样作为一帧发送
+     */
+    RecognitionSession(String id, RecognitionEngine engine, AudioConverter audioConverter, VoiceActivityDetector vad,
+                       AudioSendQueue sendQueue, AudioSendScheduler sendScheduler,
+                       AudioReplayBuffer replayBuffer, Reconnect reconnect, Segmenting segmenting, Framing framing) {
+        this.id = id;
+        this.engine = engine;
+        this.audioConverter = audioConverter;
+        this.vad = vad;
+        this.sendQueue = sendQueue;
+        this.sendScheduler = sendScheduler;
+        this.replayBuffer = replayBuffer;
+        this.reconnect = reconnect;
+        this.segmenting = segmenting;
+        this.framing = framing;
+        this.unsentFrame = new byte[framing != null ? framing.getFrameBytes() : 0];
+        this.nextFrameAt = System.nanoTime();
+        this.converter = audioConverter.newStreamConverter(PcmFormat.IAT);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 设置识别结果处理器
+     */
+    public void setResultHandler(Consumer<RecognitionResult> handler) {
+        this.resultHandler = handler;
+    }
+
+    /**
+     * 处理一帧PCM音频
+     * 开启VAD时静音帧不上传，语音开始时补发前一帧静音作为前导，句尾静音超过窗口后自动结束本次识别
+     */
+    public synchronized void processAudioFrame(byte[] audioData, int length) {
+        processAudioFrame(audioData, audioData, length);
+    }
+
+    /**
+     * 处理一帧PCM音频，VAD按 vadData 判断，上传 audioData
+     *
+     * @param vadData AGC之前的同一段音频，AGC放大的背景噪声不会被当作语音
+     */
+    private void processAudioFrame(byte[] audioData, byte[] vadData, int length) {
+        if (vad == null) {
+            enqueue(audioData, length);
+            splitLongUtterance(0);
+            return;
+        }
+
+        switch (vad.process(vadData, 0, length)) {
+            case SPEECH_START:
+                if (preRollLength > 0) {
+                    enqueue(preRoll, preRollLength);
+                    preRollLength = 0;
+                }
+                enqueue(audioData, length);
+                break;
+            case SPEECH:
+                enqueue(audioData, length);
+                splitLongUtterance(vad.getTrailingSilenceMs());
+                break;
+            case END_OF_SPEECH:
+                logger.info("[{}] 检测到句尾静音，自动结束本次识别", id);
+                enqueueEnd();
+                break;
+            default:
+                keepPreRoll(audioData, length);
+                splitLongUtterance(vad.getTrailingSilenceMs());
+        }
+    }
+
+    /**
+     * 设置前端上传音频的格式，之后收到的音频包按新格式转换
+     */
+    public synchronized void setInputFormat(PcmFormat format) {
+        converter = audioConverter.newStreamConverter(format);
+        logger.info("[{}] 输入音频格式: {}", id, format);
+    }
+
+    public synchronized void endRecognition() {
+        enqueueEnd();
+        converter.reset();
+        if (vad != null) {
+            vad.reset();
+        }
+        preRollLength = 0;
+        lastSequence = -1;
+    }
+
+    /**
+     * 当前这句超过切分时长后，在句中停顿处结束这一句；一直没有停顿时到达上限强制结束
+     * 结束后下一帧从新连接开始新的一句，前一句的最终结果照常返回
+     *
+     * @param pauseMs 当前帧所在停顿已持续的时长
+     */
+    private void splitLongUtterance(long pauseMs) {
+        if (segmenting == null) {
+            return;
+        }
+        long durationMs = segmentBytes * 1000 / BYTES_PER_SECOND;
+        boolean atPause = durationMs >= segmenting.getPauseSplitMs() && pauseMs >= segmenting.getMinPauseMs();
+        if (atPause || durationMs >= segmenting.getMaxMs()) {
+            logger.info("[{}] 本句已达 {} ms，{}切分", id, durationMs, atPause ? "在停顿处" : "强制");
+            enqueueEnd();
+        }
+    }
+
+    private void enqueue(byte[] audioData, int length) {
+        segmentBytes += length;
+        if (sendQueue.offer(audioData, 0, length)) {
+            sendScheduler.schedule(drainTask);
+        }
+    }
+
+    private void enqueueEnd() {
+        segmentBytes = 0;
+        if (sendQueue.offerEnd()) {
+            sendScheduler.schedule(drainTask);
+        }
+    }
+
+    /**
+     * 发送线程：依次上传队列中的音频，上游拥塞时暂停，每轮最多处理 DRAIN_BATCH 项以便线程在会话间轮转
+     */
+    private void drainSendQueue() {
+        synchronized (sendLock) {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                if (closed || resuming) {
+                    return;
+                }
+                if (connection != null && sendScheduler.isCongested(connection)) {
+                    if (sendQueue.pause() || hasUnsentFrames()) {
+                        sendScheduler.retryLater(drainTask);
+                    }
+                    return;
+                }
+
+                try {
+                    if (framing != null && (unsentEnd - unsentStart >= framing.getFrameBytes()
+                            || (endPending && unsentEnd > unsentStart))) {
+                        long waitMs = pace();
+                        if (waitMs > 0) {
+                            waitForPacing(waitMs);
+                            return;
+                        }
+                        sendUnsentFrame();
+                        continue;
+                    }
+                    if (endPending) {
+                        endPending = false;
+                        finishUtterance();
+                        continue;
+                    }
+
+                    AudioSendQueue.Entry entry = sendQueue.poll(outgoing);
+                    if (entry == AudioSendQueue.Entry.EMPTY) {
+                        return;
+                    }
+                    if (entry == AudioSendQueue.Entry.END) {
+                        if (framing != null) {
+                            endPending = true;
+                        } else {
+                            finishUtterance();
+                        }
+                    } else if (framing != null) {
+                        appendUnsent(outgoing);
+                    } else {
+                        sendFrame(outgoing.getData(), outgoing.getLength(), outgoing.getEnqueuedAt());
+                    }
+                } catch (Exception e) {
+                    logger.error("[{}] 发送音频失败", id, e);
+                }
+            }
+            if (sendQueue.pause() || hasUnsentFrames()) {
+                sendScheduler.schedule(drainTask);
+            }
+        }
+    }
+
+    /**
+     * 发送节奏等待结束后继续发送（调度线程）
+     */
+    private void pacedDrain() {
+        synchronized (sendLock) {
+            pacingWakeup = false;
+        }
+        drainSendQueue();
+    }
+
+    /**
+     * 是否还有已取出的音频要发送（队列本身可能已空）
+     */
+    private boolean hasUnsentFrames() {
+        return framing != null && (endPending || unsentEnd - unsentStart >= framing.getFrameBytes());
+    }
+
+    /**
+     * 按 Framing#intervalMs 的节奏发送：可以发送时占用下一个发送时刻并返回0，否则返回需要等待的毫秒数
+     * 有积压时帧间隔缩短为 1 / CATCH_UP_SPEED
+     */
+    private long pace() {
+        if (framing.getIntervalMs() <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long interval = TimeUnit.MILLISECONDS.toNanos(framing.getIntervalMs());
+        long backlog = unsentEnd - unsentStart + sendQueue.bytes();
+        if (backlog > (long) framing.getFrameBytes() * CATCH_UP_BACKLOG_FRAMES) {
+            interval /= CATCH_UP_SPEED;
+        }
+        long earliest = now - interval * PACING_BURST_FRAMES;
+        if (nextFrameAt - earliest < 0) {
+            nextFrameAt = earliest;
+        }
+        long wait = nextFrameAt - now;
+        if (wait > 0) {
+            return TimeUnit.NANOSECONDS.toMillis(wait + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+        }
+        nextFrameAt += interval;
+        return 0;
+    }
+
+    /**
+     * 暂停本轮发送，到下一个发送时刻再继续；期间新音频照常入队，不会重复调度
+     */
+    private void waitForPacing(long waitMs) {
+        sendQueue.pause();
+        if (!pacingWakeup) {
+            pacingWakeup = true;
+            sendScheduler.scheduleAfter(pacedDrainTask, waitMs);
+        }
+    }
+
+    private void appendUnsent(AudioSendQueue.Frame frame) {
+        int length = frame.getLength();
+        if (unsentStart == unsentEnd) {
+            unsentStart = 0;
+            unsentEnd = 0;
+            unsentEnqueuedAt = frame.getEnqueuedAt();
+        } else if (unsent.length - unsentEnd < length) {
+            System.arraycopy(unsent, unsentStart, unsent, 0, unsentEnd - unsentStart);
+            unsentEnd -= unsentStart;
+            unsentStart = 0;
+        }
+        if (unsent.length - unsentEnd < length) {
+            unsent = Arrays.copyOf(unsent, Math.max(unsentEnd + length, framing.getFrameBytes() * 2));
+        }
+        System.arraycopy(frame.getData(), 0, unsent, unsentEnd, length);
+        unsentEnd += length;
+    }
+
+    /**
+     * 发送一个固定大小的帧，句尾不足一帧时发送剩余部分
+     */
+    private void sendUnsentFrame() {
+        int length = Math.min(framing.getFrameBytes(), unsentEnd - unsentStart);
+        System.arraycopy(unsent, unsentStart, unsentFrame, 0, length);
+        unsentStart += length;
+        sendFrame(unsentFrame, length, unsentEnqueuedAt);
+    }
+
+    private void sendFrame(byte[] audioData, int length, long enqueuedAt) {
+        if (isFirstFrame) {
+            if (replayBuffer != null) {
+                replayBuffer.clear();
+            }
+            reconnectAttempts = 0;
+            resumeWithLastFrame = false;
+            utterance++;
+            isFirstFrame = false;
+        }
+        // 先写入重放缓冲，发送前连接就已失败时这一帧也能在重连后重放
+        if (replayBuffer != null) {
+            replayBuffer.append(audioData, 0, length);
+        }
+
+        if (connection == null) {
+            openUpstream();
+            if (connection == null) {
+                return;
+            }
+            connection.markAudioIn(enqueuedAt);
+            connection.sendFirstFrame(audioData, length);
+        } else {
+            connection.sendContinueFrame(audioData, length);
+        }
+    }
+
+    /**
+     * 打开一次上游识别作为当前连接，握手失败和中途断开都进入重连流程
+     * 握手失败可能在当前线程中同步回调，此时返回后 connection 为null
+     */
+    private void openUpstream() {
+        RecognitionStream upstream = engine.open();
+        int current = utterance;
+        connection = upstream;
+        upstream.bind(result -> handleRecognitionResult(current, result),
+                ex -> onUpstreamFailure(upstream, current, ex));
+        upstream.opened().exceptionally(ex -> {
+            onUpstreamFailure(upstream, current, ex);
+            return null;
+        });
+    }
+
+    private void finishUtterance() {
+        if (connection != null) {
+            // 连接在最终结果返回后关闭。先转为等待最终结果再发最后一帧：
+            // 上游可能在 sendLastFrame 中才打开（结果缓存未命中），同步失败时按等待最终结果重连，重放后补发最后一帧
+            RecognitionStream stream = connection;
+            finishing = stream;
+            connection = null;
+            stream.sendLastFrame();
+        }
+        isFirstFrame = true;
+    }
+
+    /**
+     * 上游连接握手失败或在最终结果前中断（OkHttp线程）
+     * 仍在识别中的句子按退避重连续传；下一句已经开始时，中断的那一句无法再重放，只通知错误
+     */
+    private void onUpstreamFailure(RecognitionStream failed, int failedUtterance, Throwable cause) {
+        synchronized (sendLock) {
+            if (closed) {
+                return;
+            }
+            boolean current = failed == connection;
+            boolean awaitingFinal = failed == finishing && connection == null;
+            if (!current && !awaitingFinal) {
+                // 这一句不会再有结果，不能让它挡住后面句子的转写
+                synchronized (transcript) {
+                    transcript.close(failedUtterance);
+                }
+                if (failed == finishing) {
+                    finishing = null;
+                    notifyError("上游连接中断，上一句的最终结果丢失: " + cause.getMessage());
+                }
+                return;
+            }
+
+            if (replayBuffer == null || reconnectAttempts >= reconnect.getMaxAttempts()) {
+                if (replayBuffer != null) {
+                    sendScheduler.getMetrics().recordReconnect("failed");
+                }
+                abandonUtterance();
+                notifyError("上游连接失败: " + cause.getMessage());
+                return;
+            }
+
+            long delayMs = reconnect.getBackoffMs() << Math.min(reconnectAttempts, 10);
+            reconnectAttempts++;
+            sendScheduler.getMetrics().recordReconnect("attempt");
+            logger.warn("[{}] 上游连接中断，{} ms 后第 {} 次重连续传: {}", id, delayMs, reconnectAttempts, cause.getMessage());
+
+            connection = null;
+            finishing = null;
+            resuming = true;
+            if (awaitingFinal) {
+                resumeWithLastFrame = true;
+            }
+            synchronized (transcript) {
+                transcript.resume(failedUtterance);
+            }
+            sendScheduler.scheduleAfter(resumeTask, delayMs);
+        }
+    }
+
+    /**
+     * 重连后用新连接开始新的上游识别：先重放尾部音频，再继续发送队列中积压的音频
+     */
+    private void resumeUtterance() {
+        synchronized (sendLock) {
+            if (closed || !resuming) {
+                return;
+            }
+            resuming = false;
+
+            int length = replayBuffer.size();
+            if (length == 0) {
+                abandonUtterance();
+                return;
+            }
+            if (replayData.length < length) {
+                replayData = new byte[replayBuffer.capacity()];
+            }
+            replayBuffer.copyTo(replayData);
+
+            // 新连接也失败时重连次数继续累计，直到这句话结束
+            openUpstream();
+            for (int offset = 0; offset < length && connection != null; offset += REPLAY_FRAME_BYTES) {
+                int frameLength = Math.min(REPLAY_FRAME_BYTES, length - offset);
+                System.arraycopy(replayData, offset, replayFrame, 0, frameLength);
+                if (offset == 0) {
+                    connection.sendFirstFrame(replayFrame, frameLength);
+                } else {
+                    connection.sendContinueFrame(replayFrame, frameLength);
+                }
+            }
+            if (connection == null) {
+                return;
+            }
+            sendScheduler.getMetrics().recordReconnect("resumed");
+            logger.info("[{}] 上游已重连，重放 {} bytes", id, length);
+
+            if (resumeWithLastFrame) {
+                finishUtterance();
+            }
+            sendScheduler.schedule(drainTask);
+        }
+    }
+
+    /**
+     * 放弃当前句子，之后的音频作为新的一句开始
+     */
+    private void abandonUtterance() {
+        synchronized (transcript) {
+            transcript.close(utterance);
+        }
+        if (connection != null) {
+            connection.disconnect();
+            connection = null;
+        }
+        finishing = null;
+        resuming = false;
+        isFirstFrame = true;
+        if (replayBuffer != null) {
+            replayBuffer.clear();
+        }
+        sendScheduler.schedule(drainTask);
+    }
+
+    /**
+     * 发送队列中的帧数
+     */
+    public int getQueuedFrames() {
+        return sendQueue.size();
+    }
+
+    private void keepPreRoll(byte[] audioData, int length) {
+        if (preRoll.length < length) {
+            preRoll = new byte[length];
+        }
+        System.arraycopy(audioData, 0, preRoll, 0, length);
+        preRollLength = length;
+    }
+
+    void handleRecognitionResult(RecognitionResult result) {
+        synchronized (transcript) {
+            transcript.apply(result);
+        }
+        dispatch(result);
+    }
+
+    /**
+     * 处理上游连接返回的结果（OkHttp线程）
+     *
+     * @param resultUtterance 结果所属句子的编号
+     */
+    private void handleRecognitionResult(int resultUtterance, RecognitionResult result) {
+        synchronized (transcript) {
+            transcript.apply(resultUtterance, result);
+        }
+        dispatch(result);
+    }
+
+    private void dispatch(RecognitionResult result) {
+        logger.info("[{}] Recognition result: text='{}', isFinal={}, sn={}, pgs={}",
+                id, result.getText(), result.isFinal(), result.getSn(), result.getPgs());
+
+        // 调用结果处理器
+        Consumer<RecognitionResult> handler = resultHandler;
+        if (handler != null) {
+            handler.accept(result);
+        }
+
+        // 如果有错误，记录错误信息
+        if (result.getError() != null) {
+            logger.error("[{}] Recognition error: {}", id, result.getError());
+        }
+    }
+
+    /**
+     * 取出自上次发送以来的转写增量，无变化时返回null
+     */
+    public TranscriptDelta drainTranscriptDelta() {
+        synchronized (transcript) {
+            return transcript.drainDelta();
+        }
+    }
+
+    private void notifyError(String error) {
+        logger.error("[{}] {}", id, error);
+        Consumer<RecognitionResult> handler = resultHandler;
+        if (handler != null) {
+            handler.accept(RecognitionResult.error(error));
+        }
+    }
+
+    /**
+     * 模拟识别结果（用于测试）
+     */
+    public void simulateRecognitionResult() {
+        logger.info("Simulating recognition result for testing...");
+
+        // 模拟部分结果
+        RecognitionResult partialResult = RecognitionResult.success("你好", false, 0.8);
+        partialResult.setSn(1);
+        handleRecognitionResult(partialResult);
+
+        // 延迟后发送最终结果（同一sn，替换部分结果）
+        sendScheduler.scheduleAfter(() -> {
+            RecognitionResult finalResult = RecognitionResult.success("你好世界", true, 0.95);
+            finalResult.setSn(1);
+            handleRecognitionResult(finalResult);
+        }, 2000);
+    }
+
+    /**
+     * 处理来自前端的二进制音频包
+     */
+    public synchronized void processAudioPacket(AudioPacket packet) {
+        try {
+            long expected = lastSequence + 1;
+            if (lastSequence >= 0 && packet.getSequence() != expected) {
+                logger.warn("[{}] 音频包序号不连续: 期望 {}, 实际 {}", id, expected, packet.getSequence());
+            }
+            lastSequence = packet.getSequence();
+
+            // 转换为16kHz单声道PCM，输出缓冲区在下一包到来前有效
+            int length = audioConverter.convert(converter, packet.getPayload());
+            if (length == 0) {
+                return;
+            }
+
+            logger.debug("收到音频包 seq={}, ts={}ms, 转换后 {} bytes",
+                    packet.getSequence(), packet.getTimestamp(), length);
+
+            // 发送到讯飞服务器
+            processAudioFrame(converter.getOutput(), converter.getPreGainOutput(), length);
+
+        } catch (IllegalArgumentException e) {
+            notifyError("音频格式错误: " + e.getMessage());
+            converter.reset();
+        } catch (Exception e) {
+            logger.error("处理音频数据失败", e);
+        }
+    }
+
+    /**
+     * 释放会话占用的上游连接
+     */
+    void close() {
+        closed = true;
+        resultHandler = null;
+        sendQueue.clear();
+        synchronized (sendLock) {
+            resuming = false;
+            unsentStart = 0;
+            unsentEnd = 0;
+            endPending = false;
+            if (connection != null) {
+                connection.disconnect();
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * 上游重连参数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Reconnect {
+        /**
+         * 一句话内最多重连次数
+         */
+        private final int maxAttempts;
+        /**
+         * 第一次重连前的等待（毫秒），之后每次翻倍
+         */
+        private final long backoffMs;
+    }
+
+    /**
+     * 长句切分参数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Segmenting {
+        /**
+         * 本句超过该时长后，遇到停顿即切分（毫秒）
+         */
+        private final long pauseSplitMs;
+        /**
+         * 可作为切分点的最短停顿（毫秒）
+         */
+        private final long minPauseMs;
+        /**
+         * 本句最长时长，到达后即使没有停顿也切分，需小于讯飞单次识别上限（毫秒）
+         */
+        private final long maxMs;
+    }
+
+    /**
+     * 上游分帧参数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Framing {
+        /**
+         * 每帧字节数，讯飞建议1280（16kHz单声道16位，40ms）
+         */
+        private final int frameBytes;
+        /**
+         * 帧发送间隔（毫秒），0为不限速
+         */
+        private final long intervalMs;
+    }
+}
@@ -1,20 +1,25 @@
 package com.example.demo.service;
 
-import com.example.demo.client.IatWebSocketClient;
-import com.example.demo.dto.RecognitionResult;
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.audio.VoiceActivityDetector;
+import com.example.demo.dto.AudioPacket;
+import com.example.demo.engine.RecognitionEngine;
+import com.example.demo.metrics.SpeechMetrics;
 import com.example.demo.util.AudioConverter;
-import com.google.gson.Gson;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
-import java.util.Base64;
-import java.util.function.Consumer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 语音识别服务
+ * 按WebSocket会话管理识别上下文，每个会话拥有独立的上游连接和结果回调
  *
  * @author example
  * @version 1.0.0
@@ -24,133 +29,183 @@ import java.util.function.Consumer;
 public class SpeechRecognitionService {
     private static final Logger logger = LoggerFactory.getLogger(SpeechRecognitionService.class);
 
-    private final IatWebSocketClient webSocketClient;
+    private final RecognitionEngine engine;
     private final AudioConverter audioConverter;
-    private final Gson gson = new Gson();
+    private final AudioSendScheduler sendScheduler;
+    private final SpeechMetrics metrics;
+
+    private final Map<String, RecognitionSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${speech.vad.enabled:true}")
+    private boolean vadEnabled;
+
+    @Value("${speech.vad.energy-threshold-db:-45}")
+    private double vadEnergyThresholdDb;
+
+    @Value("${speech.vad.snr-db:10}")
+    private double vadSnrDb;
+
+    @Value("${speech.vad.weak-speech-margin-db:8}")
+    private double vadWeakSpeechMarginDb;
+
+    @Value("${speech.vad.zcr-threshold:0.3}")
+    private double vadZcrThreshold;
+
+    @Value("${speech.vad.hangover-ms:300}")
+    private long vadHangoverMs;
+
+    @Value("${speech.vad.trailing-silence-ms:1000}")
+    private long vadTrailingSilenceMs;
+
+    @Value("${speech.queue.capacity:50}")
+    private int queueCapacity;
+
+    @Value("${speech.queue.policy:COALESCE}")
+    private AudioSendQueue.OverflowPolicy queuePolicy;
+
+    @Value("${speech.queue.block-timeout-ms:200}")
+    private long queueBlockTimeoutMs;
+
+    @Value("${speech.queue.max-coalesced-bytes:16000}")
+    private int queueMaxCoalescedBytes;
+
+    @Value("${speech.upstream.replay-ms:1500}")
+    private int upstreamReplayMs;
+
+    @Value("${speech.upstream.reconnect-attempts:3}")
+    private int upstreamReconnectAttempts;
+
+    @Value("${speech.upstream.reconnect-backoff-ms:200}")
+    private long upstreamReconnectBackoffMs;
+
+    @Value("${speech.segment.enabled:true}")
+    private boolean segmentEnabled;
+
+    @Value("${speech.segment.pause-split-ms:45000}")
+    private long segmentPauseSplitMs;
+
+    @Value("${speech.segment.min-pause-ms:200}")
+    private long segmentMinPauseMs;
+
+    @Value("${speech.segment.max-ms:55000}")
+    private long segmentMaxMs;
 
-    private int status = IatWebSocketClient.StatusFirstFrame;
-    private boolean isFirstFrame = true;
-    private Consumer<RecognitionResult> resultHandler;
+    @Value("${speech.frame.bytes:1280}")
+    private int frameBytes;
+
+    @Value("${speech.frame.interval-ms:40}")
+    private long frameIntervalMs;
+
+    private VoiceActivityDetector.Config vadConfig;
+    private RecognitionSession.Reconnect reconnect;
+    private RecognitionSession.Segmenting segmenting;
+    private RecognitionSession.Framing framing;
 
     @PostConstruct
     public void init() {
-        // 设置循环依赖引用
-        webSocketClient.setSpeechRecognitionService(this);
+        vadConfig = new VoiceActivityDetector.Config(vadEnergyThresholdDb, vadSnrDb, vadWeakSpeechMarginDb,
+                vadZcrThreshold, vadHangoverMs, vadTrailingSilenceMs);
+        reconnect = new RecognitionSession.Reconnect(upstreamReconnectAttempts, upstreamReconnectBackoffMs);
+        segmenting = segmentEnabled
+                ? new RecognitionSession.Segmenting(segmentPauseSplitMs, segmentMinPauseMs, segmentMaxMs) : null;
+        framing = frameBytes > 0 ? new RecognitionSession.Framing(frameBytes, frameIntervalMs) : null;
+        metrics.bindActiveSessions(sessions);
+        metrics.bindQueueDepth(sessions.values(), RecognitionSession::getQueuedFrames);
     }
 
     /**
-     * 设置识别结果处理器
+     * 按当前VAD参数创建检测器（离线转写切分也使用同一套参数）
      */
-    public void setResultHandler(Consumer<RecognitionResult> handler) {
-        this.resultHandler = handler;
+    VoiceActivityDetector newVoiceActivityDetector() {
+        return new VoiceActivityDetector(vadConfig);
     }
 
-    public void processAudioFrame(byte[] audioData, int length) {
-        if (isFirstFrame) {
-            sendFirstFrame(audioData, length);
-            isFirstFrame = false;
-        } else {
-            sendContinueFrame(audioData, length);
-        }
+    RecognitionSession.Reconnect getReconnect() {
+        return reconnect;
     }
 
-    private void sendFirstFrame(byte[] audioData, int length) {
-        webSocketClient.sendFirstFrame(audioData, length);
-        status = IatWebSocketClient.StatusContinueFrame;
+    /**
+     * 为WebSocket会话创建识别上下文，调用方随后通过 {@link RecognitionSession#setResultHandler} 接收结果
+     *
+     * @param sessionId WebSocket会话ID
+     */
+    public RecognitionSession openSession(String sessionId) {
+        RecognitionSession session = new RecognitionSession(sessionId, engine, audioConverter,
+                vadEnabled ? new VoiceActivityDetector(vadConfig) : null,
+                new AudioSendQueue(queueCapacity, queuePolicy, queueBlockTimeoutMs, queueMaxCoalescedBytes,
+                        metrics.getQueueDroppedFrames(), metrics.getQueueCoalescedFrames()),
+                sendScheduler,
+                upstreamReplayMs > 0 ? new AudioReplayBuffer(upstreamReplayMs * PcmFormat.IAT.getSampleRate() / 1000
+                        * PcmFormat.IAT.getFrameSize()) : null,
+                reconnect, segmenting, framing);
+        RecognitionSession previous = sessions.put(sessionId, session);
+        if (previous != null) {
+            previous.close();
+        }
+        logger.info("识别会话已创建: {}, 当前会话数: {}", sessionId, sessions.size());
+        return session;
     }
 
-    private void sendContinueFrame(byte[] audioData, int length) {
-        webSocketClient.sendContinueFrame(audioData, length);
+    /**
+     * 关闭并移除会话的识别上下文
+     */
+    public void closeSession(String sessionId) {
+        RecognitionSession session = sessions.remove(sessionId);
+        if (session != null) {
+            session.close();
+            logger.info("识别会话已关闭: {}, 当前会话数: {}", sessionId, sessions.size());
+        }
     }
 
-    public void endRecognition() {
-        webSocketClient.sendLastFrame();
-        isFirstFrame = true;
-        status = IatWebSocketClient.StatusFirstFrame;
+    public int getActiveSessionCount() {
+        return sessions.size();
     }
 
-    public void handleRecognitionResult(String resultJson) {
-        try {
-            RecognitionResult result = gson.fromJson(resultJson, RecognitionResult.class);
-            logger.info("Recognition result: text='{}', isFinal={}, confidence={}",
-                    result.getText(), result.isFinal(), result.getConfidence());
-
-            // 调用结果处理器
-            if (resultHandler != null) {
-                resultHandler.accept(result);
-            }
-
-            // 如果有错误，记录错误信息
-            if (result.getError() != null) {
-                logger.error("Recognition error: {}", result.getError());
-            }
-
-        } catch (Exception e) {
-            logger.error("Failed to parse recognition result: {}", resultJson, e);
+    public void processAudioFrame(String sessionId, byte[] audioData, int length) {
+        RecognitionSession session = sessions.get(sessionId);
+        if (session == null) {
+            logger.warn("识别会话不存在，丢弃音频帧: {}", sessionId);
+            return;
         }
+        session.processAudioFrame(audioData, length);
     }
 
     /**
-     * 模拟识别结果（用于测试）
+     * 处理来自前端的二进制音频包
      */
-    public void simulateRecognitionResult() {
-        logger.info("Simulating recognition result for testing...");
+    public void processAudioPacket(String sessionId, AudioPacket packet) {
+        RecognitionSession session = sessions.get(sessionId);
+        if (session == null) {
+            logger.warn("识别会话不存在，丢弃音频包: {}", sessionId);
+            return;
+        }
+        session.processAudioPacket(packet);
+    }
 
-        // 模拟部分结果
-        RecognitionResult partialResult = RecognitionResult.success("你好", false, 0.8);
-        if (resultHandler != null) {
-            resultHandler.accept(partialResult);
+    /**
+     * 设置会话上传音频的格式（start命令中声明）
+     */
+    public void setInputFormat(String sessionId, PcmFormat format) {
+        RecognitionSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.setInputFormat(format);
         }
+    }
 
-        // 延迟后发送最终结果
-        new Thread(() -> {
-            try {
-                Thread.sleep(2000);
-                RecognitionResult finalResult = RecognitionResult.success("你好世界", true, 0.95);
-                if (resultHandler != null) {
-                    resultHandler.accept(finalResult);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }).start();
+    public void endRecognition(String sessionId) {
+        RecognitionSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.endRecognition();
+        }
     }
 
     /**
-     * 处理来自前端的音频数据
+     * 模拟识别结果（用于测试）
      */
-    public void processAudioData(String base64AudioData) {
-        try {
-            // 解码Base64音频数据
-            byte[] webmAudioBytes = Base64.getDecoder().decode(base64AudioData);
-            logger.debug("收到WebM音频数据，字节长度: {}", webmAudioBytes.length);
-
-            // 转换为PCM格式
-            byte[] pcmAudioBytes = audioConverter.convertWebMToPCM(webmAudioBytes);
-            logger.debug("转换后PCM音频数据，字节长度: {}", pcmAudioBytes.length);
-
-            // 验证PCM数据
-            if (!audioConverter.isValidPCM(pcmAudioBytes)) {
-                logger.warn("PCM数据格式无效，跳过此帧");
-                return;
-            }
-
-            long duration = audioConverter.getPCMDuration(pcmAudioBytes);
-            logger.debug("PCM音频时长: {} ms", duration);
-
-            // 发送到讯飞服务器
-            if (isFirstFrame) {
-                webSocketClient.sendFirstFrame(pcmAudioBytes, pcmAudioBytes.length);
-                isFirstFrame = false;
-                status = IatWebSocketClient.StatusContinueFrame;
-                logger.info("发送第一帧PCM音频数据: {} bytes", pcmAudioBytes.length);
-            } else {
-                webSocketClient.sendContinueFrame(pcmAudioBytes, pcmAudioBytes.length);
-                logger.debug("发送继续帧PCM音频数据: {} bytes", pcmAudioBytes.length);
-            }
-
-        } catch (Exception e) {
-            logger.error("处理音频数据失败", e);
+    public void simulateRecognitionResult(String sessionId) {
+        RecognitionSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.simulateRecognitionResult();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,299 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.dto.TranscriptDelta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 动态修正（wpgs）转写拼装器
+ * 按sn保存当前句子的每段结果，pgs=rpl时先清空rg范围内的段再写入新结果。
+ * 已结束的句子追加到已确认文本中。每次取增量时只返回自上次发送以来发生变化的尾部，
+ * 长时间听写不会在每个中间结果里重发整段转写。
+ * 上游中断续传时（{@link #resume()}），新连接重放的尾部音频会重复识别出断开前的最后几个字，拼接时去掉这段重叠。
+ * 长句切分后前一句的最终结果可能晚于后一句的中间结果到达，结果按句子编号归位（{@link #apply(int, RecognitionResult)}），
+ * 前面的句子全部结束后才并入已确认文本。
+ * 每个识别会话一个实例，非线程安全
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class TranscriptAssembler {
+
+    private static final String REPLACE = "rpl";
+    // 续传拼接时比较的已确认文本末尾长度，覆盖重放缓冲对应的字数
+    private static final int MAX_STITCH_OVERLAP = 32;
+    // 少于2个字的重叠可能只是巧合，不去除
+    private static final int MIN_STITCH_OVERLAP = 2;
+
+    /**
+     * 已结束句子的文本
+     */
+    private final StringBuilder committed = new StringBuilder();
+
+    /**
+     * 尚未并入已确认文本的句子，按编号排列。通常只有一句，长句切分后前一句等待最终结果时会有两句
+     */
+    private final List<Utterance> open = new ArrayList<>();
+
+    /**
+     * 已并入已确认文本的最后一句的编号，更早句子的迟到结果直接忽略
+     */
+    private int committedThrough;
+
+    /**
+     * 前端当前持有的文本长度
+     */
+    private int emittedLength;
+
+    /**
+     * 自上次取增量以来最早发生变化的位置，无变化时为 -1
+     */
+    private int dirtyFrom = -1;
+
+    private boolean lastFinal;
+
+    /**
+     * 应用一条识别结果，归入最近的一句
+     */
+    public void apply(RecognitionResult result) {
+        apply(open.isEmpty() ? committedThrough + 1 : open.get(open.size() - 1).id, result);
+    }
+
+    /**
+     * 应用一条识别结果
+     *
+     * @param utterance 结果所属句子的编号，随句子递增
+     */
+    public void apply(int utterance, RecognitionResult result) {
+        if (result.getError() != null || utterance <= committedThrough) {
+            return;
+        }
+        Utterance target = open(utterance);
+        List<String> segments = target.segments;
+
+        // 未开启动态修正或没有sn的结果按追加处理
+        int sn = result.getSn() > 0 ? result.getSn() : segments.size() + 1;
+        int firstChanged = sn;
+
+        int[] rg = result.getRg();
+        if (REPLACE.equals(result.getPgs()) && rg != null && rg.length >= 2) {
+            for (int i = Math.max(rg[0], 1); i <= rg[1] && i <= segments.size(); i++) {
+                segments.set(i - 1, "");
+            }
+            firstChanged = Math.min(firstChanged, Math.max(rg[0], 1));
+        }
+
+        String text = result.getText() != null ? result.getText() : "";
+        // 结果从句首开始（sn=1，或替换范围从1开始）时，去掉与续传前文本重叠的开头
+        if (target.stitchTail != null && firstChanged == 1) {
+            text = text.substring(overlap(target.stitchTail, text));
+        }
+
+        while (segments.size() < sn) {
+            segments.add("");
+        }
+        segments.set(sn - 1, text);
+
+        markDirty(offsetOf(target) + target.frozen.length() + target.lengthBefore(firstChanged));
+
+        if (result.isFinal()) {
+            target.finished = true;
+            target.stitchTail = null;
+            commitFinished();
+        }
+        lastFinal = result.isFinal() && open.isEmpty();
+    }
+
+    /**
+     * 最近一句的上游连接中断，见 {@link #resume(int)}
+     */
+    public void resume() {
+        resume(open.isEmpty() ? committedThrough + 1 : open.get(open.size() - 1).id);
+    }
+
+    /**
+     * 句子的上游连接中断，之后的结果来自重放了尾部音频的新连接
+     * 已收到的分段固定下来（前端文本不变），该句的sn从1重新开始
+     */
+    public void resume(int utterance) {
+        if (utterance <= committedThrough) {
+            return;
+        }
+        Utterance target = open(utterance);
+        target.freeze();
+
+        int end = offsetOf(target) + target.frozen.length();
+        StringBuilder tail = new StringBuilder();
+        appendRange(tail, Math.max(0, end - MAX_STITCH_OVERLAP), end);
+        target.stitchTail = tail.toString();
+    }
+
+    /**
+     * 句子不会再有结果（上游连接丢失），已收到的部分按已结束处理，不再阻塞后面的句子
+     */
+    public void close(int utterance) {
+        for (Utterance candidate : open) {
+            if (candidate.id == utterance) {
+                candidate.finished = true;
+                commitFinished();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 取出自上次调用以来的增量，无变化时返回null
+     */
+    public TranscriptDelta drainDelta() {
+        if (dirtyFrom < 0) {
+            return null;
+        }
+
+        int offset = dirtyFrom;
+        StringBuilder tail = new StringBuilder();
+        appendRange(tail, offset, Integer.MAX_VALUE);
+
+        TranscriptDelta delta = new TranscriptDelta(offset, emittedLength - offset, tail.toString(), lastFinal);
+        emittedLength = offset + tail.length();
+        dirtyFrom = -1;
+        return delta;
+    }
+
+    /**
+     * 当前完整转写文本
+     */
+    public String getText() {
+        StringBuilder text = new StringBuilder();
+        appendRange(text, 0, Integer.MAX_VALUE);
+        return text.toString();
+    }
+
+    /**
+     * 取编号对应的未结束句子，不存在时按编号顺序插入
+     */
+    private Utterance open(int utterance) {
+        int index = 0;
+        while (index < open.size() && open.get(index).id < utterance) {
+            index++;
+        }
+        if (index < open.size() && open.get(index).id == utterance) {
+            return open.get(index);
+        }
+        Utterance created = new Utterance(utterance);
+        open.add(index, created);
+        return created;
+    }
+
+    /**
+     * 开头连续已结束的句子并入已确认文本，文本位置不变
+     */
+    private void commitFinished() {
+        while (!open.isEmpty() && open.get(0).finished) {
+            Utterance first = open.remove(0);
+            first.freeze();
+            committed.append(first.frozen);
+            committedThrough = first.id;
+        }
+    }
+
+    private int offsetOf(Utterance target) {
+        int offset = committed.length();
+        for (Utterance candidate : open) {
+            if (candidate == target) {
+                break;
+            }
+            offset += candidate.length();
+        }
+        return offset;
+    }
+
+    /**
+     * 把完整文本中 [from, to) 的部分追加到out
+     */
+    private void appendRange(StringBuilder out, int from, int to) {
+        int position = append(out, committed, 0, from, to);
+        for (Utterance utterance : open) {
+            position = append(out, utterance.frozen, position, from, to);
+            for (String segment : utterance.segments) {
+                position = append(out, segment, position, from, to);
+            }
+        }
+    }
+
+    /**
+     * @param position part在完整文本中的起始位置
+     * @return part之后的位置
+     */
+    private static int append(StringBuilder out, CharSequence part, int position, int from, int to) {
+        int end = position + part.length();
+        int start = Math.max(position, from);
+        int stop = Math.min(end, to);
+        if (start < stop) {
+            out.append(part, start - position, stop - position);
+        }
+        return end;
+    }
+
+    /**
+     * text开头与tail末尾重叠的最大长度
+     */
+    private static int overlap(String tail, String text) {
+        for (int length = Math.min(tail.length(), text.length()); length >= MIN_STITCH_OVERLAP; length--) {
+            if (tail.regionMatches(tail.length() - length, text, 0, length)) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private void markDirty(int offset) {
+        // 变化位置不能超过前端已有文本的末尾
+        offset = Math.min(offset, emittedLength);
+        dirtyFrom = dirtyFrom < 0 ? offset : Math.min(dirtyFrom, offset);
+    }
+
+    /**
+     * 一句话（一次上游识别）的转写
+     */
+    private static class Utterance {
+        private final int id;
+        /**
+         * 续传前已收到的文本
+         */
+        private final StringBuilder frozen = new StringBuilder();
+        /**
+         * 当前上游连接的分段，下标为 sn - 1
+         */
+        private final List<String> segments = new ArrayList<>();
+        /**
+         * 续传前文本的末尾，续传后句首与之重叠的部分会被去掉；未续传时为null
+         */
+        private String stitchTail;
+        private boolean finished;
+
+        Utterance(int id) {
+            this.id = id;
+        }
+
+        void freeze() {
+            for (String segment : segments) {
+                frozen.append(segment);
+            }
+            segments.clear();
+        }
+
+        int length() {
+            return frozen.length() + lengthBefore(segments.size() + 1);
+        }
+
+        int lengthBefore(int sn) {
+            int length = 0;
+            for (int i = 0; i < sn - 1 && i < segments.size(); i++) {
+                length += segments.get(i).length();
+            }
+            return length;
+        }
+    }
+}
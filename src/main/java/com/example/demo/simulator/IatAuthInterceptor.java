@@ -0,0 +1,75 @@
+package com.example.demo.simulator;
+
+import com.example.demo.util.AuthUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 模拟器握手鉴权
+ * 与讯飞服务端一样校验URL中的 authorization/date/host 参数，失败时返回401，不建立WebSocket
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+public class IatAuthInterceptor implements HandshakeInterceptor {
+
+    private static final long MAX_CLOCK_SKEW_SECONDS = 300;
+
+    private final AuthUtil authUtil;
+
+    public IatAuthInterceptor(AuthUtil authUtil) {
+        this.authUtil = authUtil;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) throws Exception {
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams();
+        String authorization = decode(params.getFirst("authorization"));
+        String date = decode(params.getFirst("date"));
+        String host = decode(params.getFirst("host"));
+
+        String error;
+        if (authorization == null || date == null || host == null) {
+            error = "missing authorization, date or host";
+        } else if (!host.equals(request.getURI().getHost())) {
+            error = "host mismatch";
+        } else {
+            error = authUtil.verifyAuthorization(authorization, date, host,
+                    "GET " + request.getURI().getPath() + " HTTP/1.1", MAX_CLOCK_SKEW_SECONDS);
+        }
+
+        if (error != null) {
+            log.warn("模拟器拒绝握手: {}", error);
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            response.getBody().write(("{\"message\":\"" + error + "\"}").getBytes(StandardCharsets.UTF_8));
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        if (value == null) {
+            return null;
+        }
+        // Base64中的 '+' 在查询串中不会被编码，URLDecoder会把它当成空格
+        return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.simulator;
+
+import com.example.demo.util.AuthUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地讯飞IAT协议模拟器配置
+ * xfyun.simulator.enabled=true 时在本应用中注册 /v2/iat，
+ * 再把 xfyun.iat.host-url 指向 http://localhost:{port}/v2/iat，即可在无网络环境下用真实的客户端代码压测
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "xfyun.simulator.enabled", havingValue = "true")
+public class IatSimulatorConfig implements WebSocketConfigurer {
+
+    private final AuthUtil authUtil;
+
+    @Value("${xfyun.simulator.path:/v2/iat}")
+    private String path;
+
+    @Value("${xfyun.simulator.partial-interval-ms:200}")
+    private long partialIntervalMs;
+
+    @Value("${xfyun.simulator.latency-ms:150}")
+    private long latencyMs;
+
+    @Value("${xfyun.simulator.final-latency-ms:300}")
+    private long finalLatencyMs;
+
+    @Value("${xfyun.simulator.max-audio-ms:60000}")
+    private long maxAudioMs;
+
+    @Value("${xfyun.simulator.max-bytes-per-second:0}")
+    private long maxBytesPerSecond;
+
+    @Value("${xfyun.simulator.max-sessions:0}")
+    private int maxSessions;
+
+    @Value("${xfyun.simulator.error-rate:0}")
+    private double errorRate;
+
+    @Value("${xfyun.simulator.error-code:10700}")
+    private int errorCode;
+
+    @Value("${xfyun.simulator.reset-rate:0}")
+    private double resetRate;
+
+    @Value("${xfyun.simulator.threads:2}")
+    private int threads;
+
+    public IatSimulatorConfig(AuthUtil authUtil) {
+        this.authUtil = authUtil;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(iatSimulatorHandler(), path)
+                .addInterceptors(new IatAuthInterceptor(authUtil))
+                .setAllowedOrigins("*");
+        log.info("讯飞IAT协议模拟器已启用: {}", path);
+    }
+
+    @Bean
+    public IatSimulatorHandler iatSimulatorHandler() {
+        IatSimulatorHandler.Settings settings = new IatSimulatorHandler.Settings(authUtil.getAppId(),
+                partialIntervalMs, latencyMs, finalLatencyMs, maxAudioMs, maxBytesPerSecond, maxSessions,
+                errorRate, errorCode, resetRate);
+        return new IatSimulatorHandler(settings, simulatorScheduler());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService simulatorScheduler() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newScheduledThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "iat-simulator-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
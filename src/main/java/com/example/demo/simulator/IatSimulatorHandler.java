@@ -0,0 +1,424 @@
+package com.example.demo.simulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 讯飞IAT协议模拟器
+ * 按 /v2/iat 协议接收第一帧/中间帧/最后一帧，每收到 partialIntervalMs 的音频推送一条wpgs中间结果
+ * （每第三条为替换前两段的rpl），最后一帧后推送最终结果并关闭连接。
+ * 音频只计算长度不解码，单机可以模拟大量并发会话。可配置结果延迟、错误注入、连接中断、时长和速率限制，
+ * 错误码与讯飞一致
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@Slf4j
+public class IatSimulatorHandler extends TextWebSocketHandler {
+
+    // 16kHz、16位、单声道
+    private static final int BYTES_PER_MS = 32;
+    private static final long ERROR_WINDOW_MS = 3000;
+    private static final String PHRASE = "今天天气很好我们一起去公园散步吧顺便买点水果回家";
+
+    // 讯飞错误码
+    private static final int INVALID_PARAMETER = 10106;
+    private static final int SESSION_TIMEOUT = 10114;
+    private static final int DATA_FORMAT_ERROR = 10160;
+    private static final int INVALID_HANDLE = 10165;
+    private static final int FLOW_CONTROL = 11202;
+    private static final int CONCURRENCY_LIMIT = 11203;
+
+    private final Settings settings;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Utterance> utterances = new ConcurrentHashMap<>();
+    private final AtomicLong sidCounter = new AtomicLong();
+
+    public IatSimulatorHandler(Settings settings, ScheduledExecutorService scheduler) {
+        this.settings = settings;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Utterance utterance = new Utterance(session, String.format("iat%08x@sim", sidCounter.incrementAndGet()));
+        if (settings.getMaxSessions() > 0 && utterances.size() >= settings.getMaxSessions()) {
+            synchronized (utterance) {
+                fail(utterance, CONCURRENCY_LIMIT, "licc limit");
+            }
+            return;
+        }
+        if (settings.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.getErrorRate()) {
+            // 在前3秒音频内随机一个位置注入错误，短句也能触发
+            utterance.errorAtBytes = ThreadLocalRandom.current().nextLong(1, ERROR_WINDOW_MS * BYTES_PER_MS);
+        }
+        if (settings.getResetRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.getResetRate()) {
+            utterance.resetAtBytes = ThreadLocalRandom.current().nextLong(1, ERROR_WINDOW_MS * BYTES_PER_MS);
+        }
+        utterances.put(session.getId(), utterance);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        Utterance utterance = utterances.get(session.getId());
+        if (utterance == null) {
+            return;
+        }
+
+        synchronized (utterance) {
+            if (utterance.finished) {
+                fail(utterance, INVALID_HANDLE, "invalid handle");
+                return;
+            }
+
+            Frame frame;
+            try {
+                frame = parse(message.getPayload());
+            } catch (IOException | IllegalStateException e) {
+                fail(utterance, DATA_FORMAT_ERROR, "request data format error: " + e.getMessage());
+                return;
+            }
+
+            if (!utterance.started) {
+                if (frame.status != 0 || !settings.getAppId().equals(frame.appId) || !frame.hasBusiness) {
+                    fail(utterance, INVALID_PARAMETER, "invalid parameter: first frame requires common.app_id and business");
+                    return;
+                }
+                utterance.started = true;
+            } else if (frame.status != 1 && frame.status != 2) {
+                fail(utterance, INVALID_PARAMETER, "invalid parameter: data.status " + frame.status);
+                return;
+            }
+
+            utterance.audioBytes += frame.audioBytes;
+            if (utterance.audioBytes > settings.getMaxAudioMs() * BYTES_PER_MS) {
+                fail(utterance, SESSION_TIMEOUT, "session timeout: audio longer than " + settings.getMaxAudioMs() + "ms");
+                return;
+            }
+            if (exceedsRate(utterance, frame.audioBytes)) {
+                fail(utterance, FLOW_CONTROL, "over flow-control limit");
+                return;
+            }
+            if (utterance.errorAtBytes > 0 && utterance.audioBytes >= utterance.errorAtBytes) {
+                fail(utterance, settings.getErrorCode(), "simulated engine error");
+                return;
+            }
+            if (utterance.resetAtBytes > 0 && utterance.audioBytes >= utterance.resetAtBytes) {
+                // 不返回错误码直接断开，模拟网络中断或服务端异常
+                close(utterance, CloseStatus.SERVER_ERROR);
+                return;
+            }
+
+            long partialBytes = settings.getPartialIntervalMs() * BYTES_PER_MS;
+            while (utterance.audioBytes - utterance.recognizedBytes >= partialBytes) {
+                utterance.recognizedBytes += partialBytes;
+                utterance.pendingPartials++;
+                scheduler.schedule(() -> sendPartial(utterance), settings.getLatencyMs(), TimeUnit.MILLISECONDS);
+            }
+
+            if (frame.status == 2) {
+                utterance.finished = true;
+                scheduler.schedule(() -> sendFinal(utterance), settings.getFinalLatencyMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Utterance utterance = utterances.remove(session.getId());
+        if (utterance != null) {
+            synchronized (utterance) {
+                utterance.closed = true;
+            }
+        }
+    }
+
+    public int getActiveSessions() {
+        return utterances.size();
+    }
+
+    private boolean exceedsRate(Utterance utterance, long bytes) {
+        if (settings.getMaxBytesPerSecond() <= 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - utterance.windowStart >= 1000) {
+            utterance.windowStart = now;
+            utterance.windowBytes = 0;
+        }
+        utterance.windowBytes += bytes;
+        return utterance.windowBytes > settings.getMaxBytesPerSecond();
+    }
+
+    private void sendPartial(Utterance utterance) {
+        synchronized (utterance) {
+            // 已被最终结果提前发出
+            if (utterance.closed || utterance.pendingPartials == 0) {
+                return;
+            }
+            utterance.pendingPartials--;
+            int sn = ++utterance.sn;
+            String text = nextChars(utterance, 2);
+            JsonObject result;
+            if (sn % 3 == 0) {
+                // 修正前两段：替换sn-2到sn-1并在末尾追加新字
+                result = result(sn, false, utterance.previousText + utterance.lastText + text);
+                result.addProperty("pgs", "rpl");
+                JsonArray rg = new JsonArray();
+                rg.add(sn - 2);
+                rg.add(sn - 1);
+                result.add("rg", rg);
+                utterance.previousText = "";
+                utterance.lastText = "";
+            } else {
+                result = result(sn, false, text);
+                result.addProperty("pgs", "apd");
+                utterance.previousText = utterance.lastText;
+                utterance.lastText = text;
+            }
+            send(utterance, response(utterance, 1, result));
+        }
+    }
+
+    private void sendFinal(Utterance utterance) {
+        synchronized (utterance) {
+            if (utterance.closed) {
+                return;
+            }
+            // 调度线程可能先执行最终结果，先补发尚未发出的中间结果保证sn有序
+            while (utterance.pendingPartials > 0) {
+                sendPartial(utterance);
+            }
+            JsonObject result = result(++utterance.sn, true, "。");
+            result.addProperty("pgs", "apd");
+            send(utterance, response(utterance, 2, result));
+            close(utterance, CloseStatus.NORMAL);
+        }
+    }
+
+    /**
+     * 返回错误码并关闭连接，调用方须持有utterance锁
+     */
+    private void fail(Utterance utterance, int code, String message) {
+        JsonObject response = new JsonObject();
+        response.addProperty("code", code);
+        response.addProperty("message", message);
+        response.addProperty("sid", utterance.sid);
+        send(utterance, response);
+        utterance.finished = true;
+        close(utterance, CloseStatus.NORMAL);
+    }
+
+    private static JsonObject result(int sn, boolean last, String text) {
+        JsonObject cw = new JsonObject();
+        cw.addProperty("sc", 0);
+        cw.addProperty("w", text);
+        JsonArray cws = new JsonArray();
+        cws.add(cw);
+        JsonObject word = new JsonObject();
+        word.addProperty("bg", 0);
+        word.add("cw", cws);
+        JsonArray ws = new JsonArray();
+        ws.add(word);
+
+        JsonObject result = new JsonObject();
+        result.addProperty("sn", sn);
+        result.addProperty("ls", last);
+        result.addProperty("bg", 0);
+        result.addProperty("ed", 0);
+        result.add("ws", ws);
+        return result;
+    }
+
+    private static JsonObject response(Utterance utterance, int status, JsonObject result) {
+        JsonObject data = new JsonObject();
+        data.add("result", result);
+        data.addProperty("status", status);
+
+        JsonObject response = new JsonObject();
+        response.addProperty("code", 0);
+        response.addProperty("message", "success");
+        response.addProperty("sid", utterance.sid);
+        response.add("data", data);
+        return response;
+    }
+
+    private static String nextChars(Utterance utterance, int count) {
+        StringBuilder text = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            text.append(PHRASE.charAt(utterance.chars++ % PHRASE.length()));
+        }
+        return text.toString();
+    }
+
+    private void send(Utterance utterance, JsonObject message) {
+        if (utterance.closed || !utterance.session.isOpen()) {
+            return;
+        }
+        try {
+            utterance.session.sendMessage(new TextMessage(message.toString()));
+        } catch (IOException e) {
+            log.debug("模拟器发送失败: {}", e.getMessage());
+        }
+    }
+
+    private void close(Utterance utterance, CloseStatus status) {
+        utterance.closed = true;
+        try {
+            utterance.session.close(status);
+        } catch (IOException e) {
+            log.debug("模拟器关闭连接失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 只读取协议需要的字段，音频只计算解码后的长度
+     */
+    private static Frame parse(String payload) throws IOException {
+        Frame frame = new Frame();
+        JsonReader reader = new JsonReader(new StringReader(payload));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "common":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if ("app_id".equals(reader.nextName())) {
+                            frame.appId = reader.nextString();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "business":
+                    frame.hasBusiness = true;
+                    reader.skipValue();
+                    break;
+                case "data":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        if ("status".equals(name)) {
+                            frame.status = reader.nextInt();
+                        } else if ("audio".equals(name)) {
+                            frame.audioBytes = base64DecodedLength(reader.nextString());
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return frame;
+    }
+
+    private static int base64DecodedLength(String base64) {
+        int length = base64.length();
+        int padding = length > 0 && base64.charAt(length - 1) == '=' ? (length > 1 && base64.charAt(length - 2) == '=' ? 2 : 1) : 0;
+        return length / 4 * 3 - padding;
+    }
+
+    private static class Frame {
+        private String appId;
+        private boolean hasBusiness;
+        private int status = -1;
+        private int audioBytes;
+    }
+
+    /**
+     * 一个连接上的识别状态，所有访问都持有该对象的锁
+     */
+    private static class Utterance {
+        private final WebSocketSession session;
+        private final String sid;
+        private boolean started;
+        private boolean finished;
+        private boolean closed;
+        private long audioBytes;
+        private long recognizedBytes;
+        private long errorAtBytes = -1;
+        private long resetAtBytes = -1;
+        private long windowStart;
+        private long windowBytes;
+        private int sn;
+        private int pendingPartials;
+        private int chars;
+        private String previousText = "";
+        private String lastText = "";
+
+        Utterance(WebSocketSession session, String sid) {
+            this.session = session;
+            this.sid = sid;
+        }
+    }
+
+    /**
+     * 模拟器参数
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Settings {
+        /**
+         * 第一帧中须携带的 common.app_id
+         */
+        private final String appId;
+        /**
+         * 每收到多长的音频推送一条中间结果（毫秒）
+         */
+        private final long partialIntervalMs;
+        /**
+         * 中间结果延迟（毫秒）
+         */
+        private final long latencyMs;
+        /**
+         * 最后一帧到最终结果的延迟（毫秒）
+         */
+        private final long finalLatencyMs;
+        /**
+         * 单次识别音频时长上限（毫秒），超过返回10114
+         */
+        private final long maxAudioMs;
+        /**
+         * 单连接每秒音频字节数上限，超过返回11202，0为不限
+         */
+        private final long maxBytesPerSecond;
+        /**
+         * 并发连接上限，超过返回11203，0为不限
+         */
+        private final int maxSessions;
+        /**
+         * 识别中途返回错误的连接比例（0~1）
+         */
+        private final double errorRate;
+        /**
+         * 注入的错误码
+         */
+        private final int errorCode;
+        /**
+         * 识别中途不返回结果直接断开的连接比例（0~1）
+         */
+        private final double resetRate;
+    }
+}
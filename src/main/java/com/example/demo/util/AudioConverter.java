@@ -1,155 +1,107 @@
 package com.example.demo.util;
 
+import com.example.demo.audio.AutomaticGainControl;
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.audio.PcmStreamConverter;
+import com.example.demo.metrics.SpeechMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.sound.sampled.*;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import javax.annotation.PostConstruct;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * 音频格式转换工具类
- * 将WebM/Opus音频转换为PCM格式
+ * 将前端上传的PCM/WAV/Opus音频转换为讯飞要求的16kHz单声道16位PCM。
+ * 流式音频请使用 {@link #newStreamConverter(PcmFormat)}，转换状态跨包保留，
+ * 非16kHz输入用多相滤波器重采样，开启AGC时同时把偏小的音量提升到目标电平
  * 
  * @author example
  * @version 1.0.0
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class AudioConverter {
 
     // 讯飞IAT要求的音频格式
-    private static final int SAMPLE_RATE = 16000;
+    private static final int SAMPLE_RATE = PcmFormat.IAT.getSampleRate();
     private static final int SAMPLE_SIZE_IN_BITS = 16;
-    private static final int CHANNELS = 1;
-    private static final boolean SIGNED = true;
-    private static final boolean BIG_ENDIAN = false;
+    private static final int CHANNELS = PcmFormat.IAT.getChannels();
+    // 探测文件头（RIFF/OggS）所需的字节数
+    private static final int MAGIC_BYTES = 4;
+
+    private final SpeechMetrics metrics;
+
+    @Value("${speech.agc.enabled:true}")
+    private boolean agcEnabled;
+
+    @Value("${speech.agc.target-db:-20}")
+    private double agcTargetDb;
+
+    @Value("${speech.agc.max-gain-db:20}")
+    private double agcMaxGainDb;
+
+    @Value("${speech.agc.gate-db:-50}")
+    private double agcGateDb;
+
+    private AutomaticGainControl.Config agcConfig;
+
+    @PostConstruct
+    public void init() {
+        agcConfig = agcEnabled ? new AutomaticGainControl.Config(agcTargetDb, agcMaxGainDb, agcGateDb) : null;
+        log.info("音频转换: AGC={}", agcEnabled ? "目标 " + agcTargetDb + " dBFS，最大增益 " + agcMaxGainDb + " dB" : "关闭");
+    }
 
     /**
-     * 处理来自前端的PCM音频数据
-     * 前端已经转换为16位PCM格式，这里直接验证和返回
+     * 为一路音频流创建转换器，每个会话一个，滤波器历史和AGC增益在其中保存
      *
-     * @param audioData 音频数据（可能是WebM或PCM）
-     * @return PCM格式的音频数据
+     * @param format 前端声明的输入格式，流以WAV文件头开始时以文件头为准
      */
-    public byte[] convertWebMToPCM(byte[] audioData) {
-        try {
-            log.debug("处理音频数据，输入大小: {} bytes", audioData.length);
-
-            // 检查是否已经是PCM格式（前端发送的）
-            if (isPCMFormat(audioData)) {
-                log.debug("检测到PCM格式，直接返回");
-                return audioData;
-            }
-
-            // 尝试使用Java Sound API进行转换
-            byte[] pcmData = convertUsingJavaSound(audioData);
-            if (pcmData != null && pcmData.length > 0) {
-                log.debug("JavaSound转换成功，输出大小: {} bytes", pcmData.length);
-                return pcmData;
-            }
-
-            // 如果转换失败，生成对应时长的静音数据
-            log.warn("音频转换失败，生成对应时长的静音数据");
-            int estimatedDurationMs = Math.max(100, audioData.length / 32); // 估算时长
-            return generateSilence(estimatedDurationMs);
-
-        } catch (Exception e) {
-            log.error("音频转换失败", e);
-            return generateSilence(1000); // 1秒静音
-        }
+    public PcmStreamConverter newStreamConverter(PcmFormat format) {
+        return new PcmStreamConverter(format, agcConfig);
     }
 
     /**
-     * 简单检测是否为PCM格式
-     * 基于数据长度和内容特征进行判断
+     * 用会话的流式转换器转换一个音频包，并记录转换耗时和字节数
+     *
+     * @return 输出字节数，结果位于 {@link PcmStreamConverter#getOutput()}
      */
-    private boolean isPCMFormat(byte[] data) {
-        // PCM数据通常长度是2的倍数（16位采样）
-        if (data.length % 2 != 0) {
-            return false;
-        }
-
-        // 检查数据范围是否符合16位PCM特征
-        // 这是一个简单的启发式检测
-        return data.length > 0 && data.length < 100000; // 合理的音频片段大小
+    public int convert(PcmStreamConverter converter, ByteBuffer input) {
+        metrics.getBytesIn().increment(input.remaining());
+        Timer.Sample sample = Timer.start();
+        int length = converter.convert(input);
+        sample.stop(metrics.getConversionTime());
+        metrics.getBytesConverted().increment(length);
+        return length;
     }
 
-
-
     /**
-     * 使用Java Sound API进行音频转换
+     * 一次性转换完整的音频数据
+     * 支持带WAV文件头的音频、Ogg Opus和16kHz单声道16位PCM（WebM封装不支持）。无法识别的数据直接报错，
+     * 不再用静音代替（静音会让转写结果悄悄缺失并浪费上游配额）。
+     * 不足4个字节无法探测文件头，按PCM处理；PCM末尾不足一个采样的字节丢弃
+     *
+     * @param audioData WAV、Ogg Opus或PCM音频数据
+     * @return 16kHz单声道16位PCM
+     * @throws IllegalArgumentException 格式不支持或数据不完整
      */
-    private byte[] convertUsingJavaSound(byte[] audioData) {
-        try {
-            // 尝试读取音频数据
-            ByteArrayInputStream bais = new ByteArrayInputStream(audioData);
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(bais);
-            
-            // 获取原始音频格式
-            AudioFormat sourceFormat = audioInputStream.getFormat();
-            log.debug("原始音频格式: {}", sourceFormat);
-            
-            // 定义目标PCM格式
-            AudioFormat targetFormat = new AudioFormat(
-                AudioFormat.Encoding.PCM_SIGNED,
-                SAMPLE_RATE,
-                SAMPLE_SIZE_IN_BITS,
-                CHANNELS,
-                CHANNELS * SAMPLE_SIZE_IN_BITS / 8,
-                SAMPLE_RATE,
-                BIG_ENDIAN
-            );
-            
-            // 检查是否支持转换
-            if (!AudioSystem.isConversionSupported(targetFormat, sourceFormat)) {
-                log.debug("不支持从 {} 转换到 {}", sourceFormat, targetFormat);
-                return null;
-            }
-            
-            // 执行转换
-            AudioInputStream convertedStream = AudioSystem.getAudioInputStream(targetFormat, audioInputStream);
-            
-            // 读取转换后的数据
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            
-            while ((bytesRead = convertedStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-            
-            convertedStream.close();
-            audioInputStream.close();
-            
-            return outputStream.toByteArray();
-            
-        } catch (Exception e) {
-            log.debug("JavaSound转换失败: {}", e.getMessage());
-            return null;
+    public byte[] convertWebMToPCM(byte[] audioData) {
+        log.debug("处理音频数据，输入大小: {} bytes", audioData.length);
+        if (audioData.length < MAGIC_BYTES) {
+            return Arrays.copyOf(audioData, audioData.length - audioData.length % PcmFormat.IAT.getFrameSize());
         }
-    }
-
 
-
-    /**
-     * 生成指定时长的静音PCM数据
-     * 
-     * @param durationMs 时长（毫秒）
-     * @return 静音PCM数据
-     */
-    private byte[] generateSilence(int durationMs) {
-        int sampleCount = SAMPLE_RATE * durationMs / 1000;
-        int byteCount = sampleCount * CHANNELS * SAMPLE_SIZE_IN_BITS / 8;
-        
-        byte[] silenceData = new byte[byteCount];
-        // PCM静音数据就是全零
-        
-        log.debug("生成静音数据: {} ms, {} bytes", durationMs, byteCount);
-        return silenceData;
+        PcmStreamConverter converter = new PcmStreamConverter(PcmFormat.IAT);
+        int length = converter.convert(ByteBuffer.wrap(audioData));
+        if (length == 0 && audioData.length > 0) {
+            throw new IllegalArgumentException("无法识别的音频数据，仅支持WAV、Ogg Opus和16kHz单声道16位PCM");
+        }
+        return length == audioData.length && converter.getFormat().isIatFormat() ? audioData : Arrays.copyOf(converter.getOutput(), length);
     }
 
     /**
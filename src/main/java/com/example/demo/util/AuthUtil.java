@@ -1,5 +1,6 @@
 package com.example.demo.util;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -8,14 +9,20 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Base64;
-import java.util.Date;
 import java.util.Locale;
-import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 讯飞API认证工具类
+ * 签名只取决于 host、date（精确到秒）和请求路径，同一秒内的鉴权URL直接复用；
+ * 每个线程持有一个已初始化的Mac，连接风暴时不再重复 getInstance/init
  *
  * @author example
  * @version 1.0.0
@@ -23,6 +30,13 @@ import java.util.TimeZone;
 @Component
 @Getter
 public class AuthUtil {
+    private static final Pattern AUTH_API_KEY = Pattern.compile("api_key=\"([^\"]*)\"");
+    private static final Pattern AUTH_SIGNATURE = Pattern.compile("signature=\"([^\"]*)\"");
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    // RFC1123格式的GMT时间，DateTimeFormatter线程安全，可共享
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
     @Value("${xfyun.iat.app-id}")
     private String appId;
 
@@ -38,59 +52,40 @@ public class AuthUtil {
     @Value("${xfyun.iat.mock-mode:false}")
     private boolean mockMode;
 
+    // 每个线程一个以apiSecret初始化好的Mac；doFinal后Mac自动重置，可直接复用
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+
+    // 最近一次生成的鉴权URL，同一秒、同一地址时复用
+    @Getter(AccessLevel.NONE)
+    private volatile SignedUrl lastSignedUrl;
+
     public String getAuthUrl() throws Exception {
         URL url = new URL(hostUrl);
-        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
-        format.setTimeZone(TimeZone.getTimeZone("GMT"));
-        String date = format.format(new Date());
-
-        StringBuilder builder = new StringBuilder("host: ").append(url.getHost()).append("\n")
-                .append("date: ").append(date).append("\n")
-                .append("GET ").append(url.getPath()).append(" HTTP/1.1");
-
-        Mac mac = Mac.getInstance("hmacsha256");
-        SecretKeySpec spec = new SecretKeySpec(apiSecret.getBytes(StandardCharsets.UTF_8), "hmacsha256");
-        mac.init(spec);
-        byte[] hexDigits = mac.doFinal(builder.toString().getBytes(StandardCharsets.UTF_8));
-        String sha = Base64.getEncoder().encodeToString(hexDigits);
-
-        String authorization = String.format("api_key=\"%s\", algorithm=\"%s\", headers=\"%s\", signature=\"%s\"",
-                apiKey, "hmac-sha256", "host date request-line", sha);
-
-        String authParam = Base64.getEncoder().encodeToString(authorization.getBytes(StandardCharsets.UTF_8));
-        String authUrl = "https://" + url.getHost() + url.getPath() +
-                "?authorization=" + authParam +
-                "&date=" + date +
-                "&host=" + url.getHost();
-
-        return authUrl;
+        return getAuthUrl("https://" + url.getHost(), url.getPath());
     }
 
     /**
      * 生成WebSocket认证URL
+     * 同一秒内对同一地址的调用返回同一个URL
      */
     public String getAuthUrl(String wsHostUrl, String requestPath) {
+        long epochSecond = System.currentTimeMillis() / 1000;
+        SignedUrl cached = lastSignedUrl;
+        if (cached != null && cached.matches(epochSecond, wsHostUrl, requestPath)) {
+            return cached.url;
+        }
+
         try {
-            // 将wss://转换为https://进行URL解析
-            String httpUrl = wsHostUrl.replace("wss://", "https://") + requestPath;
+            // 将wss://、ws://转换为https://、http://进行URL解析
+            String httpUrl = wsHostUrl.replaceFirst("^ws", "http") + requestPath;
             URL url = new URL(httpUrl);
+            String date = DATE_FORMAT.format(Instant.ofEpochSecond(epochSecond));
 
-            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
-            format.setTimeZone(TimeZone.getTimeZone("GMT"));
-            String date = format.format(new Date());
-
-            StringBuilder builder = new StringBuilder("host: ").append(url.getHost()).append("\n")
-                    .append("date: ").append(date).append("\n")
-                    .append("GET ").append(url.getPath()).append(" HTTP/1.1");
+            String sha = sign(url.getHost(), date, "GET " + url.getPath() + " HTTP/1.1");
 
-            Mac mac = Mac.getInstance("hmacsha256");
-            SecretKeySpec spec = new SecretKeySpec(apiSecret.getBytes(StandardCharsets.UTF_8), "hmacsha256");
-            mac.init(spec);
-            byte[] hexDigits = mac.doFinal(builder.toString().getBytes(StandardCharsets.UTF_8));
-            String sha = Base64.getEncoder().encodeToString(hexDigits);
-
-            String authorization = String.format("api_key=\"%s\", algorithm=\"%s\", headers=\"%s\", signature=\"%s\"",
-                    apiKey, "hmac-sha256", "host date request-line", sha);
+            String authorization = "api_key=\"" + apiKey + "\", algorithm=\"hmac-sha256\", "
+                    + "headers=\"host date request-line\", signature=\"" + sha + "\"";
 
             String authParam = Base64.getEncoder().encodeToString(authorization.getBytes(StandardCharsets.UTF_8));
 
@@ -100,6 +95,7 @@ public class AuthUtil {
                     "&date=" + date +
                     "&host=" + url.getHost();
 
+            lastSignedUrl = new SignedUrl(epochSecond, wsHostUrl, requestPath, authUrl);
             return authUrl;
 
         } catch (Exception e) {
@@ -107,6 +103,62 @@ public class AuthUtil {
         }
     }
 
+    /**
+     * 计算请求签名：对 host、date、request-line 做HmacSHA256后Base64编码
+     *
+     * @param requestLine 例如 GET /v2/iat HTTP/1.1
+     */
+    public String sign(String host, String date, String requestLine) {
+        String signatureOrigin = "host: " + host + "\n" + "date: " + date + "\n" + requestLine;
+        byte[] hexDigits = mac.get().doFinal(signatureOrigin.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hexDigits);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(HMAC_ALGORITHM);
+            instance.init(new SecretKeySpec(apiSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            return instance;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialize " + HMAC_ALGORITHM, e);
+        }
+    }
+
+    /**
+     * 校验鉴权URL中的authorization参数（本地协议模拟器使用）
+     * 与讯飞服务端一致：api_key须匹配，签名须一致，date与当前时间相差不超过 maxSkewSeconds
+     *
+     * @param authorization URL解码后的authorization参数（Base64）
+     * @return 校验失败的原因，通过时返回null
+     */
+    public String verifyAuthorization(String authorization, String date, String host, String requestLine,
+                                      long maxSkewSeconds) {
+        try {
+            long signedAt = Instant.from(DATE_FORMAT.parse(date)).toEpochMilli();
+            long skew = Math.abs(System.currentTimeMillis() - signedAt) / 1000;
+            if (skew > maxSkewSeconds) {
+                return "date out of range: " + skew + "s";
+            }
+
+            String decoded = new String(Base64.getDecoder().decode(authorization), StandardCharsets.UTF_8);
+            Matcher key = AUTH_API_KEY.matcher(decoded);
+            Matcher signature = AUTH_SIGNATURE.matcher(decoded);
+            if (!key.find() || !signature.find()) {
+                return "malformed authorization";
+            }
+            if (!apiKey.equals(key.group(1))) {
+                return "invalid api_key";
+            }
+            byte[] expected = sign(host, date, requestLine).getBytes(StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(expected, signature.group(1).getBytes(StandardCharsets.UTF_8))) {
+                return "HMAC signature does not match";
+            }
+            return null;
+        } catch (Exception e) {
+            return "HMAC signature cannot be verified: " + e.getMessage();
+        }
+    }
+
     public String getAppId() {
         return appId;
     }
@@ -114,4 +166,26 @@ public class AuthUtil {
     public boolean isMockMode() {
         return mockMode;
     }
-}
\ No newline at end of file
+
+    /**
+     * 某一秒内为某个地址生成的鉴权URL
+     */
+    private static final class SignedUrl {
+        private final long epochSecond;
+        private final String wsHostUrl;
+        private final String requestPath;
+        private final String url;
+
+        SignedUrl(long epochSecond, String wsHostUrl, String requestPath, String url) {
+            this.epochSecond = epochSecond;
+            this.wsHostUrl = wsHostUrl;
+            this.requestPath = requestPath;
+            this.url = url;
+        }
+
+        boolean matches(long epochSecond, String wsHostUrl, String requestPath) {
+            return this.epochSecond == epochSecond && this.wsHostUrl.equals(wsHostUrl)
+                    && this.requestPath.equals(requestPath);
+        }
+    }
+}
\ No newline at end of file
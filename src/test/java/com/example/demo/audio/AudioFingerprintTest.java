@@ -0,0 +1,122 @@
+package com.example.demo.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 音频指纹测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class AudioFingerprintTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    @Test
+    void replay_ShouldMatchWithArbitraryPaddingVolumeAndBackgroundNoise() {
+        AudioFingerprint original = AudioFingerprint.of(pcm(speech(120, 0.0, 1.0, 0, 0)), 0, 2 * samples(0));
+
+        // 前面的静音不是分析帧的整数倍
+        for (int padding : new int[]{37, 160, 320, 641}) {
+            byte[] replay = pcm(speech(120, 0.0, 1.0, padding, 0));
+            assertTrue(original.matches(AudioFingerprint.of(replay, 0, replay.length)), "padding " + padding);
+        }
+        // 音量降低12dB并叠加约 -64dBFS 的底噪
+        byte[] quiet = pcm(speech(120, 0.0, 0.25, 250, 0.0006));
+        AudioFingerprint replay = AudioFingerprint.of(quiet, 0, quiet.length);
+        assertTrue(original.matches(replay), "distance " + original.distance(replay));
+    }
+
+    @Test
+    void shortOrSilentAudio_ShouldNotHaveFingerprint() {
+        // 200个40ms的纯音：有效音频不足250ms，不生成指纹，也就不会互相冲突
+        for (int i = 0; i < 200; i++) {
+            double[] tone = new double[SAMPLE_RATE * 40 / 1000];
+            for (int n = 0; n < tone.length; n++) {
+                tone[n] = (500 + 100 * i) * Math.sin(2 * Math.PI * (100 + 15 * i) * n / SAMPLE_RATE);
+            }
+            byte[] data = pcm(tone);
+            assertNull(AudioFingerprint.of(data, 0, data.length));
+        }
+        byte[] silence = new byte[SAMPLE_RATE * 2];
+        assertNull(AudioFingerprint.of(silence, 0, silence.length));
+    }
+
+    @Test
+    void differentAudio_ShouldNotMatch() {
+        byte[] first = pcm(speech(120, 0.0, 1.0, 0, 0));
+        byte[] otherPitch = pcm(speech(180, 0.0, 1.0, 0, 0));
+        byte[] otherVowels = pcm(speech(120, 1.3, 1.0, 0, 0));
+        AudioFingerprint fingerprint = AudioFingerprint.of(first, 0, first.length);
+        assertFalse(fingerprint.matches(AudioFingerprint.of(otherPitch, 0, otherPitch.length)));
+        assertFalse(fingerprint.matches(AudioFingerprint.of(otherVowels, 0, otherVowels.length)));
+
+        // 包络完全相同、内容是不同的噪声
+        byte[] noise = pcm(noise(1));
+        byte[] otherNoise = pcm(noise(2));
+        AudioFingerprint a = AudioFingerprint.of(noise, 0, noise.length);
+        AudioFingerprint b = AudioFingerprint.of(otherNoise, 0, otherNoise.length);
+        assertEquals(a.getFrames(), b.getFrames());
+        assertTrue(a.distance(b) > 0.35, "distance " + a.distance(b));
+    }
+
+    private static int samples(int padding) {
+        return padding + SAMPLE_RATE * 12 / 10;
+    }
+
+    /**
+     * 1.2秒类语音信号：基频起伏的谐波，经移动的共振峰加权，按音节包络调制
+     *
+     * @param pitch      平均基频
+     * @param vowelPhase 共振峰轨迹的相位，不同相位相当于不同的元音序列
+     * @param noise      叠加白噪声的幅度（满幅为1）
+     */
+    private static double[] speech(double pitch, double vowelPhase, double gain, int padding, double noise) {
+        Random random = new Random(7);
+        double[] out = new double[samples(padding)];
+        double phase = 0;
+        for (int n = 0; n < out.length - padding; n++) {
+            double t = (double) n / SAMPLE_RATE;
+            double f0 = pitch * (1 + 0.25 * Math.sin(2 * Math.PI * 1.5 * t));
+            double formant = 1200 + 700 * Math.sin(2 * Math.PI * 2.1 * t + vowelPhase);
+            double syllable = Math.pow(Math.sin(Math.PI * 4 * t), 2);
+            phase += 2 * Math.PI * f0 / SAMPLE_RATE;
+            double value = 0;
+            for (int h = 1; h * f0 < 4000; h++) {
+                double distance = (h * f0 - formant) / 400;
+                value += (0.2 + Math.exp(-distance * distance)) * Math.sin(h * phase) / h;
+            }
+            out[padding + n] = gain * 12000 * syllable * value;
+        }
+        if (noise > 0) {
+            for (int n = 0; n < out.length; n++) {
+                out[n] += noise * 32768 * random.nextGaussian();
+            }
+        }
+        return out;
+    }
+
+    private static double[] noise(long seed) {
+        Random random = new Random(seed);
+        double[] out = new double[SAMPLE_RATE];
+        for (int n = 0; n < out.length; n++) {
+            double syllable = Math.pow(Math.sin(Math.PI * 4 * n / SAMPLE_RATE), 2);
+            out[n] = 4000 * syllable * random.nextGaussian();
+        }
+        return out;
+    }
+
+    private static byte[] pcm(double[] samples) {
+        byte[] pcm = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            short sample = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(samples[i])));
+            pcm[2 * i] = (byte) sample;
+            pcm[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+}
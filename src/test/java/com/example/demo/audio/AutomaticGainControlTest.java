@@ -0,0 +1,73 @@
+package com.example.demo.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 自动增益控制测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class AutomaticGainControlTest {
+
+    private final AutomaticGainControl agc = new AutomaticGainControl(new AutomaticGainControl.Config(-20, 20, -50));
+
+    @Test
+    void quietSpeech_ShouldBeRaisedTowardTarget() {
+        // -40 dBFS 的方波，需要的增益超过上限，收敛到最大增益20dB
+        short[] block = new short[160];
+        for (int i = 0; i < 300; i++) {
+            fill(block, 328);
+            agc.process(block, 0, block.length);
+        }
+
+        assertEquals(20, agc.getGainDb(), 0.5);
+        assertEquals(3280, Math.abs(block[159]), 40);
+    }
+
+    @Test
+    void loudPeak_ShouldNotClipAndSilenceShouldReleaseGain() {
+        short[] block = new short[160];
+        raiseToMaxGain(block);
+
+        // 字间50ms的停顿只让增益略微回落
+        for (int i = 0; i < 5; i++) {
+            fill(block, 0);
+            agc.process(block, 0, block.length);
+        }
+        assertTrue(agc.getGainDb() > 15);
+
+        // 放大后会溢出short，限幅后不削波也不回绕
+        fill(block, 20000);
+        agc.process(block, 0, block.length);
+        for (short sample : block) {
+            assertTrue(Math.abs(sample) >= 20000);
+        }
+        assertTrue(agc.getGainDb() < 20 * Math.log10(32767.0 / 20000));
+
+        // 长时间低于门限，增益回落到0dB，停顿中的噪声不再被放大
+        raiseToMaxGain(block);
+        for (int i = 0; i < 100; i++) {
+            fill(block, 50);
+            agc.process(block, 0, block.length);
+        }
+        assertEquals(0, agc.getGainDb(), 0.2);
+        assertEquals(50, Math.abs(block[159]), 1);
+    }
+
+    private void raiseToMaxGain(short[] block) {
+        for (int i = 0; i < 300; i++) {
+            fill(block, 328);
+            agc.process(block, 0, block.length);
+        }
+        assertEquals(20, agc.getGainDb(), 0.5);
+    }
+
+    private static void fill(short[] block, int amplitude) {
+        for (int i = 0; i < block.length; i++) {
+            block[i] = (short) (i % 2 == 0 ? amplitude : -amplitude);
+        }
+    }
+}
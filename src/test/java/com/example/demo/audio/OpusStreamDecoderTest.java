@@ -0,0 +1,126 @@
+package com.example.demo.audio;
+
+import io.github.jaredmdobson.concentus.OpusApplication;
+import io.github.jaredmdobson.concentus.OpusEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Opus解码测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class OpusStreamDecoderTest {
+
+    // 20ms @ 16kHz
+    private static final int FRAME_SAMPLES = 320;
+    private static final int PRE_SKIP_48K = 312;
+
+    @Test
+    void rawPackets_ShouldDecodeTo16kPcm() throws Exception {
+        List<byte[]> packets = encodeTone(50);
+        PcmStreamConverter converter = new PcmStreamConverter(PcmFormat.of(48000, 1, "opus"));
+
+        int total = 0;
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        for (byte[] packet : packets) {
+            int length = converter.convert(ByteBuffer.wrap(packet));
+            pcm.write(converter.getOutput(), 0, length);
+            total += length;
+        }
+
+        assertEquals(50 * FRAME_SAMPLES * 2, total);
+        // 1秒的正弦波RMS约为7000，远大于解码误差
+        assertTrue(rms(pcm.toByteArray(), total / 2) > 5000);
+    }
+
+    @Test
+    void oggStreamInOddChunks_ShouldBeDetectedWithoutDeclaration() throws Exception {
+        byte[] ogg = ogg(encodeTone(50));
+        PcmStreamConverter converter = new PcmStreamConverter(PcmFormat.IAT);
+
+        int total = 0;
+        for (int offset = 0; offset < ogg.length; offset += 333) {
+            total += converter.convert(ByteBuffer.wrap(ogg, offset, Math.min(333, ogg.length - offset)));
+        }
+
+        assertEquals(PcmFormat.Encoding.OPUS, converter.getFormat().getEncoding());
+        // OpusHead中的预跳过采样不输出
+        assertEquals((50 * FRAME_SAMPLES - PRE_SKIP_48K / 3) * 2, total);
+    }
+
+    private static List<byte[]> encodeTone(int frames) throws Exception {
+        OpusEncoder encoder = new OpusEncoder(16000, 1, OpusApplication.OPUS_APPLICATION_VOIP);
+        encoder.setBitrate(24000);
+        List<byte[]> packets = new ArrayList<>();
+        short[] pcm = new short[FRAME_SAMPLES];
+        byte[] packet = new byte[1275];
+        for (int frame = 0; frame < frames; frame++) {
+            for (int i = 0; i < FRAME_SAMPLES; i++) {
+                pcm[i] = (short) (10000 * Math.sin(2 * Math.PI * 440 * (frame * FRAME_SAMPLES + i) / 16000));
+            }
+            int length = encoder.encode(pcm, 0, FRAME_SAMPLES, packet, 0, packet.length);
+            packets.add(Arrays.copyOf(packet, length));
+        }
+        return packets;
+    }
+
+    /**
+     * 按RFC 7845封装：OpusHead页、OpusTags页，之后每页10个音频包（不计算CRC）
+     */
+    private static byte[] ogg(List<byte[]> packets) {
+        ByteBuffer head = ByteBuffer.allocate(19).order(ByteOrder.LITTLE_ENDIAN);
+        head.put("OpusHead".getBytes()).put((byte) 1).put((byte) 1).putShort((short) PRE_SKIP_48K)
+                .putInt(16000).putShort((short) 0).put((byte) 0);
+        byte[] tags = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+                .put("OpusTags".getBytes()).putInt(0).putInt(0).array();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int sequence = 0;
+        page(out, 0x02, sequence++, Arrays.asList(head.array()));
+        page(out, 0, sequence++, Arrays.asList(tags));
+        for (int i = 0; i < packets.size(); i += 10) {
+            page(out, 0, sequence++, packets.subList(i, Math.min(i + 10, packets.size())));
+        }
+        return out.toByteArray();
+    }
+
+    private static void page(ByteArrayOutputStream out, int headerType, int sequence, List<byte[]> packets) {
+        ByteArrayOutputStream lacing = new ByteArrayOutputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] packet : packets) {
+            int remaining = packet.length;
+            while (remaining >= 255) {
+                lacing.write(255);
+                remaining -= 255;
+            }
+            lacing.write(remaining);
+            body.write(packet, 0, packet.length);
+        }
+        ByteBuffer header = ByteBuffer.allocate(27).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("OggS".getBytes()).put((byte) 0).put((byte) headerType).putLong(0).putInt(1)
+                .putInt(sequence).putInt(0).put((byte) lacing.size());
+        out.write(header.array(), 0, 27);
+        out.write(lacing.toByteArray(), 0, lacing.size());
+        out.write(body.toByteArray(), 0, body.size());
+    }
+
+    private static double rms(byte[] pcm, int samples) {
+        ByteBuffer buffer = ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN);
+        double energy = 0;
+        for (int i = samples / 2; i < samples; i++) {
+            double sample = buffer.getShort(i * 2);
+            energy += sample * sample;
+        }
+        return Math.sqrt(energy / (samples - samples / 2));
+    }
+}
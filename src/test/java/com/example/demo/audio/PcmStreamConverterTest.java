@@ -0,0 +1,83 @@
+package com.example.demo.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式PCM转换器测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class PcmStreamConverterTest {
+
+    @Test
+    void iatFormat_ShouldPassThroughAcrossOddChunkBoundaries() {
+        PcmStreamConverter converter = new PcmStreamConverter(PcmFormat.IAT);
+        byte[] pcm = {1, 2, 3, 4, 5, 6};
+
+        assertEquals(4, converter.convert(ByteBuffer.wrap(pcm, 0, 5)));
+        assertEquals(2, converter.convert(ByteBuffer.wrap(pcm, 5, 1)));
+        assertEquals(5, converter.getOutput()[0]);
+        assertEquals(6, converter.getOutput()[1]);
+    }
+
+    @Test
+    void stereo48k_ShouldDownmixAndResampleTo16k() {
+        PcmStreamConverter converter = new PcmStreamConverter(PcmFormat.of(48000, 2, "s16le"));
+        ByteBuffer input = ByteBuffer.allocate(4800 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 4800; i++) {
+            input.putShort((short) 1000).putShort((short) 3000);
+        }
+        input.flip();
+
+        int length = converter.convert(input);
+
+        // 100ms输入 -> 约1600个16kHz采样，滤波器历史填满后输出为两个声道的平均值
+        assertTrue(Math.abs(length / 2 - 1600) <= 1);
+        ByteBuffer output = ByteBuffer.wrap(converter.getOutput(), 0, length).order(ByteOrder.LITTLE_ENDIAN);
+        assertTrue(Math.abs(output.getShort(length / 2) - 2000) <= 1);
+        assertTrue(Math.abs(output.getShort(length - 2) - 2000) <= 1);
+    }
+
+    @Test
+    void wavHeaderSplitAcrossPackets_ShouldOverrideDeclaredFormat() {
+        byte[] wav = wav(8000, 1, new short[]{100, 200, 300, 400});
+        PcmStreamConverter converter = new PcmStreamConverter(PcmFormat.IAT);
+
+        int total = 0;
+        for (int offset = 0; offset < wav.length; offset += 7) {
+            total += converter.convert(ByteBuffer.wrap(wav, offset, Math.min(7, wav.length - offset)));
+        }
+
+        assertEquals(8000, converter.getFormat().getSampleRate());
+        // 8kHz -> 16kHz，每个输入采样对应两个输出采样
+        assertEquals(16, total);
+    }
+
+    @Test
+    void unsupportedWavEncoding_ShouldFail() {
+        byte[] wav = wav(16000, 1, new short[]{0});
+        wav[34] = 8;
+
+        PcmStreamConverter converter = new PcmStreamConverter(PcmFormat.IAT);
+        assertThrows(IllegalArgumentException.class, () -> converter.convert(ByteBuffer.wrap(wav)));
+    }
+
+    private static byte[] wav(int sampleRate, int channels, short[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(44 + samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(36 + samples.length * 2).put("WAVE".getBytes());
+        buffer.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels)
+                .putInt(sampleRate).putInt(sampleRate * channels * 2).putShort((short) (channels * 2))
+                .putShort((short) 16);
+        buffer.put("data".getBytes()).putInt(samples.length * 2);
+        for (short sample : samples) {
+            buffer.putShort(sample);
+        }
+        return buffer.array();
+    }
+}
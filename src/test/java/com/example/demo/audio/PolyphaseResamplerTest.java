@@ -0,0 +1,66 @@
+package com.example.demo.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多相重采样器测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class PolyphaseResamplerTest {
+
+    @Test
+    void downsample48k_ShouldKeepSpeechBandAndRejectAliases() {
+        // 1kHz在16kHz的通带内，12kHz高于8kHz奈奎斯特频率，线性插值会把它混叠到4kHz
+        assertEquals(10000, outputRms(48000, 1000), 200);
+        assertTrue(outputRms(48000, 12000) < 100);
+    }
+
+    @Test
+    void oddChunkBoundaries_ShouldMatchSingleCall() {
+        short[] input = tone(44100, 440, 4410);
+
+        PolyphaseResampler whole = new PolyphaseResampler(44100, 16000);
+        short[] expected = new short[whole.maxOutput(input.length)];
+        int expectedLength = whole.process(input, 0, input.length, expected, 0);
+
+        PolyphaseResampler chunked = new PolyphaseResampler(44100, 16000);
+        short[] actual = new short[expected.length];
+        int actualLength = 0;
+        for (int offset = 0; offset < input.length; offset += 7) {
+            int length = Math.min(7, input.length - offset);
+            actualLength += chunked.process(input, offset, length, actual, actualLength);
+        }
+
+        assertEquals(1600, expectedLength);
+        assertEquals(expectedLength, actualLength);
+        assertArrayEquals(expected, actual);
+    }
+
+    /**
+     * 幅度约 10000*√2 的正弦重采样到16kHz，跳过滤波器启动段后输出的RMS
+     */
+    private static double outputRms(int inputRate, int frequency) {
+        short[] input = tone(inputRate, frequency, inputRate / 5);
+        PolyphaseResampler resampler = new PolyphaseResampler(inputRate, 16000);
+        short[] output = new short[resampler.maxOutput(input.length)];
+        int length = resampler.process(input, 0, input.length, output, 0);
+
+        double energy = 0;
+        for (int i = length / 2; i < length; i++) {
+            energy += (double) output[i] * output[i];
+        }
+        return Math.sqrt(energy / (length - length / 2));
+    }
+
+    private static short[] tone(int sampleRate, int frequency, int samples) {
+        short[] tone = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            tone[i] = (short) Math.round(10000 * Math.sqrt(2) * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+        }
+        return tone;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.example.demo.audio.VoiceActivityDetector.Decision.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 语音活动检测测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class VoiceActivityDetectorTest {
+
+    // 40ms一帧
+    private static final int FRAME_SAMPLES = 640;
+
+    private final VoiceActivityDetector vad = new VoiceActivityDetector(
+            new VoiceActivityDetector.Config(-45, 10, 8, 0.3, 120, 400));
+
+    @Test
+    void silence_ShouldNotBeSent() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(SILENCE, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        }
+    }
+
+    @Test
+    void speech_ShouldStartThenContinue() {
+        assertEquals(SILENCE, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SPEECH_START, vad.process(tone(3000), 0, FRAME_SAMPLES * 2));
+        assertEquals(SPEECH, vad.process(tone(3000), 0, FRAME_SAMPLES * 2));
+    }
+
+    @Test
+    void trailingSilence_ShouldKeepHangoverThenEndUtterance() {
+        vad.process(tone(3000), 0, FRAME_SAMPLES * 2);
+
+        // 120ms内的停顿照常上传
+        assertEquals(SPEECH, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SPEECH, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SPEECH, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SILENCE, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SILENCE, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SILENCE, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SILENCE, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SILENCE, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(SILENCE, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+        assertEquals(END_OF_SPEECH, vad.process(silence(), 0, FRAME_SAMPLES * 2));
+
+        assertEquals(SPEECH_START, vad.process(tone(3000), 0, FRAME_SAMPLES * 2));
+    }
+
+    @Test
+    void steadyHighZcrNoise_ShouldRaiseNoiseFloorAndStaySilence() {
+        // -48dBFS 白噪声（过零率约0.5）：起初按清辅音判为语音，噪声底随后升到噪声电平
+        Random random = new Random(1);
+        VoiceActivityDetector.Decision decision = null;
+        for (int i = 0; i < 150; i++) {
+            decision = vad.process(noise(random, 130, 0), 0, FRAME_SAMPLES * 2);
+            if (i >= 60) {
+                assertEquals(SILENCE, decision, "frame " + i);
+            }
+        }
+
+        // 噪声中的说话仍能检测到
+        assertEquals(SPEECH_START, vad.process(noise(random, 130, 3000), 0, FRAME_SAMPLES * 2));
+    }
+
+    private static byte[] noise(Random random, double rms, int toneAmplitude) {
+        byte[] pcm = new byte[FRAME_SAMPLES * 2];
+        for (int i = 0; i < FRAME_SAMPLES; i++) {
+            double value = rms * random.nextGaussian() + toneAmplitude * Math.sin(2 * Math.PI * 300 * i / 16000.0);
+            short sample = (short) Math.round(value);
+            pcm[i * 2] = (byte) sample;
+            pcm[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+
+    private static byte[] silence() {
+        return new byte[FRAME_SAMPLES * 2];
+    }
+
+    private static byte[] tone(int amplitude) {
+        byte[] pcm = new byte[FRAME_SAMPLES * 2];
+        for (int i = 0; i < FRAME_SAMPLES; i++) {
+            short sample = (short) (amplitude * Math.sin(2 * Math.PI * 300 * i / 16000.0));
+            pcm[i * 2] = (byte) sample;
+            pcm[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+}
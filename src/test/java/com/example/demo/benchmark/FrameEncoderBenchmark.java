@@ -0,0 +1,116 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.client.IatFrameEncoder;
+import com.example.demo.client.IatWebSocketClient;
+import com.example.demo.dto.IatRequest;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游帧编码基准：Gson对象树 vs 可复用缓冲区编码器，以及其中的Base64编码
+ * 每帧1280字节（16kHz/16bit/40ms）
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.includes=FrameEncoder
+ * </pre>
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameEncoderBenchmark {
+
+    private byte[] frame;
+    private byte[] base64Buffer;
+    private IatRequest request;
+    private IatFrameEncoder encoder;
+
+    @Setup
+    public void setup() {
+        frame = new byte[1280];
+        new Random(42).nextBytes(frame);
+
+        base64Buffer = new byte[(frame.length + 2) / 3 * 4];
+
+        request = new IatRequest();
+        request.setAppId("benchmark");
+        request.setDwa("wpgs");
+        encoder = new IatFrameEncoder(request);
+    }
+
+    /**
+     * 原有实现：构建JsonObject树，Base64编码为中间字符串，toString两次（其中一次只用于日志长度）
+     */
+    @Benchmark
+    public String gsonContinueFrame() {
+        JsonObject frameJson = new JsonObject();
+        JsonObject data = new JsonObject();
+        data.addProperty("status", IatWebSocketClient.StatusContinueFrame);
+        data.addProperty("format", "audio/L16;rate=16000");
+        data.addProperty("encoding", "raw");
+        data.addProperty("audio", Base64.getEncoder().encodeToString(frame));
+        frameJson.add("data", data);
+
+        int length = frameJson.toString().length();
+        return length > 0 ? frameJson.toString() : null;
+    }
+
+    @Benchmark
+    public String encoderContinueFrame() {
+        return encoder.encodeContinueFrame(frame, 0, frame.length);
+    }
+
+    /**
+     * 原有实现的第一帧：toFirstFrameJson构建common/business，再追加data
+     */
+    @Benchmark
+    public String gsonFirstFrame() {
+        JsonObject frameJson = request.toFirstFrameJson();
+        JsonObject data = new JsonObject();
+        data.addProperty("status", IatWebSocketClient.StatusFirstFrame);
+        data.addProperty("format", "audio/L16;rate=16000");
+        data.addProperty("encoding", "raw");
+        data.addProperty("audio", Base64.getEncoder().encodeToString(frame));
+        frameJson.add("data", data);
+        return frameJson.toString();
+    }
+
+    @Benchmark
+    public String encoderFirstFrame() {
+        return encoder.encodeFirstFrame(frame, 0, frame.length);
+    }
+
+    /**
+     * 仅toFirstFrameJson，不含音频
+     */
+    @Benchmark
+    public JsonObject toFirstFrameJson() {
+        return request.toFirstFrameJson();
+    }
+
+    /**
+     * 1280字节Base64编码为新字符串
+     */
+    @Benchmark
+    public String base64ToString() {
+        return Base64.getEncoder().encodeToString(frame);
+    }
+
+    /**
+     * 1280字节Base64编码到复用的缓冲区
+     */
+    @Benchmark
+    public byte[] base64IntoBuffer() {
+        Base64.getEncoder().encode(frame, base64Buffer);
+        return base64Buffer;
+    }
+}
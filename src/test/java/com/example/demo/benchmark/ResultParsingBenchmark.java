@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.client.IatResultDecoder;
+import com.example.demo.dto.RecognitionResult;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 识别结果解析基准：原有Gson对象树解析 + RecognitionResult的JSON往返 vs 流式解码器
+ * 消息为开启wpgs时典型的中间结果（两个词，带rg的替换结果）
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.includes=ResultParsing
+ * </pre>
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultParsingBenchmark {
+
+    private static final String MESSAGE = "{\"code\":0,\"message\":\"success\",\"sid\":\"iat000e0c5b@dx18f0\","
+            + "\"data\":{\"result\":{\"sn\":3,\"ls\":false,\"bg\":0,\"ed\":0,\"pgs\":\"rpl\",\"rg\":[1,2],"
+            + "\"ws\":[{\"bg\":0,\"cw\":[{\"sc\":0,\"w\":\"今天\"}]},{\"bg\":52,\"cw\":[{\"sc\":0,\"w\":\"天气\"}]}]},"
+            + "\"status\":1}}";
+
+    private final Gson gson = new Gson();
+    private final IatResultDecoder decoder = new IatResultDecoder();
+    private RecognitionResult result;
+
+    @Setup
+    public void setup() throws IOException {
+        result = decoder.decode(MESSAGE);
+    }
+
+    /**
+     * 原有 IatWebSocketClient.parseRecognitionResult：解析为JsonObject树后拼接ws/cw中的词
+     */
+    @Benchmark
+    public RecognitionResult legacyParseRecognitionResult() {
+        JsonObject data = JsonParser.parseString(MESSAGE).getAsJsonObject().getAsJsonObject("data");
+        StringBuilder text = new StringBuilder();
+        JsonObject resultJson = data.getAsJsonObject("result");
+        resultJson.getAsJsonArray("ws").forEach(ws -> ws.getAsJsonObject().getAsJsonArray("cw")
+                .forEach(cw -> text.append(cw.getAsJsonObject().get("w").getAsString())));
+        boolean isFinal = data.get("status").getAsInt() == 2;
+        return RecognitionResult.success(text.toString(), isFinal, 1.0);
+    }
+
+    /**
+     * 原有实现中结果从客户端交给服务时的 gson.toJson / gson.fromJson 往返
+     */
+    @Benchmark
+    public RecognitionResult resultGsonRoundTrip() {
+        return gson.fromJson(gson.toJson(result), RecognitionResult.class);
+    }
+
+    /**
+     * 原有实现的完整路径：对象树解析 + JSON往返
+     */
+    @Benchmark
+    public RecognitionResult legacyPipeline() {
+        RecognitionResult parsed = legacyParseRecognitionResult();
+        return gson.fromJson(gson.toJson(parsed), RecognitionResult.class);
+    }
+
+    @Benchmark
+    public RecognitionResult decoder() throws IOException {
+        return decoder.decode(MESSAGE);
+    }
+}
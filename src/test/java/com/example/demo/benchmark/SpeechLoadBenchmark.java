@@ -0,0 +1,400 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.SpringbootDemoApplication;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * /speech 多会话压测
+ * 打开N个并发WebSocket客户端，按实时或加速速率回放PCM，统计首个中间结果延迟、最终结果延迟的p50/p99、
+ * 吞吐量以及每会话的堆占用和分配量。
+ * 默认在本进程内启动应用并开启讯飞协议模拟器（上游走真实的客户端、连接池和解析代码），不需要网络；
+ * 指定 --url 时压测已运行的服务。
+ *
+ * <pre>
+ * mvn -Pload test-compile exec:exec -Dload.args="--sessions=200 --rate=4"
+ *
+ * --sessions=50        并发会话数
+ * --rate=1.0           回放速率，1为实时
+ * --pcm=path           回放的音频（WAV或16kHz单声道16位PCM），默认生成3秒合成语音
+ * --sample-rate=16000  合成音频的采样率（用于覆盖服务端重采样）
+ * --packet-ms=100      每个音频包的时长
+ * --ramp-ms=1000       所有会话在该时间内陆续开始
+ * --url=ws://host:port/speech  压测外部服务
+ * </pre>
+ * 在进程内运行时，堆和分配统计同时包含压测客户端自身的开销，用于版本间对比而非绝对值；
+ * 进程内的应用关闭上游发送节奏（speech.frame.interval-ms=0），否则 --rate 大于1时上传被限制在实时速率，
+ * 压测外部服务时需要在服务端同样设置
+ *
+ * @author example
+ * @version 1.0.0
+ */
+public class SpeechLoadBenchmark {
+
+    private static final int HEADER_SIZE = 8;
+    private static final long TIMEOUT_MS = 30000;
+
+    private final int sessions;
+    private final double rate;
+    private final int packetMs;
+    private final long rampMs;
+    private final int sampleRate;
+    private final byte[] audio;
+
+    private final List<Long> firstPartialLatencies = new ArrayList<>();
+    private final List<Long> finalLatencies = new ArrayList<>();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private final AtomicLong transcriptMessages = new AtomicLong();
+
+    private SpeechLoadBenchmark(Map<String, String> options) throws IOException {
+        this.sessions = Integer.parseInt(options.getOrDefault("sessions", "50"));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "1.0"));
+        this.packetMs = Integer.parseInt(options.getOrDefault("packet-ms", "100"));
+        this.rampMs = Long.parseLong(options.getOrDefault("ramp-ms", "1000"));
+        String pcm = options.get("pcm");
+        if (pcm != null) {
+            byte[] data = Files.readAllBytes(Paths.get(pcm));
+            boolean wav = data.length > 44 && data[0] == 'R' && data[1] == 'I' && data[2] == 'F' && data[3] == 'F';
+            this.sampleRate = wav ? ByteBuffer.wrap(data, 24, 4).order(ByteOrder.LITTLE_ENDIAN).getInt() : 16000;
+            this.audio = wav ? Arrays.copyOfRange(data, 44, data.length) : data;
+        } else {
+            this.sampleRate = Integer.parseInt(options.getOrDefault("sample-rate", "16000"));
+            this.audio = syntheticSpeech(sampleRate, 3000);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        SpeechLoadBenchmark benchmark = new SpeechLoadBenchmark(options);
+
+        ConfigurableApplicationContext context = null;
+        String url = options.get("url");
+        if (url == null) {
+            int port = freePort();
+            context = startApplication(port, benchmark.sessions);
+            url = "ws://localhost:" + port + "/speech";
+        }
+        try {
+            benchmark.run(url);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 在本进程内启动应用，上游指向同一进程中的协议模拟器
+     */
+    private static ConfigurableApplicationContext startApplication(int port, int sessions) {
+        // devtools的重启会用应用参数重新调用main，必须在启动前以系统属性关闭
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // 以命令行参数传入，优先级高于application.yml
+        return new SpringApplicationBuilder(SpringbootDemoApplication.class).run(
+                "--server.port=" + port,
+                "--xfyun.simulator.enabled=true",
+                "--xfyun.iat.host-url=http://localhost:" + port + "/v2/iat",
+                "--xfyun.iat.mock-mode=false",
+                "--xfyun.iat.pool.size=" + Math.min(sessions, 64),
+                "--speech.frame.interval-ms=0",
+                "--server.tomcat.threads.max=" + Math.max(200, sessions),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.demo=WARN");
+    }
+
+    private void run(String url) throws Exception {
+        OkHttpClient http = new OkHttpClient.Builder()
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .build();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread thread = new Thread(r, "load-client");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        long heapBaseline = usedHeapAfterGc();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMs();
+        long allocatedBefore = allocatedBytes();
+        long started = System.nanoTime();
+
+        CountDownLatch done = new CountDownLatch(sessions);
+        CountDownLatch streaming = new CountDownLatch(sessions);
+        for (int i = 0; i < sessions; i++) {
+            long delay = sessions > 1 ? rampMs * i / (sessions - 1) : 0;
+            ClientSession session = new ClientSession(http, scheduler, done, streaming);
+            scheduler.schedule(() -> session.connect(url), delay, TimeUnit.MILLISECONDS);
+        }
+
+        // 所有会话都在推流时测量堆占用
+        streaming.await(rampMs + TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        long heapActive = usedHeapAfterGc();
+
+        if (!done.await(rampMs + audioDurationMs() + TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            timeouts.addAndGet((int) done.getCount());
+        }
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        long allocated = allocatedBytes() - allocatedBefore;
+        long gcCount = gcCount() - gcCountBefore;
+        long gcTime = gcTimeMs() - gcTimeBefore;
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "sessions=%d rate=%.1fx audio=%dms@%dHz packet=%dms url=%s%n",
+                sessions, rate, audioDurationMs(), sampleRate, packetMs, url);
+        printLatency("first-partial", firstPartialLatencies);
+        printLatency("final", finalLatencies);
+        System.out.printf(Locale.ROOT, "throughput          %.1f audio-seconds/s, %.0f transcript msgs/s%n",
+                sessions * audioDurationMs() / 1000.0 / elapsedSeconds, transcriptMessages.get() / elapsedSeconds);
+        System.out.printf(Locale.ROOT, "errors=%d timeouts=%d%n", errors.get(), timeouts.get());
+        System.out.printf(Locale.ROOT, "heap/session        %.1f KB (retained while streaming)%n",
+                (heapActive - heapBaseline) / 1024.0 / sessions);
+        if (allocated >= 0) {
+            System.out.printf(Locale.ROOT, "allocated/session   %.1f KB%n", allocated / 1024.0 / sessions);
+        }
+        System.out.printf(Locale.ROOT, "gc                  %d collections, %d ms%n", gcCount, gcTime);
+
+        scheduler.shutdownNow();
+        http.dispatcher().executorService().shutdown();
+    }
+
+    private long audioDurationMs() {
+        return (long) audio.length * 1000 / (sampleRate * 2L);
+    }
+
+    private synchronized void record(List<Long> latencies, long nanos) {
+        latencies.add(nanos);
+    }
+
+    private synchronized void printLatency(String name, List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            System.out.printf("%-19s n=0%n", name);
+            return;
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf(Locale.ROOT, "%-19s n=%d p50=%.1fms p99=%.1fms max=%.1fms%n", name, sorted.length,
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * 一个压测客户端：start -> 按速率发送音频包 -> stop -> 等待最终结果
+     */
+    private class ClientSession extends WebSocketListener {
+        private final OkHttpClient http;
+        private final ScheduledExecutorService scheduler;
+        private final CountDownLatch done;
+        private final CountDownLatch streaming;
+        private final int packetBytes = sampleRate * 2 * packetMs / 1000;
+
+        private WebSocket webSocket;
+        private ScheduledFuture<?> sender;
+        private int offset;
+        private int sequence;
+        private volatile long firstAudioAt;
+        private volatile long stopAt;
+        private volatile boolean partialSeen;
+        private volatile boolean finished;
+
+        ClientSession(OkHttpClient http, ScheduledExecutorService scheduler, CountDownLatch done,
+                      CountDownLatch streaming) {
+            this.http = http;
+            this.scheduler = scheduler;
+            this.done = done;
+            this.streaming = streaming;
+        }
+
+        void connect(String url) {
+            webSocket = http.newWebSocket(new Request.Builder().url(url).build(), this);
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            JsonObject start = new JsonObject();
+            start.addProperty("type", "command");
+            start.addProperty("action", "start");
+            start.addProperty("sampleRate", sampleRate);
+            start.addProperty("channels", 1);
+            start.addProperty("encoding", "s16le");
+            webSocket.send(start.toString());
+
+            long intervalMicros = (long) (packetMs * 1000 / rate);
+            sender = scheduler.scheduleAtFixedRate(this::sendPacket, 0, intervalMicros, TimeUnit.MICROSECONDS);
+            streaming.countDown();
+        }
+
+        private void sendPacket() {
+            if (offset >= audio.length) {
+                sender.cancel(false);
+                stopAt = System.nanoTime();
+                webSocket.send("{\"type\":\"command\",\"action\":\"stop\"}");
+                return;
+            }
+            int length = Math.min(packetBytes, audio.length - offset);
+            ByteBuffer packet = ByteBuffer.allocate(HEADER_SIZE + length).order(ByteOrder.LITTLE_ENDIAN);
+            packet.putInt(sequence++).putInt((int) (offset * 1000L / (sampleRate * 2L)));
+            packet.put(audio, offset, length);
+            if (firstAudioAt == 0) {
+                firstAudioAt = System.nanoTime();
+            }
+            offset += length;
+            webSocket.send(ByteString.of(packet.array()));
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            long now = System.nanoTime();
+            JsonObject message = JsonParser.parseString(text).getAsJsonObject();
+            String type = message.get("type").getAsString();
+            if ("error".equals(type)) {
+                errors.incrementAndGet();
+                finish();
+            } else if ("transcript".equals(type)) {
+                transcriptMessages.incrementAndGet();
+                // 开始命令之后、音频之前的消息不计入首个结果延迟
+                if (!partialSeen && firstAudioAt != 0 && !message.get("text").getAsString().isEmpty()) {
+                    partialSeen = true;
+                    record(firstPartialLatencies, now - firstAudioAt);
+                }
+                // 只统计stop之后的最终结果，VAD提前断句的最终结果不计入
+                if (message.get("isFinal").getAsBoolean() && stopAt != 0) {
+                    record(finalLatencies, now - stopAt);
+                    finish();
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            errors.incrementAndGet();
+            streaming.countDown();
+            finish();
+        }
+
+        private synchronized void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (sender != null) {
+                sender.cancel(false);
+            }
+            webSocket.close(1000, "done");
+            done.countDown();
+        }
+    }
+
+    /**
+     * 合成语音：带音节包络的谐波信号，能量足以通过服务端VAD
+     */
+    private static byte[] syntheticSpeech(int sampleRate, int durationMs) {
+        int samples = sampleRate * durationMs / 1000;
+        ByteBuffer buffer = ByteBuffer.allocate(samples * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < samples; i++) {
+            double t = (double) i / sampleRate;
+            double envelope = 0.6 + 0.4 * Math.sin(2 * Math.PI * 4 * t);
+            double value = Math.sin(2 * Math.PI * 180 * t) + 0.5 * Math.sin(2 * Math.PI * 360 * t)
+                    + 0.25 * Math.sin(2 * Math.PI * 720 * t);
+            buffer.putShort((short) (6000 * envelope * value / 1.75));
+        }
+        return buffer.array();
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMs() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * 所有存活线程的累计分配字节数，JVM不支持时返回-1
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+        long total = 0;
+        for (long allocated : sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            // exec插件把 -Dload.args 作为一个参数传入
+            for (String option : arg.trim().split("\\s+")) {
+                if (option.startsWith("--") && option.contains("=")) {
+                    int split = option.indexOf('=');
+                    options.put(option.substring(2, split), option.substring(split + 1));
+                }
+            }
+        }
+        return options;
+    }
+}
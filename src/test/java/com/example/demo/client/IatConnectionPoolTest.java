@@ -0,0 +1,50 @@
+package com.example.demo.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * 上游连接池测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class IatConnectionPoolTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void synchronousOpenFailure_ShouldBackOffInsteadOfSpinning() throws Exception {
+        // 鉴权参数无效时，openConnection 在调用线程上就以失败完成
+        IatWebSocketClient client = mock(IatWebSocketClient.class);
+        when(client.openConnection()).thenAnswer(invocation -> {
+            IatConnection connection = mock(IatConnection.class);
+            CompletableFuture<IatConnection> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("api-secret is empty"));
+            when(connection.opened()).thenReturn(failed);
+            return connection;
+        });
+        IatConnectionPool pool = new IatConnectionPool(client, scheduler);
+        ReflectionTestUtils.setField(pool, "poolSize", 4);
+        ReflectionTestUtils.setField(pool, "maxIdleMs", 8000L);
+        pool.init();
+
+        Thread.sleep(300);
+        pool.destroy();
+
+        // 第一次失败后进入退避，不再继续建连
+        verify(client, times(1)).openConnection();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.client;
+
+import com.example.demo.dto.IatRequest;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 音频帧编码器测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class IatFrameEncoderTest {
+
+    private final IatFrameEncoder encoder = new IatFrameEncoder(request());
+
+    @Test
+    void continueFrame_ShouldMatchGsonEncoding() {
+        byte[] audio = randomBytes(1280);
+
+        JsonObject frame = JsonParser.parseString(encoder.encodeContinueFrame(audio, 0, audio.length)).getAsJsonObject();
+        JsonObject data = frame.getAsJsonObject("data");
+
+        assertEquals(IatWebSocketClient.StatusContinueFrame, data.get("status").getAsInt());
+        assertEquals("audio/L16;rate=16000", data.get("format").getAsString());
+        assertEquals("raw", data.get("encoding").getAsString());
+        assertEquals(Base64.getEncoder().encodeToString(audio), data.get("audio").getAsString());
+        assertFalse(frame.has("common"));
+    }
+
+    @Test
+    void firstFrame_ShouldCarryCommonAndBusinessParameters() {
+        byte[] audio = randomBytes(640);
+
+        JsonObject frame = JsonParser.parseString(encoder.encodeFirstFrame(audio, 0, audio.length)).getAsJsonObject();
+
+        assertEquals("test-app", frame.getAsJsonObject("common").get("app_id").getAsString());
+        assertEquals("zh_cn", frame.getAsJsonObject("business").get("language").getAsString());
+        assertEquals(IatWebSocketClient.StatusFirstFrame, frame.getAsJsonObject("data").get("status").getAsInt());
+        assertEquals(Base64.getEncoder().encodeToString(audio), frame.getAsJsonObject("data").get("audio").getAsString());
+    }
+
+    @Test
+    void base64_ShouldHandlePaddingAndOffsets() {
+        byte[] audio = randomBytes(100);
+        for (int offset = 0; offset < 3; offset++) {
+            for (int length = 0; length < 10; length++) {
+                byte[] expected = Arrays.copyOfRange(audio, offset, offset + length);
+                byte[] out = new byte[IatFrameEncoder.base64Length(length)];
+                int end = IatFrameEncoder.encodeBase64(audio, offset, length, out, 0);
+
+                assertEquals(out.length, end);
+                assertArrayEquals(Base64.getEncoder().encode(expected), out);
+            }
+        }
+    }
+
+    @Test
+    void lastFrame_ShouldHaveEmptyAudio() {
+        JsonObject data = JsonParser.parseString(encoder.encodeLastFrame()).getAsJsonObject().getAsJsonObject("data");
+
+        assertEquals(IatWebSocketClient.StatusLastFrame, data.get("status").getAsInt());
+        assertEquals("", data.get("audio").getAsString());
+    }
+
+    private static IatRequest request() {
+        IatRequest request = new IatRequest();
+        request.setAppId("test-app");
+        return request;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(7).nextBytes(bytes);
+        return bytes;
+    }
+}
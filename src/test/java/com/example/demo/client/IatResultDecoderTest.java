@@ -0,0 +1,69 @@
+package com.example.demo.client;
+
+import com.example.demo.dto.RecognitionResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 识别结果流式解码器测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class IatResultDecoderTest {
+
+    private final IatResultDecoder decoder = new IatResultDecoder();
+
+    @Test
+    void decode_ShouldExtractDynamicCorrectionFields() throws Exception {
+        String message = "{\"code\":0,\"message\":\"success\",\"sid\":\"iat000\",\"data\":{\"result\":"
+                + "{\"sn\":3,\"ls\":false,\"bg\":0,\"ed\":0,\"pgs\":\"rpl\",\"rg\":[1,2],"
+                + "\"ws\":[{\"bg\":0,\"cw\":[{\"sc\":0,\"w\":\"今天\"}]},{\"bg\":12,\"cw\":[{\"sc\":0,\"w\":\"天气\"}]}]},"
+                + "\"status\":1}}";
+
+        RecognitionResult result = decoder.decode(message);
+
+        assertEquals("今天天气", result.getText());
+        assertFalse(result.isFinal());
+        assertEquals(3, result.getSn());
+        assertEquals("rpl", result.getPgs());
+        assertArrayEquals(new int[]{1, 2}, result.getRg());
+        assertNull(result.getError());
+    }
+
+    @Test
+    void decode_ShouldMarkFinalResult() throws Exception {
+        String message = "{\"data\":{\"status\":2,\"result\":{\"sn\":1,\"ls\":true,\"ws\":[{\"cw\":[{\"w\":\"。\"}]}]}},\"code\":0}";
+
+        RecognitionResult result = decoder.decode(message);
+
+        assertEquals("。", result.getText());
+        assertTrue(result.isFinal());
+        assertNull(result.getPgs());
+    }
+
+    @Test
+    void decode_ShouldReturnErrorForNonZeroCode() throws Exception {
+        RecognitionResult result = decoder.decode("{\"code\":10165,\"message\":\"invalid handle\",\"sid\":\"iat001\"}");
+
+        assertEquals(10165, result.getCode());
+        assertEquals("invalid handle", result.getError());
+        assertEquals(-1, result.getStatus());
+    }
+
+    @Test
+    void decode_ShouldIgnoreMessagesWithoutResult() throws Exception {
+        assertNull(decoder.decode("{\"code\":0,\"message\":\"success\",\"data\":{\"status\":1}}"));
+    }
+
+    @Test
+    void decode_ShouldNotLeakStateBetweenMessages() throws Exception {
+        decoder.decode("{\"code\":0,\"data\":{\"status\":1,\"result\":{\"sn\":1,\"pgs\":\"rpl\",\"rg\":[1,1],\"ws\":[{\"cw\":[{\"w\":\"一\"}]}]}}}");
+        RecognitionResult result = decoder.decode("{\"code\":0,\"data\":{\"status\":1,\"result\":{\"sn\":2,\"ws\":[{\"cw\":[{\"w\":\"二\"}]}]}}}");
+
+        assertEquals("二", result.getText());
+        assertNull(result.getPgs());
+        assertNull(result.getRg());
+    }
+}
@@ -1,13 +1,27 @@
 package com.example.demo.controller;
 
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.dto.TranscriptionResult;
+import com.example.demo.exception.UpstreamException;
+import com.example.demo.metrics.SpeechMetrics;
 import com.example.demo.service.AudioCaptureService;
+import com.example.demo.service.BatchTranscriptionService;
 import com.example.demo.service.SpeechRecognitionService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -29,6 +43,12 @@ class SpeechControllerTest {
     @MockBean
     private SpeechRecognitionService speechRecognitionService;
 
+    @MockBean
+    private SpeechMetrics speechMetrics;
+
+    @MockBean
+    private BatchTranscriptionService batchTranscriptionService;
+
     @Test
     void startRecognition_ShouldReturnSuccess() throws Exception {
         mockMvc.perform(post("/api/speech/start"))
@@ -42,4 +62,34 @@ class SpeechControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Speech recognition stopped"));
     }
+
+    @Test
+    void transcribe_ShouldReturnTranscriptAsynchronously() throws Exception {
+        when(batchTranscriptionService.transcribe(any(InputStream.class), argThat(format -> format.getSampleRate() == 48000 && format.getChannels() == 2)))
+                .thenReturn(CompletableFuture.completedFuture(new TranscriptionResult("你好。", 1000, 1, 200)));
+
+        MvcResult result = mockMvc.perform(post("/api/speech/transcriptions?sampleRate=48000&channels=2&encoding=s16le")
+                        .contentType("application/octet-stream").content(new byte[3200]))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.text").value("你好。"))
+                .andExpect(jsonPath("$.segments").value(1));
+    }
+
+    @Test
+    void transcribe_UpstreamFailure_ShouldReturnBadGateway() throws Exception {
+        CompletableFuture<TranscriptionResult> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new UpstreamException("片段识别失败"));
+        when(batchTranscriptionService.transcribe(any(InputStream.class), eq(PcmFormat.IAT))).thenReturn(failed);
+
+        MvcResult result = mockMvc.perform(post("/api/speech/transcriptions").content(new byte[3200]))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadGateway());
+    }
 }
@@ -0,0 +1,180 @@
+package com.example.demo.engine;
+
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.metrics.SpeechMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 识别引擎路由测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class RecognitionEngineRouterTest {
+
+    private static final int FRAME = 1280;
+
+    private final RecognitionEngine primary = engine("primary");
+    private final RecognitionEngine secondary = engine("secondary");
+
+    @Test
+    void failingEngine_ShouldBeSkippedDuringCooldown() {
+        CompletableFuture<RecognitionStream> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException("handshake failed"));
+        RecognitionStream broken = mock(RecognitionStream.class);
+        doReturn(failed).when(broken).opened();
+        RecognitionStream healthy = openedStream();
+        when(primary.open()).thenReturn(broken);
+        when(secondary.open()).thenReturn(healthy);
+        RecognitionEngineRouter router = newRouter(0);
+
+        router.open();
+        router.open();
+        router.open().sendFirstFrame(new byte[FRAME], FRAME);
+
+        verify(primary, times(2)).open();
+        verify(secondary).open();
+        verify(healthy).sendFirstFrame(any(), eq(FRAME));
+    }
+
+    @Test
+    void hedge_ShouldForwardLeaderPartialsAndKeepFirstFinal() {
+        RecognitionStream slow = openedStream();
+        RecognitionStream fast = openedStream();
+        when(primary.open()).thenReturn(slow);
+        when(secondary.open()).thenReturn(fast);
+        RecognitionEngineRouter router = newRouter(100);
+        List<RecognitionResult> results = new ArrayList<>();
+
+        RecognitionStream stream = router.open();
+        stream.bind(results::add, ex -> fail(ex));
+        stream.sendFirstFrame(new byte[FRAME], FRAME);
+        RecognitionResult partial = RecognitionResult.success("你好", false, 1.0);
+        resultListener(fast).accept(partial);
+        resultListener(slow).accept(RecognitionResult.success("迟到", false, 1.0));
+        // 中间结果不决定胜负，两方都继续接收音频
+        stream.sendContinueFrame(new byte[FRAME], FRAME);
+        stream.sendLastFrame();
+        RecognitionResult answer = RecognitionResult.success("你好世界", true, 1.0);
+        resultListener(fast).accept(answer);
+
+        assertEquals(Arrays.asList(partial, answer), results);
+        verify(slow).sendContinueFrame(any(), eq(FRAME));
+        verify(slow).sendLastFrame();
+        verify(slow).disconnect();
+        verify(fast, never()).disconnect();
+    }
+
+    @Test
+    void hedge_ShouldStopDuplicatingAudioAfterWindow() {
+        RecognitionStream slow = openedStream();
+        RecognitionStream fast = openedStream();
+        when(primary.open()).thenReturn(slow);
+        when(secondary.open()).thenReturn(fast);
+        // 100ms = 3200字节，前3帧同时发给两个引擎
+        RecognitionEngineRouter router = newRouter(100);
+        List<RecognitionResult> results = new ArrayList<>();
+
+        RecognitionStream stream = router.open();
+        stream.bind(results::add, ex -> fail(ex));
+        stream.sendFirstFrame(new byte[FRAME], FRAME);
+        RecognitionResult partial = RecognitionResult.success("你好", false, 1.0);
+        resultListener(fast).accept(partial);
+        for (int i = 0; i < 4; i++) {
+            stream.sendContinueFrame(new byte[FRAME], FRAME);
+        }
+        stream.sendLastFrame();
+
+        // 窗口结束时只保留领先的备用引擎，主引擎不再收到音频
+        verify(slow, times(2)).sendContinueFrame(any(), eq(FRAME));
+        verify(slow).disconnect();
+        verify(slow, never()).sendLastFrame();
+        verify(fast, times(4)).sendContinueFrame(any(), eq(FRAME));
+        verify(fast).sendLastFrame();
+        assertEquals(Arrays.asList(partial), results);
+    }
+
+    @Test
+    void hedge_StalledFinal_ShouldBeReplacedByOtherEngine() {
+        RecognitionStream stalled = openedStream();
+        RecognitionStream steady = openedStream();
+        when(primary.open()).thenReturn(stalled);
+        when(secondary.open()).thenReturn(steady);
+        RecognitionEngineRouter router = newRouter(100);
+        List<RecognitionResult> results = new ArrayList<>();
+
+        RecognitionStream stream = router.open();
+        stream.bind(results::add, ex -> fail(ex));
+        stream.sendFirstFrame(new byte[FRAME], FRAME);
+        // 主引擎中间结果领先，但最终结果迟迟不来
+        resultListener(stalled).accept(wpgs("打开", false, 1));
+        resultListener(stalled).accept(wpgs("空调", false, 2));
+        resultListener(steady).accept(wpgs("打开空", false, 1));
+        stream.sendLastFrame();
+        resultListener(steady).accept(wpgs("打开空调", true, 1));
+        resultListener(stalled).accept(wpgs("打开空调", true, 3));
+
+        // 备用引擎的结果替换掉已转发的两段中间结果，之后的主引擎结果被丢弃
+        assertEquals(4, results.size());
+        assertEquals("打开空", results.get(2).getText());
+        assertEquals("rpl", results.get(2).getPgs());
+        assertArrayEquals(new int[]{1, 2}, results.get(2).getRg());
+        assertEquals("打开空调", results.get(3).getText());
+        assertTrue(results.get(3).isFinal());
+        verify(stalled).disconnect();
+        verify(steady, never()).disconnect();
+    }
+
+    private RecognitionEngineRouter newRouter(long hedgeMs) {
+        SpeechMetrics metrics = new SpeechMetrics(new SimpleMeterRegistry());
+        RecognitionEngineRouter router = new RecognitionEngineRouter(Arrays.asList(primary, secondary),
+                metrics, new RecognitionResultCache(metrics, null));
+        ReflectionTestUtils.setField(router, "providers", new String[]{"primary", "secondary"});
+        ReflectionTestUtils.setField(router, "routing", RecognitionEngineRouter.Routing.FIXED);
+        ReflectionTestUtils.setField(router, "hedgeMs", hedgeMs);
+        ReflectionTestUtils.setField(router, "failureThreshold", 2);
+        ReflectionTestUtils.setField(router, "cooldownMs", 60000L);
+        router.init();
+        return router;
+    }
+
+    private static RecognitionResult wpgs(String text, boolean isFinal, int sn) {
+        RecognitionResult result = RecognitionResult.success(text, isFinal, 1.0);
+        result.setSn(sn);
+        result.setPgs("apd");
+        return result;
+    }
+
+    private static RecognitionEngine engine(String name) {
+        RecognitionEngine engine = mock(RecognitionEngine.class);
+        when(engine.getName()).thenReturn(name);
+        return engine;
+    }
+
+    private static RecognitionStream openedStream() {
+        RecognitionStream stream = mock(RecognitionStream.class);
+        doReturn(CompletableFuture.completedFuture(stream)).when(stream).opened();
+        return stream;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<RecognitionResult> resultListener(RecognitionStream stream) {
+        ArgumentCaptor<Consumer<RecognitionResult>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(stream).bind(captor.capture(), any());
+        return captor.getValue();
+    }
+}
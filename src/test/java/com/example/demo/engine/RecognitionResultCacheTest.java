@@ -0,0 +1,141 @@
+package com.example.demo.engine;
+
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.metrics.SpeechMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 识别结果缓存测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class RecognitionResultCacheTest {
+
+    private static final int FRAME = 1280;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void repeatedClip_ShouldBeAnsweredWithoutWaitingForUpstream() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        RecognitionResultCache cache = new RecognitionResultCache(new SpeechMetrics(registry), executor);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "maxClipMs", 4000L);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60000L);
+        cache.init();
+
+        RecognitionStream upstream = openedStream();
+        RecognitionStream secondUpstream = openedStream();
+        RecognitionStream thirdUpstream = openedStream();
+        Supplier<RecognitionStream> factory = mock(Supplier.class);
+        when(factory.get()).thenReturn(upstream, secondUpstream, thirdUpstream);
+        RecognitionResult answer = RecognitionResult.success("查询余额", true, 1.0);
+
+        // 第一次：未命中，音频照常流式上传，最终结果写入缓存
+        RecognitionStream first = cache.wrap(factory);
+        first.bind(result -> { }, ex -> fail(ex));
+        sendClip(first, 120);
+        verify(upstream).sendFirstFrame(any(), eq(FRAME));
+        verify(upstream, times(24)).sendContinueFrame(any(), eq(FRAME));
+        verify(upstream).sendLastFrame();
+        resultListener(upstream).accept(answer);
+
+        // 第二次：同一段音频，已转发的中间结果被回放的结果替换，不等上游的最终结果
+        Consumer<RecognitionResult> listener = mock(Consumer.class);
+        RecognitionStream second = cache.wrap(factory);
+        second.bind(listener, ex -> fail(ex));
+        sendClip(second, 120, () -> resultListener(secondUpstream).accept(partial(1)));
+
+        ArgumentCaptor<RecognitionResult> results = ArgumentCaptor.forClass(RecognitionResult.class);
+        verify(listener, timeout(1000).times(2)).accept(results.capture());
+        assertEquals("查", results.getAllValues().get(0).getText());
+        RecognitionResult replayed = results.getAllValues().get(1);
+        assertEquals("查询余额", replayed.getText());
+        assertTrue(replayed.isFinal());
+        assertEquals("rpl", replayed.getPgs());
+        assertArrayEquals(new int[]{1, 1}, replayed.getRg());
+        verify(secondUpstream).disconnect();
+        verify(secondUpstream, never()).sendLastFrame();
+
+        // 第三次：不同的一句话不能命中
+        RecognitionStream third = cache.wrap(factory);
+        third.bind(result -> { }, ex -> fail(ex));
+        sendClip(third, 170);
+        verify(factory, times(3)).get();
+
+        assertEquals(1, registry.get("speech.result.cache.lookups").tag("result", "hit").counter().count());
+        assertEquals(2, registry.get("speech.result.cache.lookups").tag("result", "miss").counter().count());
+    }
+
+    private static RecognitionStream openedStream() {
+        RecognitionStream stream = mock(RecognitionStream.class);
+        doReturn(CompletableFuture.completedFuture(stream)).when(stream).opened();
+        return stream;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<RecognitionResult> resultListener(RecognitionStream upstream) {
+        ArgumentCaptor<Consumer<RecognitionResult>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(upstream).bind(captor.capture(), any());
+        return captor.getValue();
+    }
+
+    private static RecognitionResult partial(int sn) {
+        return new RecognitionResult("查", false, 1.0, 1, null, 0, sn, "apd", null);
+    }
+
+    private static void sendClip(RecognitionStream stream, double pitch) {
+        sendClip(stream, pitch, () -> { });
+    }
+
+    /**
+     * 1秒类语音信号（基频起伏的谐波，按音节包络调制），按40ms一帧发送，最后一帧前执行 beforeLast
+     */
+    private static void sendClip(RecognitionStream stream, double pitch, Runnable beforeLast) {
+        byte[] frame = new byte[FRAME];
+        double phase = 0;
+        for (int f = 0; f < 25; f++) {
+            for (int i = 0; i < FRAME / 2; i++) {
+                double t = (f * FRAME / 2 + i) / 16000.0;
+                phase += 2 * Math.PI * pitch * (1 + 0.3 * Math.sin(2 * Math.PI * 2 * t)) / 16000;
+                double value = 0;
+                for (int h = 1; h <= 12; h++) {
+                    value += Math.sin(h * phase) / h;
+                }
+                short sample = (short) Math.round(6000 * Math.pow(Math.sin(Math.PI * 3 * t), 2) * value);
+                frame[2 * i] = (byte) sample;
+                frame[2 * i + 1] = (byte) (sample >> 8);
+            }
+            if (f == 0) {
+                stream.sendFirstFrame(frame, FRAME);
+            } else {
+                stream.sendContinueFrame(frame, FRAME);
+            }
+        }
+        beforeLast.run();
+        stream.sendLastFrame();
+    }
+}
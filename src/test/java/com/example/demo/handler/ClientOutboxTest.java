@@ -0,0 +1,105 @@
+package com.example.demo.handler;
+
+import com.example.demo.metrics.SpeechMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 前端发送出口测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class ClientOutboxTest {
+
+    private final WebSocketSession session = mock(WebSocketSession.class);
+    private final SpeechMetrics metrics = new SpeechMetrics(new SimpleMeterRegistry());
+    // 手动执行的发送线程池，模拟前端接收落后
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Test
+    void transcriptChanges_WhileClientLags_ShouldCoalesceIntoOneMessage() throws Exception {
+        when(session.isOpen()).thenReturn(true);
+        AtomicInteger drains = new AtomicInteger();
+        ClientOutbox outbox = new ClientOutbox(session, tasks::add,
+                () -> "delta-" + drains.incrementAndGet(), metrics, 1000, 1024);
+
+        outbox.send("status");
+        outbox.transcriptChanged();
+        outbox.transcriptChanged();
+        outbox.transcriptChanged();
+        runTasks();
+
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(2)).sendMessage(sent.capture());
+        assertEquals("status,delta-1", sent.getAllValues().stream()
+                .map(TextMessage::getPayload).collect(Collectors.joining(",")));
+        assertEquals(2, metrics.getTranscriptsCoalesced().count());
+
+        // 发送之后的变化重新入队
+        outbox.transcriptChanged();
+        runTasks();
+        verify(session, times(3)).sendMessage(any());
+    }
+
+    @Test
+    void backlogOverBufferLimit_ShouldCloseSession() throws Exception {
+        when(session.isOpen()).thenReturn(true);
+        ClientOutbox outbox = new ClientOutbox(session, tasks::add, () -> null, metrics, 1000, 10);
+
+        outbox.send("12345678");
+        outbox.send("12345678");
+        runTasks();
+
+        verify(session).close(any());
+        verify(session, never()).sendMessage(any());
+    }
+
+    @Test
+    void transcriptBeingSent_ShouldCountTowardsBufferLimit() throws Exception {
+        when(session.isOpen()).thenReturn(true);
+        ClientOutbox outbox = new ClientOutbox(session, tasks::add, () -> "transcript-delta", metrics, 1000, 20);
+        // 前端正在接收合并后的转写时又有状态消息入队
+        doAnswer(invocation -> {
+            outbox.send("12345678");
+            return null;
+        }).when(session).sendMessage(argThat(message -> "transcript-delta".equals(message.getPayload())));
+
+        outbox.transcriptChanged();
+        runTasks();
+
+        verify(session).close(any());
+    }
+
+    @Test
+    void sentTranscript_ShouldReleaseBufferBytes() throws Exception {
+        when(session.isOpen()).thenReturn(true);
+        ClientOutbox outbox = new ClientOutbox(session, tasks::add, () -> "transcript-delta", metrics, 1000, 20);
+
+        outbox.transcriptChanged();
+        runTasks();
+        outbox.send("12345678");
+        runTasks();
+
+        verify(session, times(2)).sendMessage(any());
+        verify(session, never()).close(any());
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
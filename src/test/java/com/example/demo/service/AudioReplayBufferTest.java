@@ -0,0 +1,42 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上游重放缓冲测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class AudioReplayBufferTest {
+
+    @Test
+    void append_ShouldKeepMostRecentBytesInOrder() {
+        AudioReplayBuffer buffer = new AudioReplayBuffer(8);
+
+        buffer.append(new byte[]{1, 2, 3, 4, 5}, 0, 5);
+        buffer.append(new byte[]{9, 6, 7, 8, 9}, 1, 4);
+
+        byte[] target = new byte[8];
+        assertEquals(8, buffer.copyTo(target));
+        assertArrayEquals(new byte[]{2, 3, 4, 5, 6, 7, 8, 9}, target);
+    }
+
+    @Test
+    void append_LongerThanCapacity_ShouldKeepTail() {
+        AudioReplayBuffer buffer = new AudioReplayBuffer(4);
+        buffer.append(new byte[]{1, 2}, 0, 2);
+
+        buffer.append(new byte[]{3, 4, 5, 6, 7, 8}, 0, 6);
+
+        byte[] target = new byte[4];
+        buffer.copyTo(target);
+        assertArrayEquals(new byte[]{5, 6, 7, 8}, target);
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.copyTo(new byte[0]));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 有界音频发送队列测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class AudioSendQueueTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Counter dropped = registry.counter("dropped");
+    private final Counter coalesced = registry.counter("coalesced");
+    private final AudioSendQueue.Frame frame = new AudioSendQueue.Frame();
+
+    @Test
+    void offer_ShouldScheduleOnlyWhenIdle() {
+        AudioSendQueue queue = queue(AudioSendQueue.OverflowPolicy.DROP_OLDEST, 100);
+
+        assertTrue(queue.offer(new byte[]{1}, 0, 1));
+        assertFalse(queue.offer(new byte[]{2}, 0, 1));
+
+        queue.poll(frame);
+        queue.poll(frame);
+        assertEquals(AudioSendQueue.Entry.EMPTY, queue.poll(frame));
+        assertTrue(queue.offer(new byte[]{3}, 0, 1));
+    }
+
+    @Test
+    void dropOldest_ShouldKeepEndMarkerInOrder() {
+        AudioSendQueue queue = queue(AudioSendQueue.OverflowPolicy.DROP_OLDEST, 100);
+        queue.offer(new byte[]{1}, 0, 1);
+        queue.offerEnd();
+        queue.offer(new byte[]{2}, 0, 1);
+
+        queue.offer(new byte[]{3}, 0, 1);
+
+        assertEquals(1, dropped.count());
+        assertEquals(AudioSendQueue.Entry.END, queue.poll(frame));
+        assertEquals(AudioSendQueue.Entry.AUDIO, queue.poll(frame));
+        assertEquals(2, frame.getData()[0]);
+        assertEquals(AudioSendQueue.Entry.AUDIO, queue.poll(frame));
+        assertEquals(3, frame.getData()[0]);
+    }
+
+    @Test
+    void coalesce_ShouldAppendToTailUntilLimit() {
+        AudioSendQueue queue = queue(AudioSendQueue.OverflowPolicy.COALESCE, 4);
+        queue.offer(new byte[]{1, 1}, 0, 2);
+        queue.offer(new byte[]{2}, 0, 1);
+        queue.offer(new byte[]{3}, 0, 1);
+
+        queue.offer(new byte[]{4}, 0, 1);
+        queue.offer(new byte[]{5, 5, 5}, 0, 3);
+
+        assertEquals(1, coalesced.count());
+        assertEquals(1, dropped.count());
+        queue.poll(frame);
+        assertEquals(1, frame.getLength());
+        assertEquals(2, frame.getData()[0]);
+        queue.poll(frame);
+        assertArrayEquals(new byte[]{3, 4}, Arrays.copyOf(frame.getData(), frame.getLength()));
+        queue.poll(frame);
+        assertArrayEquals(new byte[]{5, 5, 5}, Arrays.copyOf(frame.getData(), frame.getLength()));
+    }
+
+    @Test
+    void block_ShouldWaitThenDropOldest() {
+        AudioSendQueue queue = new AudioSendQueue(2, AudioSendQueue.OverflowPolicy.BLOCK, 20, 0, dropped, coalesced);
+        queue.offer(new byte[]{1}, 0, 1);
+        queue.offer(new byte[]{2}, 0, 1);
+
+        queue.offer(new byte[]{3}, 0, 1);
+
+        assertEquals(1, dropped.count());
+        assertEquals(2, queue.size());
+    }
+
+    private AudioSendQueue queue(AudioSendQueue.OverflowPolicy policy, int maxCoalescedBytes) {
+        return new AudioSendQueue(3, policy, 0, maxCoalescedBytes, dropped, coalesced);
+    }
+}
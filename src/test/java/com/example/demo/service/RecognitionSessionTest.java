@@ -0,0 +1,276 @@
+package com.example.demo.service;
+
+import com.example.demo.audio.VoiceActivityDetector;
+import com.example.demo.client.IatConnection;
+import com.example.demo.dto.AudioPacket;
+import com.example.demo.engine.RecognitionEngine;
+import com.example.demo.engine.RecognitionStream;
+import com.example.demo.metrics.SpeechMetrics;
+import com.example.demo.util.AudioConverter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 识别会话上游重连续传测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class RecognitionSessionTest {
+
+    private static final int FRAME = 1280;
+
+    private final RecognitionEngine engine = mock(RecognitionEngine.class);
+    private final IatConnection first = openedConnection();
+    private final IatConnection second = openedConnection();
+    private final SpeechMetrics metrics = new SpeechMetrics(new SimpleMeterRegistry());
+    private ScheduledExecutorService executor;
+    private AudioSendScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new AudioSendScheduler(metrics, executor);
+        ReflectionTestUtils.setField(scheduler, "upstreamQueueLimitBytes", 65536L);
+        when(engine.open()).thenReturn(first, second);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void upstreamReset_ShouldReplayTailOnNewConnectionAndContinue() throws Exception {
+        RecognitionSession session = newSession(3);
+        // 重放帧使用复用缓冲区，在调用时记录帧的首字节
+        CompletableFuture<Byte> replayedFirst = new CompletableFuture<>();
+        doAnswer(invocation -> replayedFirst.complete(invocation.<byte[]>getArgument(0)[0]))
+                .when(second).sendFirstFrame(any(byte[].class), anyInt());
+
+        for (int i = 0; i < 3; i++) {
+            session.processAudioFrame(frame(i), FRAME);
+        }
+        verify(first, timeout(1000)).sendFirstFrame(any(byte[].class), eq(FRAME));
+        verify(first, timeout(1000).times(2)).sendContinueFrame(any(byte[].class), eq(FRAME));
+
+        failureListener(first).accept(new IOException("connection reset"));
+
+        // 重放缓冲只保留最近两帧：第1、2帧
+        assertEquals((byte) 1, replayedFirst.get(1, TimeUnit.SECONDS));
+        verify(second, timeout(1000)).sendContinueFrame(any(byte[].class), eq(FRAME));
+
+        session.processAudioFrame(frame(3), FRAME);
+        session.endRecognition();
+        verify(second, timeout(1000).times(2)).sendContinueFrame(any(byte[].class), eq(FRAME));
+        verify(second, timeout(1000)).sendLastFrame();
+        verify(first, never()).sendLastFrame();
+    }
+
+    @Test
+    void reconnectAttemptsExhausted_ShouldReportError() throws Exception {
+        RecognitionSession session = newSession(0);
+        CompletableFuture<String> error = new CompletableFuture<>();
+        session.setResultHandler(result -> {
+            if (result.getError() != null) {
+                error.complete(result.getError());
+            }
+        });
+
+        session.processAudioFrame(frame(0), FRAME);
+        verify(first, timeout(1000)).sendFirstFrame(any(byte[].class), eq(FRAME));
+        failureListener(first).accept(new IOException("connection reset"));
+
+        assertTrue(error.get(1, TimeUnit.SECONDS).contains("connection reset"));
+        verify(first).disconnect();
+    }
+
+    @Test
+    void upstreamFailingInsideLastFrame_ShouldResumeWithLastFrame() {
+        // 结果缓存未命中时上游在 sendLastFrame 中才打开，握手同步失败
+        RecognitionStream lazy = mock(RecognitionStream.class);
+        doReturn(CompletableFuture.completedFuture(lazy)).when(lazy).opened();
+        AtomicReference<Consumer<Throwable>> failure = new AtomicReference<>();
+        doAnswer(invocation -> {
+            failure.set(invocation.getArgument(1));
+            return null;
+        }).when(lazy).bind(any(), any());
+        doAnswer(invocation -> {
+            failure.get().accept(new IOException("handshake failed"));
+            return null;
+        }).when(lazy).sendLastFrame();
+        IatConnection next = openedConnection();
+        when(engine.open()).thenReturn(lazy, second, next);
+        RecognitionSession session = newSession(3);
+
+        session.processAudioFrame(frame(0), FRAME);
+        session.processAudioFrame(frame(1), FRAME);
+        session.endRecognition();
+
+        // 重连后重放整句并补发最后一帧
+        verify(second, timeout(1000)).sendFirstFrame(any(byte[].class), eq(FRAME));
+        verify(second, timeout(1000)).sendLastFrame();
+
+        // 下一句在新连接上开始，不会拼接到重连的连接上
+        session.processAudioFrame(frame(2), FRAME);
+        verify(next, timeout(1000)).sendFirstFrame(any(byte[].class), eq(FRAME));
+        verify(second, times(1)).sendContinueFrame(any(byte[].class), eq(FRAME));
+    }
+
+    @Test
+    void longUtterance_ShouldContinueOnNewConnectionAtLimit() throws Exception {
+        // 每帧40ms，两帧后强制切分
+        RecognitionSession session = newSession(3, new RecognitionSession.Segmenting(60000, 200, 80));
+
+        for (int i = 0; i < 3; i++) {
+            session.processAudioFrame(frame(i), FRAME);
+        }
+
+        verify(first, timeout(1000)).sendLastFrame();
+        verify(first).sendContinueFrame(any(byte[].class), eq(FRAME));
+        verify(second, timeout(1000)).sendFirstFrame(any(byte[].class), eq(FRAME));
+        verify(first, never()).disconnect();
+    }
+
+    @Test
+    void largeChunk_ShouldBeSentAsPacedFixedFramesAndFlushedOnEnd() throws Exception {
+        RecognitionSession session = newSession(3, null, new RecognitionSession.Framing(FRAME, 40));
+        List<Long> sentAt = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> sentAt.add(System.nanoTime())).when(first).sendContinueFrame(any(byte[].class), anyInt());
+
+        // 4.5帧的大包：前3帧不等待，之后每40ms一帧，不足一帧的尾部在最后一帧之前发出
+        long start = System.nanoTime();
+        session.processAudioFrame(new byte[FRAME * 9 / 2], FRAME * 9 / 2);
+        session.endRecognition();
+
+        verify(first, timeout(1000)).sendLastFrame();
+        InOrder order = inOrder(first);
+        order.verify(first).sendFirstFrame(any(byte[].class), eq(FRAME));
+        order.verify(first, times(3)).sendContinueFrame(any(byte[].class), eq(FRAME));
+        order.verify(first).sendContinueFrame(any(byte[].class), eq(FRAME / 2));
+        order.verify(first).sendLastFrame();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(sentAt.get(3) - start) >= 80);
+    }
+
+    @Test
+    void queuedBacklog_ShouldDrainFasterThanRealTime() {
+        RecognitionSession session = newSession(3, null, new RecognitionSession.Framing(FRAME, 40));
+
+        // 3.2秒音频一次性入队（如上游拥塞恢复后），实时发送需要3.2秒
+        long start = System.nanoTime();
+        for (int i = 0; i < 40; i++) {
+            session.processAudioFrame(new byte[FRAME * 2], FRAME * 2);
+        }
+        session.endRecognition();
+
+        verify(first, timeout(4000)).sendLastFrame();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        verify(first, times(79)).sendContinueFrame(any(byte[].class), eq(FRAME));
+        // 积压期间4倍速，最后8帧恢复实时节奏：约1.1秒，调度抖动大的机器上也远低于实时
+        assertTrue(elapsedMs < 2400, "elapsed " + elapsedMs);
+        assertTrue(elapsedMs >= 500, "elapsed " + elapsedMs);
+    }
+
+    @Test
+    void noiseAfterAmplifiedSpeech_ShouldStaySilence() {
+        AudioConverter audioConverter = new AudioConverter(metrics);
+        ReflectionTestUtils.setField(audioConverter, "agcEnabled", true);
+        ReflectionTestUtils.setField(audioConverter, "agcTargetDb", -20.0);
+        ReflectionTestUtils.setField(audioConverter, "agcMaxGainDb", 20.0);
+        ReflectionTestUtils.setField(audioConverter, "agcGateDb", -50.0);
+        audioConverter.init();
+        VoiceActivityDetector vad = new VoiceActivityDetector(
+                new VoiceActivityDetector.Config(-45, 10, 8, 0.3, 120, 400));
+        RecognitionSession session = new RecognitionSession("test", engine, audioConverter, vad,
+                new AudioSendQueue(50, AudioSendQueue.OverflowPolicy.COALESCE, 0, 16000, null, null),
+                scheduler, null, null, null, null);
+
+        // 1秒 -40dBFS 的轻声说话，AGC把增益提升到约20dB
+        Random random = new Random(1);
+        long sequence = 0;
+        for (int f = 0; f < 25; f++) {
+            byte[] frame = new byte[FRAME];
+            for (int i = 0; i < FRAME / 2; i++) {
+                putSample(frame, i, 460 * Math.sin(2 * Math.PI * 300 * (f * FRAME / 2 + i) / 16000));
+            }
+            session.processAudioPacket(new AudioPacket(sequence++, 0, ByteBuffer.wrap(frame)));
+        }
+        verify(first, timeout(1000)).sendFirstFrame(any(byte[].class), eq(FRAME));
+
+        // 之后是 -48dBFS 的低频噪声（风扇声）：高于AGC门限，放大后约 -28dBFS，但VAD按原始电平判断为静音
+        double rumble = 0;
+        for (int f = 0; f < 25; f++) {
+            byte[] frame = new byte[FRAME];
+            for (int i = 0; i < FRAME / 2; i++) {
+                rumble = 0.98 * rumble + random.nextGaussian();
+                putSample(frame, i, 26 * rumble);
+            }
+            session.processAudioPacket(new AudioPacket(sequence++, 0, ByteBuffer.wrap(frame)));
+        }
+
+        verify(first, timeout(1000)).sendLastFrame();
+        verify(engine, times(1)).open();
+    }
+
+    private RecognitionSession newSession(int maxReconnectAttempts) {
+        return newSession(maxReconnectAttempts, null);
+    }
+
+    private RecognitionSession newSession(int maxReconnectAttempts, RecognitionSession.Segmenting segmenting) {
+        return newSession(maxReconnectAttempts, segmenting, null);
+    }
+
+    private RecognitionSession newSession(int maxReconnectAttempts, RecognitionSession.Segmenting segmenting,
+                                          RecognitionSession.Framing framing) {
+        return new RecognitionSession("test", engine, new AudioConverter(metrics), null,
+                new AudioSendQueue(50, AudioSendQueue.OverflowPolicy.COALESCE, 0, 16000, null, null),
+                scheduler, new AudioReplayBuffer(2 * FRAME), new RecognitionSession.Reconnect(maxReconnectAttempts, 10),
+                segmenting, framing);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<Throwable> failureListener(IatConnection connection) {
+        ArgumentCaptor<Consumer<Throwable>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(connection).bind(any(), captor.capture());
+        return captor.getValue();
+    }
+
+    private static IatConnection openedConnection() {
+        IatConnection connection = mock(IatConnection.class);
+        when(connection.opened()).thenReturn(CompletableFuture.completedFuture(connection));
+        return connection;
+    }
+
+    private static void putSample(byte[] frame, int index, double value) {
+        short sample = (short) Math.round(value);
+        frame[2 * index] = (byte) sample;
+        frame[2 * index + 1] = (byte) (sample >> 8);
+    }
+
+    private static byte[] frame(int index) {
+        byte[] frame = new byte[FRAME];
+        frame[0] = (byte) index;
+        return frame;
+    }
+}
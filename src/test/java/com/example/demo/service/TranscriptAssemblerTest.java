@@ -0,0 +1,161 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.dto.TranscriptDelta;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 动态修正转写拼装器测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class TranscriptAssemblerTest {
+
+    private final TranscriptAssembler assembler = new TranscriptAssembler();
+    private String clientText = "";
+
+    @Test
+    void append_ShouldOnlySendNewSegment() {
+        apply(result(1, "apd", null, "今天", false));
+        TranscriptDelta first = drain();
+        apply(result(2, "apd", null, "天气", false));
+        TranscriptDelta second = drain();
+
+        assertEquals(0, first.getOffset());
+        assertEquals(2, second.getOffset());
+        assertEquals(0, second.getRemove());
+        assertEquals("天气", second.getText());
+        assertEquals("今天天气", clientText);
+    }
+
+    @Test
+    void replace_ShouldRewriteRangeFromFirstReplacedSegment() {
+        apply(result(1, "apd", null, "今天", false));
+        apply(result(2, "apd", null, "天起", false));
+        drain();
+
+        apply(result(3, "rpl", new int[]{2, 2}, "天气很好", false));
+        TranscriptDelta delta = drain();
+
+        assertEquals(2, delta.getOffset());
+        assertEquals(2, delta.getRemove());
+        assertEquals("天气很好", delta.getText());
+        assertEquals("今天天气很好", clientText);
+        assertEquals(clientText, assembler.getText());
+    }
+
+    @Test
+    void coalescedResults_ShouldProduceSingleDelta() {
+        apply(result(1, "apd", null, "一", false));
+        drain();
+
+        apply(result(2, "apd", null, "二", false));
+        apply(result(3, "rpl", new int[]{1, 2}, "一二三", false));
+        TranscriptDelta delta = drain();
+
+        assertEquals(0, delta.getOffset());
+        assertEquals(1, delta.getRemove());
+        assertEquals("一二三", clientText);
+        assertNull(assembler.drainDelta());
+    }
+
+    @Test
+    void finalResult_ShouldCommitSentenceAndStartNextAtEnd() {
+        apply(result(1, "apd", null, "你好。", true));
+        TranscriptDelta first = drain();
+        apply(result(1, "apd", null, "再见", false));
+        TranscriptDelta second = drain();
+
+        assertTrue(first.isFinal());
+        assertEquals(3, second.getOffset());
+        assertEquals("再见", second.getText());
+        assertEquals("你好。再见", clientText);
+    }
+
+    @Test
+    void resultsWithoutDynamicCorrection_ShouldAppend() {
+        apply(RecognitionResult.success("甲", false, 1.0));
+        apply(RecognitionResult.success("乙", false, 1.0));
+        drain();
+
+        assertEquals("甲乙", clientText);
+    }
+
+    @Test
+    void resume_ShouldDropTextRepeatedFromReplayedAudio() {
+        apply(result(1, "apd", null, "今天天气", false));
+        apply(result(2, "apd", null, "很好", false));
+        drain();
+
+        assembler.resume();
+        // 新连接重放了断开前的尾部音频，sn从1重新开始
+        apply(result(1, "apd", null, "气很好我们", false));
+        apply(result(2, "rpl", new int[]{1, 1}, "天气很好我们去", false));
+        drain();
+        apply(result(3, "apd", null, "公园。", true));
+        drain();
+
+        assertEquals("今天天气很好我们去公园。", clientText);
+        assertEquals(clientText, assembler.getText());
+    }
+
+    @Test
+    void splitUtterance_LateFinalOfPreviousUtterance_ShouldStayInOrder() {
+        assembler.apply(1, result(1, "apd", null, "第一段", false));
+        drain();
+
+        // 长句切分：后一句的中间结果先于前一句的最终结果到达
+        assembler.apply(2, result(1, "apd", null, "第二段", false));
+        drain();
+        assembler.apply(1, result(1, "rpl", new int[]{1, 1}, "第一段话，", true));
+        TranscriptDelta late = drain();
+        assembler.apply(2, result(1, "rpl", new int[]{1, 1}, "第二段话。", true));
+        TranscriptDelta last = drain();
+
+        assertEquals(0, late.getOffset());
+        assertFalse(late.isFinal());
+        assertTrue(last.isFinal());
+        assertEquals("第一段话，第二段话。", clientText);
+        assertEquals(clientText, assembler.getText());
+
+        // 已确认句子的迟到结果被忽略
+        assembler.apply(1, result(1, "apd", null, "重复", true));
+        assertNull(assembler.drainDelta());
+    }
+
+    @Test
+    void closeUtterance_WithoutFinal_ShouldReleaseFollowingUtterance() {
+        assembler.apply(1, result(1, "apd", null, "断开前", false));
+        assembler.apply(2, result(1, "apd", null, "之后。", true));
+        drain();
+
+        assembler.close(1);
+        assembler.apply(3, result(1, "apd", null, "继续", false));
+        drain();
+
+        assertEquals("断开前之后。继续", clientText);
+    }
+
+    private void apply(RecognitionResult result) {
+        assembler.apply(result);
+    }
+
+    private TranscriptDelta drain() {
+        TranscriptDelta delta = assembler.drainDelta();
+        assertNotNull(delta);
+        assertEquals(clientText.length() - delta.getOffset(), delta.getRemove());
+        clientText = clientText.substring(0, delta.getOffset()) + delta.getText();
+        return delta;
+    }
+
+    private static RecognitionResult result(int sn, String pgs, int[] rg, String text, boolean isFinal) {
+        RecognitionResult result = RecognitionResult.success(text, isFinal, 1.0);
+        result.setSn(sn);
+        result.setPgs(pgs);
+        result.setRg(rg);
+        return result;
+    }
+}
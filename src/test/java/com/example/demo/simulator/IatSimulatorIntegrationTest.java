@@ -0,0 +1,127 @@
+package com.example.demo.simulator;
+
+import com.example.demo.client.IatConnection;
+import com.example.demo.client.IatWebSocketClient;
+import com.example.demo.audio.PcmFormat;
+import com.example.demo.dto.RecognitionResult;
+import com.example.demo.dto.TranscriptionResult;
+import com.example.demo.service.BatchTranscriptionService;
+import com.example.demo.service.TranscriptAssembler;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用真实客户端代码连接本地协议模拟器
+ *
+ * @author example
+ * @version 1.0.0
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "server.port=18988",
+        "xfyun.simulator.enabled=true",
+        "xfyun.simulator.latency-ms=10",
+        "xfyun.simulator.final-latency-ms=10",
+        "xfyun.iat.host-url=http://localhost:18988/v2/iat",
+        "xfyun.iat.pool.size=0",
+        "speech.batch.pause-split-ms=500"
+})
+class IatSimulatorIntegrationTest {
+
+    @Autowired
+    private IatWebSocketClient webSocketClient;
+
+    @Autowired
+    private BatchTranscriptionService batchTranscriptionService;
+
+    @Test
+    void signedClient_ShouldReceiveDynamicCorrectionAndFinalResult() throws Exception {
+        TranscriptAssembler transcript = new TranscriptAssembler();
+        CompletableFuture<RecognitionResult> finalResult = new CompletableFuture<>();
+
+        IatConnection connection = webSocketClient.openConnection();
+        connection.bind(result -> {
+            if (result.getError() != null) {
+                finalResult.completeExceptionally(new AssertionError(result.getError()));
+                return;
+            }
+            transcript.apply(result);
+            if (result.isFinal()) {
+                finalResult.complete(result);
+            }
+        }, webSocketClient.newFrameEncoder());
+        connection.opened().get(5, TimeUnit.SECONDS);
+
+        // 600ms音频 -> 3条中间结果（第3条为rpl）
+        byte[] audio = new byte[1280];
+        connection.sendFirstFrame(audio, audio.length);
+        for (int i = 1; i < 15; i++) {
+            connection.sendContinueFrame(audio, audio.length);
+        }
+        connection.sendLastFrame();
+
+        assertTrue(finalResult.get(5, TimeUnit.SECONDS).isFinal());
+        assertEquals("今天天气很好。", transcript.getText());
+    }
+
+    @Test
+    void batchTranscription_ShouldSplitAtPauseAndJoinInOrder() throws Exception {
+        // 1秒语音、0.6秒停顿、1秒语音
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        audio.write(tone(1000));
+        audio.write(new byte[600 * 32]);
+        audio.write(tone(1000));
+
+        TranscriptionResult result = batchTranscriptionService
+                .transcribe(new ByteArrayInputStream(audio.toByteArray()), PcmFormat.IAT)
+                .get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, result.getSegments());
+        assertEquals(2600, result.getDurationMs());
+        assertTrue(result.getText().startsWith("今天"), result.getText());
+        assertTrue(result.getText().indexOf("今天", 2) > 0, result.getText());
+    }
+
+    private static byte[] tone(int ms) {
+        byte[] pcm = new byte[ms * 32];
+        for (int i = 0; i < pcm.length / 2; i++) {
+            short sample = (short) (8000 * Math.sin(2 * Math.PI * 440 * i / 16000.0));
+            pcm[2 * i] = (byte) sample;
+            pcm[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+
+    @Test
+    void unsignedRequest_ShouldBeRejected() throws Exception {
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        Request request = new Request.Builder()
+                .url("ws://localhost:18988/v2/iat?authorization=YQ==&date=x&host=localhost")
+                .build();
+        new OkHttpClient().newWebSocket(request, new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                status.complete(response.code());
+            }
+
+            @Override
+            public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                status.complete(response != null ? response.code() : -1);
+            }
+        });
+
+        assertEquals(401, status.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.util;
+
+import com.example.demo.metrics.SpeechMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 音频格式转换测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class AudioConverterTest {
+
+    private final AudioConverter audioConverter = new AudioConverter(new SpeechMetrics(new SimpleMeterRegistry()));
+
+    @Test
+    void convertWebMToPCM_ShouldDropTrailingPartialSample() {
+        // 不足4个字节无法探测格式，按PCM处理
+        assertEquals(0, audioConverter.convertWebMToPCM(new byte[0]).length);
+        assertEquals(0, audioConverter.convertWebMToPCM(new byte[]{0x12}).length);
+        assertArrayEquals(new byte[]{0x12, 0x34}, audioConverter.convertWebMToPCM(new byte[]{0x12, 0x34, 0x56}));
+
+        // 奇数长度的PCM截断到完整的采样
+        byte[] odd = {0x01, 0x02, 0x03, 0x04, 0x05};
+        assertArrayEquals(new byte[]{0x01, 0x02, 0x03, 0x04}, audioConverter.convertWebMToPCM(odd));
+    }
+}
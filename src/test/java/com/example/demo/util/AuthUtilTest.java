@@ -0,0 +1,54 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 鉴权URL签名测试
+ *
+ * @author example
+ * @version 1.0.0
+ */
+class AuthUtilTest {
+
+    private static final String HOST_URL = "wss://iat-api.xfyun.cn";
+    private static final String PATH = "/v2/iat";
+
+    private final AuthUtil authUtil = new AuthUtil();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(authUtil, "apiKey", "test-key");
+        ReflectionTestUtils.setField(authUtil, "apiSecret", "test-secret");
+    }
+
+    @Test
+    void getAuthUrl_ShouldProduceVerifiableSignature() {
+        UriComponents url = UriComponentsBuilder.fromUriString(authUtil.getAuthUrl(HOST_URL, PATH)).build();
+        String date = url.getQueryParams().getFirst("date");
+
+        assertTrue(date.matches("[A-Z][a-z]{2}, \\d{2} [A-Z][a-z]{2} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT"), date);
+        assertEquals("iat-api.xfyun.cn", url.getQueryParams().getFirst("host"));
+        assertNull(authUtil.verifyAuthorization(url.getQueryParams().getFirst("authorization"), date,
+                "iat-api.xfyun.cn", "GET " + PATH + " HTTP/1.1", 300));
+    }
+
+    @Test
+    void sign_ShouldBeThreadConfinedAndStable() throws Exception {
+        String expected = authUtil.sign("iat-api.xfyun.cn", "Sun, 18 Oct 2026 14:33:19 GMT", "GET /v2/iat HTTP/1.1");
+
+        String otherThread = CompletableFuture.supplyAsync(() ->
+                authUtil.sign("iat-api.xfyun.cn", "Sun, 18 Oct 2026 14:33:19 GMT", "GET /v2/iat HTTP/1.1")).get();
+
+        assertEquals(expected, otherThread);
+        assertEquals(expected, authUtil.sign("iat-api.xfyun.cn", "Sun, 18 Oct 2026 14:33:19 GMT", "GET /v2/iat HTTP/1.1"));
+        assertNotEquals(expected, authUtil.sign("iat-api.xfyun.cn", "Sun, 18 Oct 2026 14:33:20 GMT", "GET /v2/iat HTTP/1.1"));
+    }
+}